@@ -0,0 +1,573 @@
+package hudson.plugins.copyartifact;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Computer;
+import hudson.model.Job;
+import hudson.model.Node;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import hudson.slaves.ComputerListener;
+import hudson.tasks.Fingerprinter;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import io.jenkins.plugins.httpclient.RobustHTTPClient;
+import jenkins.MasterToSlaveFileCallable;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import jenkins.util.VirtualFile;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.client.methods.HttpGet;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Artifacts staged on nodes ahead of copies, stored by their SHA-256 digests
+ * in {@code copyartifact-cache} in the root directory of each node.
+ * Files are stored separately for each source job, and used only by copies from that job,
+ * as copies are permitted for each source job.
+ *
+ * Copies of artifacts with known digests (recorded in {@link Fingerprinter.FingerprintAction}s
+ * of source builds) copy the staged files within the node instead of transferring them again.
+ * Files on nodes are never trusted: the SHA-256 digest of each file is computed while staging it,
+ * held only in the controller, and files are verified with it when copied out.
+ * Files staged before the node got offline or Jenkins restarted are not used, and deleted
+ * when not used for {@link #MAX_AGE_MILLIS}.
+ */
+@Restricted(NoExternalUse.class)
+public final class AgentArtifactCache {
+    private static final Logger LOGGER = Logger.getLogger(AgentArtifactCache.class.getName());
+
+    /**
+     * Milliseconds to keep staged files not used.
+     */
+    @SuppressFBWarnings(value="MS_SHOULD_BE_FINAL", justification="for script console")
+    public static long MAX_AGE_MILLIS = SystemProperties.getLong(AgentArtifactCache.class.getName() + ".maxAgeMillis", TimeUnit.DAYS.toMillis(1));
+
+    /**
+     * Number of files transferred to nodes at a time.
+     */
+    @SuppressFBWarnings(value="MS_SHOULD_BE_FINAL", justification="for script console")
+    public static int THREADS = SystemProperties.getInteger(AgentArtifactCache.class.getName() + ".threads", 4);
+
+    private static final String DIR = "copyartifact-cache";
+
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+
+    private static final Pattern SCOPE = Pattern.compile("[0-9a-f]{32}");
+
+    /**
+     * node name to keys ({@link #getKey(Job, String)}) of the files staged on that node,
+     * to their paths ({@code scope/SHA-256 digest}) from {@link #DIR}.
+     * Only files staged by this controller are recorded.
+     */
+    private static final Map<String, Map<String, String>> stored = new HashMap<>();
+
+    /**
+     * (node name, key) to the transfer in progress.
+     */
+    private static final Map<String, Fetch> fetching = new ConcurrentHashMap<>();
+
+    private static ExecutorService pool;
+
+    private AgentArtifactCache() {
+    }
+
+    private static synchronized ExecutorService getPool() {
+        if (pool == null) {
+            pool = Executors.newFixedThreadPool(Math.max(THREADS, 1), new NamingThreadFactory(new DaemonThreadFactory(), AgentArtifactCache.class.getSimpleName()));
+        }
+        return pool;
+    }
+
+    private static String getNodeName(@NonNull Node node) {
+        // the built-in node has an empty name.
+        return node.getNodeName();
+    }
+
+    /**
+     * @param job the source job.
+     * @return the directory name to store files of the job, not to be too long for the file system.
+     */
+    private static String getScope(@NonNull Job<?, ?> job) {
+        return Util.getDigestOf(job.getFullName());
+    }
+
+    /**
+     * @param job the source job.
+     * @param digest the MD5 digest of a file.
+     * @return the key identifying the file staged for copies from the job.
+     */
+    @NonNull
+    static String getKey(@NonNull Job<?, ?> job, @NonNull String digest) {
+        return getScope(job) + '/' + digest;
+    }
+
+    private static String getFetchKey(@NonNull Node node, @NonNull String key) {
+        return getNodeName(node) + '\n' + key;
+    }
+
+    /**
+     * Runs a task in the pool transferring files to nodes.
+     *
+     * @param task the task to run in background.
+     */
+    static void execute(@NonNull Runnable task) {
+        getPool().execute(task);
+    }
+
+    @CheckForNull
+    private static FilePath getRoot(@NonNull Node node) {
+        FilePath root = node.getRootPath();
+        return (root != null) ? root.child(DIR) : null;
+    }
+
+    private static MessageDigest newDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException x) {
+            throw new AssertionError(x);
+        }
+    }
+
+    /**
+     * @param src a build.
+     * @return file names (paths or base names) to MD5 digests recorded for the build.
+     */
+    @NonNull
+    static Map<String, String> getDigests(@NonNull Run<?, ?> src) {
+        Fingerprinter.FingerprintAction fa = src.getAction(Fingerprinter.FingerprintAction.class);
+        return (fa != null) ? fa.getRecords() : Collections.emptyMap();
+    }
+
+    /**
+     * Resolve digests of artifacts to copy.
+     * Base names are used only when not shared by other files,
+     * as records of copied artifacts are stored with their base names.
+     *
+     * @param records digests recorded for the source build.
+     * @param entries paths of artifacts to copy.
+     * @return paths to digests. Paths without known digests are not contained.
+     */
+    @NonNull
+    static Map<String, String> resolveDigests(@NonNull Map<String, String> records, @NonNull Collection<String> entries) {
+        if (records.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Integer> baseNames = new HashMap<>();
+        for (String entry : entries) {
+            baseNames.merge(getBaseName(entry), 1, Integer::sum);
+        }
+        Map<String, String> digests = new HashMap<>();
+        for (String entry : entries) {
+            String digest = records.get(entry);
+            if (digest == null && baseNames.get(getBaseName(entry)) == 1) {
+                digest = records.get(getBaseName(entry));
+            }
+            if (digest != null) {
+                digests.put(entry, digest);
+            }
+        }
+        return digests;
+    }
+
+    private static String getBaseName(String entry) {
+        return entry.replaceFirst(".+/", "");
+    }
+
+    /**
+     * @param src a build.
+     * @return keys ({@link #getKey(Job, String)}) of files recorded for the build.
+     */
+    @NonNull
+    static Set<String> getKeys(@NonNull Run<?, ?> src) {
+        Set<String> keys = new HashSet<>();
+        for (String digest : getDigests(src).values()) {
+            keys.add(getKey(src.getParent(), digest));
+        }
+        return keys;
+    }
+
+    /**
+     * @param node a node.
+     * @param keys keys ({@link #getKey(Job, String)}) of files.
+     * @return the number of the files staged on the node.
+     */
+    static int countStored(@NonNull Node node, @NonNull Collection<String> keys) {
+        synchronized (stored) {
+            Map<String, String> s = stored.get(getNodeName(node));
+            if (s == null) {
+                return 0;
+            }
+            int count = 0;
+            for (String key : keys) {
+                if (s.containsKey(key)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    @CheckForNull
+    private static String getStored(@NonNull Node node, @NonNull String key) {
+        synchronized (stored) {
+            Map<String, String> s = stored.get(getNodeName(node));
+            return (s != null) ? s.get(key) : null;
+        }
+    }
+
+    private static void setStored(@NonNull Node node, @NonNull String key, @CheckForNull String path) {
+        synchronized (stored) {
+            Map<String, String> s = stored.computeIfAbsent(getNodeName(node), k -> new HashMap<>());
+            if (path != null) {
+                s.put(key, path);
+            } else {
+                s.remove(key);
+            }
+        }
+    }
+
+    private static class Fetch extends FutureTask<Void> {
+        private final String key;
+
+        Fetch(String key, Node node, FilePath root, String scope, VirtualFile file, String digest) {
+            super(() -> {
+                store(node, root, scope, file, digest);
+                return null;
+            });
+            this.key = key;
+        }
+
+        @Override
+        protected void done() {
+            fetching.remove(key, this);
+        }
+    }
+
+    /**
+     * Stage a file on a node in background, unless already staged.
+     * The caller must have tested the permission to copy from the job.
+     *
+     * @param node the node to stage the file.
+     * @param job the source job of the artifact.
+     * @param file the artifact.
+     * @param digest the MD5 digest of the file.
+     */
+    static void fetch(@NonNull Node node, @NonNull Job<?, ?> job, @NonNull VirtualFile file, @NonNull String digest) {
+        if (getStored(node, getKey(job, digest)) != null) {
+            return;
+        }
+        FilePath root = getRoot(node);
+        if (root == null) {
+            // offline
+            return;
+        }
+        String key = getFetchKey(node, getKey(job, digest));
+        Fetch fetch = new Fetch(key, node, root, getScope(job), file, digest);
+        if (fetching.putIfAbsent(key, fetch) == null) {
+            getPool().execute(fetch);
+        }
+    }
+
+    private static void store(@NonNull Node node, @NonNull FilePath root, @NonNull String scope, @NonNull VirtualFile file, @NonNull String digest) throws IOException, InterruptedException {
+        FilePath dir = root.child(scope);
+        dir.mkdirs();
+        FilePath tmp = dir.createTempFile("stage", ".tmp");
+        try {
+            // digests are computed from the transferred bytes, never from files on the node.
+            String[] digests;
+            URL u = file.toExternalURL();
+            if (u != null) {
+                digests = tmp.act(new Download(u));
+            } else {
+                MessageDigest md5 = newDigest("MD5");
+                MessageDigest sha256 = newDigest("SHA-256");
+                try (InputStream is = new DigestInputStream(new DigestInputStream(file.open(), md5), sha256)) {
+                    tmp.copyFrom(is);
+                }
+                digests = new String[] {Util.toHexString(md5.digest()), Util.toHexString(sha256.digest())};
+            }
+            if (!digest.equals(digests[0])) {
+                throw new IOException(String.format("Digest of %s is %s, but %s is expected", file, digests[0], digest));
+            }
+            // files with the same name are overwritten, as they are not trusted.
+            tmp.renameTo(dir.child(digests[1]));
+            setStored(node, scope + '/' + digest, scope + '/' + digests[1]);
+        } finally {
+            if (tmp.exists()) {
+                tmp.delete();
+            }
+        }
+    }
+
+    /**
+     * Downloads a file in the node, and returns MD5 and SHA-256 digests of the downloaded bytes.
+     */
+    private static class Download extends MasterToSlaveFileCallable<String[]> {
+        private static final long serialVersionUID = 1L;
+        private final URL u;
+        private final RobustHTTPClient client = new RobustHTTPClient();
+
+        Download(URL u) {
+            this.u = u;
+        }
+
+        @Override
+        public String[] invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
+            MessageDigest md5 = newDigest("MD5");
+            MessageDigest sha256 = newDigest("SHA-256");
+            client.connect("download", "download " + RobustHTTPClient.sanitize(u) + " to " + f, c -> c.execute(new HttpGet(u.toString())), response -> {
+                md5.reset();
+                sha256.reset();
+                try (InputStream is = response.getEntity().getContent(); OutputStream os = new FileOutputStream(f)) {
+                    IOUtils.copy(new DigestInputStream(new DigestInputStream(is, md5), sha256), os);
+                }
+            }, TaskListener.NULL);
+            return new String[] {Util.toHexString(md5.digest()), Util.toHexString(sha256.digest())};
+        }
+    }
+
+    /**
+     * Copy a staged file within the node.
+     * Waits for the file if it's being staged.
+     * The copied bytes are verified with the SHA-256 digest computed when staged.
+     * Only files staged for the same source job are used.
+     *
+     * @param node the node where the target is.
+     * @param job the source job of the file.
+     * @param digest the MD5 digest of the file to copy.
+     * @param target the file to copy to.
+     * @return the size and the digests of the copied bytes.
+     *     {@code null} if not staged or not verified, and the file should be transferred.
+     */
+    @CheckForNull
+    static CopiedFile copyTo(@NonNull Node node, @NonNull Job<?, ?> job, @NonNull String digest, @NonNull FilePath target) throws IOException, InterruptedException {
+        String key = getKey(job, digest);
+        Fetch fetch = fetching.get(getFetchKey(node, key));
+        if (fetch != null) {
+            try {
+                fetch.get();
+            } catch (ExecutionException e) {
+                LOGGER.log(Level.FINE, "Failed to stage " + digest + " on " + node.getDisplayName(), e);
+                return null;
+            }
+        }
+        String path = getStored(node, key);
+        if (path == null) {
+            return null;
+        }
+        FilePath root = getRoot(node);
+        if (root == null || root.getChannel() != target.getChannel()) {
+            return null;
+        }
+        String sha256 = path.substring(path.indexOf('/') + 1);
+        CopiedFile copied = root.child(path).act(new CopyLocally(target.getRemote(), sha256));
+        if (copied == null) {
+            // deleted or modified for some reason.
+            setStored(node, key, null);
+        }
+        return copied;
+    }
+
+    /**
+     * Copies the staged file to the target, and returns the size and the digests of the copied bytes,
+     * or {@code null} if the file is not available or does not have the expected SHA-256 digest.
+     */
+    private static class CopyLocally extends MasterToSlaveFileCallable<CopiedFile> {
+        private static final long serialVersionUID = 1L;
+        private final String target;
+        private final String sha256;
+
+        CopyLocally(String target, String sha256) {
+            this.target = target;
+            this.sha256 = sha256;
+        }
+
+        @Override
+        public CopiedFile invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
+            if (!f.isFile()) {
+                return null;
+            }
+            Path t = new File(target).toPath();
+            Path parent = t.getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            MessageDigest md5 = newDigest("MD5");
+            MessageDigest actual = newDigest("SHA-256");
+            long size;
+            try (InputStream is = new DigestInputStream(new DigestInputStream(Files.newInputStream(f.toPath()), md5), actual)) {
+                size = Files.copy(is, t, StandardCopyOption.REPLACE_EXISTING);
+            } catch (NoSuchFileException e) {
+                // cleaned up just now.
+                return null;
+            }
+            if (!sha256.equals(Util.toHexString(actual.digest()))) {
+                Files.deleteIfExists(t);
+                Files.deleteIfExists(f.toPath());
+                return null;
+            }
+            // files are deleted when not used for a while.
+            f.setLastModified(System.currentTimeMillis());
+            return new CopiedFile(size, Util.toHexString(md5.digest()), sha256);
+        }
+    }
+
+    /**
+     * Deletes files not used for a while and returns paths ({@code scope/SHA-256 digest}) of remaining files.
+     * Files not named by SHA-256 digests are deleted as well,
+     * including ones staged before files were stored separately for each source job.
+     */
+    private static class CleanUp extends MasterToSlaveFileCallable<List<String>> {
+        private static final long serialVersionUID = 1L;
+        private final long maxAgeMillis;
+
+        CleanUp(long maxAgeMillis) {
+            this.maxAgeMillis = maxAgeMillis;
+        }
+
+        @Override
+        public List<String> invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
+            List<String> paths = new ArrayList<>();
+            File[] dirs = f.listFiles();
+            if (dirs == null) {
+                return paths;
+            }
+            long threshold = System.currentTimeMillis() - maxAgeMillis;
+            for (File dir : dirs) {
+                if (!dir.isDirectory() || !SCOPE.matcher(dir.getName()).matches()) {
+                    Util.deleteRecursive(dir);
+                    continue;
+                }
+                File[] files = dir.listFiles();
+                if (files == null) {
+                    continue;
+                }
+                for (File file : files) {
+                    boolean isStaged = SHA256.matcher(file.getName()).matches();
+                    // temporary files are left only when transfers are aborted
+                    if (file.lastModified() < threshold || (!isStaged && !file.getName().endsWith(".tmp"))) {
+                        Files.deleteIfExists(file.toPath());
+                    } else if (isStaged) {
+                        paths.add(dir.getName() + '/' + file.getName());
+                    }
+                }
+                // the directory is modified whenever a file is staged in it.
+                if (dir.lastModified() < threshold) {
+                    try {
+                        Files.deleteIfExists(dir.toPath());
+                    } catch (DirectoryNotEmptyException e) {
+                        // still used.
+                    }
+                }
+            }
+            return paths;
+        }
+    }
+
+    /**
+     * Cleans up files on the node, and forgets files deleted.
+     * Remaining files are never added, as they are not verified.
+     */
+    private static void refresh(@NonNull Node node) throws IOException, InterruptedException {
+        FilePath root = getRoot(node);
+        if (root == null || !root.exists()) {
+            synchronized (stored) {
+                stored.remove(getNodeName(node));
+            }
+            return;
+        }
+        Set<String> remaining = new HashSet<>(root.act(new CleanUp(MAX_AGE_MILLIS)));
+        synchronized (stored) {
+            Map<String, String> s = stored.get(getNodeName(node));
+            if (s != null) {
+                s.values().retainAll(remaining);
+            }
+        }
+    }
+
+    // Deletes files not used for a while.
+    @Extension
+    public static final class CleanUpWork extends AsyncPeriodicWork {
+        public CleanUpWork() {
+            super("Copy Artifact cache clean up");
+        }
+
+        @Override
+        public long getRecurrencePeriod() {
+            return HOUR;
+        }
+
+        @Override
+        protected void execute(TaskListener listener) throws IOException, InterruptedException {
+            List<Node> nodes = new ArrayList<>(Jenkins.get().getNodes());
+            nodes.add(Jenkins.get());
+            for (Node node : nodes) {
+                try {
+                    refresh(node);
+                } catch (IOException e) {
+                    LOGGER.log(Level.FINE, "Failed to clean up staged artifacts in " + node.getDisplayName(), e);
+                }
+            }
+        }
+    }
+
+    // Cleans up files staged before the node got offline or Jenkins restarted.
+    @Extension
+    public static final class ComputerListenerImpl extends ComputerListener {
+        @Override
+        public void onOnline(Computer c, TaskListener listener) {
+            Node node = c.getNode();
+            if (node == null) {
+                return;
+            }
+            getPool().execute(() -> {
+                try {
+                    refresh(node);
+                } catch (IOException | InterruptedException e) {
+                    LOGGER.log(Level.FINE, "Failed to clean up staged artifacts in " + node.getDisplayName(), e);
+                }
+            });
+        }
+    }
+}
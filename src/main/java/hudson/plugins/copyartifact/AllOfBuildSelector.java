@@ -0,0 +1,81 @@
+package hudson.plugins.copyartifact;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.model.Descriptor;
+import hudson.model.Job;
+import hudson.model.Run;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Select the newest build selected by all of the specified selectors.
+ *
+ * If lookups (e.g. {@link SpecificBuildSelector}) are combined,
+ * they must resolve to the same build, which is then tested with the other selectors.
+ */
+public class AllOfBuildSelector extends CompositeBuildSelector {
+    private static final Logger LOGGER = Logger.getLogger(AllOfBuildSelector.class.getName());
+
+    /**
+     * @param selectors selectors to combine.
+     */
+    @DataBoundConstructor
+    public AllOfBuildSelector(List<BuildSelector> selectors) {
+        super(selectors);
+    }
+
+    @Override
+    public Run<?,?> getBuild(Job<?,?> job, EnvVars env, BuildFilter filter, Run<?,?> parent) {
+        if (isPredicate()) {
+            return super.getBuild(job, env, filter, parent);
+        }
+        List<BuildSelector> predicates = new ArrayList<>();
+        Run<?,?> found = null;
+        for (BuildSelector selector : getSelectorsByCost()) {
+            if (isPredicate(selector)) {
+                predicates.add(selector);
+                continue;
+            }
+            Run<?,?> run = selector.getBuild(job, env, filter, parent);
+            if (run == null) {
+                return null;
+            }
+            if (found != null && found != run) {
+                LOGGER.log(Level.FINE, "Selectors resolved to different builds: {0} and {1}", new Object[] {found, run});
+                return null;
+            }
+            found = run;
+        }
+        for (BuildSelector selector : predicates) {
+            if (!test(selector, found, env)) {
+                return null;
+            }
+        }
+        // BuildFilter is already tested by lookups.
+        return found;
+    }
+
+    @Override
+    public boolean isSelectable(Run<?,?> run, EnvVars env) {
+        for (BuildSelector selector : getSelectorsByCost()) {
+            if (!test(selector, run, env)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Extension @Symbol("allOf")
+    public static class DescriptorImpl extends Descriptor<BuildSelector> {
+        @Override
+        public String getDisplayName() {
+            return Messages.AllOfBuildSelector_DisplayName();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package hudson.plugins.copyartifact;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.model.Descriptor;
+import hudson.model.Job;
+import hudson.model.Run;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Select the newest build selected by any of the specified selectors.
+ */
+public class AnyOfBuildSelector extends CompositeBuildSelector {
+
+    /**
+     * @param selectors selectors to combine.
+     */
+    @DataBoundConstructor
+    public AnyOfBuildSelector(List<BuildSelector> selectors) {
+        super(selectors);
+    }
+
+    @Override
+    public Run<?,?> getBuild(Job<?,?> job, EnvVars env, BuildFilter filter, Run<?,?> parent) {
+        if (isPredicate()) {
+            return super.getBuild(job, env, filter, parent);
+        }
+        List<BuildSelector> predicates = new ArrayList<>();
+        Run<?,?> newest = null;
+        for (BuildSelector selector : getSelectorsByCost()) {
+            if (isPredicate(selector)) {
+                predicates.add(selector);
+                continue;
+            }
+            Run<?,?> run = selector.getBuild(job, env, filter, parent);
+            if (run != null && (newest == null || run.getNumber() > newest.getNumber())) {
+                newest = run;
+            }
+        }
+        if (predicates.isEmpty()) {
+            return newest;
+        }
+        // no need to test builds older than ones found by lookups.
+        for (
+                Run<?,?> run = job.getLastCompletedBuild();
+                run != null && (newest == null || run.getNumber() > newest.getNumber());
+                run = run.getPreviousCompletedBuild()
+        ) {
+            if (isSelectable(predicates, run, env) && filter.isSelectable(run, env)) {
+                return run;
+            }
+        }
+        return newest;
+    }
+
+    @Override
+    public boolean isSelectable(Run<?,?> run, EnvVars env) {
+        return isSelectable(getSelectorsByCost(), run, env);
+    }
+
+    private static boolean isSelectable(List<BuildSelector> selectors, Run<?,?> run, EnvVars env) {
+        for (BuildSelector selector : selectors) {
+            if (test(selector, run, env)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Extension @Symbol("anyOf")
+    public static class DescriptorImpl extends Descriptor<BuildSelector> {
+        @Override
+        public String getDisplayName() {
+            return Messages.AnyOfBuildSelector_DisplayName();
+        }
+    }
+}
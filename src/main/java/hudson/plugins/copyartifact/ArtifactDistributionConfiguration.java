@@ -0,0 +1,268 @@
+package hudson.plugins.copyartifact;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import hudson.Extension;
+import hudson.Functions;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.Label;
+import hudson.model.Node;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.labels.LabelExpression;
+import hudson.util.FormValidation;
+import jenkins.model.GlobalConfiguration;
+import jenkins.model.Jenkins;
+import jenkins.util.Timer;
+import jenkins.util.VirtualFile;
+import net.sf.json.JSONObject;
+import org.apache.commons.lang3.StringUtils;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest2;
+
+/**
+ * Distributes artifacts of completed builds to nodes in advance,
+ * so that copies on those nodes don't transfer them.
+ *
+ * Artifacts with recorded fingerprints of successful or unstable builds of projects matching {@link Rule}s
+ * are staged in {@link AgentArtifactCache} of online nodes with the labels of the rules.
+ * As any build running on those nodes can read staged files, only artifacts any project can copy
+ * are distributed (see {@link #isDistributable(Run)}).
+ */
+@Extension
+@Symbol("copyArtifactDistribution")
+public class ArtifactDistributionConfiguration extends GlobalConfiguration {
+    private static final Logger LOGGER = Logger.getLogger(ArtifactDistributionConfiguration.class.getName());
+
+    private List<Rule> rules = new ArrayList<>();
+    private boolean preferStagedNodes;
+
+    /**
+     * ctor.
+     */
+    public ArtifactDistributionConfiguration() {
+        load();
+    }
+
+    /**
+     * @return rules to distribute artifacts.
+     */
+    @NonNull
+    public List<Rule> getRules() {
+        return (rules != null) ? Collections.unmodifiableList(rules) : Collections.emptyList();
+    }
+
+    /**
+     * @param rules rules to distribute artifacts.
+     */
+    @DataBoundSetter
+    public void setRules(@CheckForNull List<Rule> rules) {
+        this.rules = (rules != null) ? new ArrayList<>(rules) : new ArrayList<>();
+        save();
+    }
+
+    /**
+     * @return whether builds are assigned to nodes where artifacts to copy are staged.
+     * @see LocalityLoadBalancer
+     */
+    public boolean isPreferStagedNodes() {
+        return preferStagedNodes;
+    }
+
+    /**
+     * @param preferStagedNodes {@code true} to assign builds to nodes where artifacts to copy are staged.
+     */
+    @DataBoundSetter
+    public void setPreferStagedNodes(boolean preferStagedNodes) {
+        this.preferStagedNodes = preferStagedNodes;
+        save();
+        LocalityLoadBalancer.update(preferStagedNodes);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean configure(StaplerRequest2 req, JSONObject json) throws FormException {
+        // not sent when all rules are removed.
+        setRules(null);
+        req.bindJSON(this, json);
+        return true;
+    }
+
+    /**
+     * @return the singleton instance.
+     */
+    @CheckForNull
+    public static ArtifactDistributionConfiguration get() {
+        return GlobalConfiguration.all().get(ArtifactDistributionConfiguration.class);
+    }
+
+    /**
+     * Start distributing artifacts of a completed build.
+     *
+     * @param run a completed build.
+     */
+    static void distribute(@NonNull Run<?, ?> run) {
+        ArtifactDistributionConfiguration config = get();
+        if (config == null || config.getRules().isEmpty()) {
+            return;
+        }
+        Result result = run.getResult();
+        if (result == null || result.isWorseThan(Result.UNSTABLE) || !run.getHasArtifacts()) {
+            return;
+        }
+        if (!isDistributable(run)) {
+            LOGGER.log(Level.FINE, "Artifacts of {0} are not distributed as not all projects can copy them", run.getFullDisplayName());
+            return;
+        }
+        Set<Node> nodes = new LinkedHashSet<>();
+        for (Rule rule : config.getRules()) {
+            if (rule.isApplicable(run.getParent())) {
+                nodes.addAll(rule.getNodes());
+            }
+        }
+        Map<String, String> records = AgentArtifactCache.getDigests(run);
+        if (nodes.isEmpty() || records.isEmpty()) {
+            return;
+        }
+        VirtualFile root = run.getArtifactManager().root();
+        // listing artifacts can be slow with external artifact managers.
+        Timer.get().submit(() -> {
+            try {
+                Collection<String> list = root.list("**", null, false);
+                Map<String, String> digests = AgentArtifactCache.resolveDigests(records, list);
+                for (Node node : nodes) {
+                    for (Map.Entry<String, String> entry : digests.entrySet()) {
+                        AgentArtifactCache.fetch(node, run.getParent(), root.child(entry.getKey()), entry.getValue());
+                    }
+                }
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, String.format("Failed to distribute artifacts of %s", run.getFullDisplayName()), e);
+            }
+        });
+    }
+
+    /**
+     * Tests whether any project can copy artifacts of a build, just like {@link CopyArtifact} tests for copies:
+     * either the project allows any projects with {@link CopyArtifactPermissionProperty},
+     * or any authenticated users can read the project (and artifacts of the build).
+     *
+     * @param run a build.
+     * @return whether artifacts of the build can be distributed to nodes.
+     */
+    static boolean isDistributable(@NonNull Run<?, ?> run) {
+        Job<?, ?> job = CopyArtifact.getRootProject(run.getParent());
+        CopyArtifactPermissionProperty prop = job.getProperty(CopyArtifactPermissionProperty.class);
+        if (prop != null && prop.getProjectNameList().contains("*")) {
+            return true;
+        }
+        if (!job.getACL().hasPermission2(CopyArtifact.AUTHENTICATED_ANONYMOUS, Item.READ)) {
+            return false;
+        }
+        return !Functions.isArtifactsPermissionEnabled()
+                || run.hasPermission2(CopyArtifact.AUTHENTICATED_ANONYMOUS, Run.ARTIFACTS);
+    }
+
+    /**
+     * Distributes artifacts of projects to nodes with a label.
+     */
+    public static final class Rule extends AbstractDescribableImpl<Rule> {
+        private final String projectNames;
+        private final String label;
+
+        /**
+         * @param projectNames comma-separated full names of projects. {@code *} matches any characters.
+         * @param label the label expression of nodes to distribute artifacts to.
+         */
+        @DataBoundConstructor
+        public Rule(String projectNames, String label) {
+            this.projectNames = StringUtils.trim(projectNames);
+            this.label = StringUtils.trim(label);
+        }
+
+        /**
+         * @return comma-separated full names of projects.
+         */
+        public String getProjectNames() {
+            return projectNames;
+        }
+
+        /**
+         * @return the label expression of nodes to distribute artifacts to.
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * @param job a job.
+         * @return whether artifacts of the job are distributed with this rule.
+         */
+        public boolean isApplicable(@NonNull Job<?, ?> job) {
+            if (projectNames == null) {
+                return false;
+            }
+            for (String name : Arrays.asList(StringUtils.split(projectNames, ','))) {
+                if (CopyArtifactPermissionProperty.isNameMatch(job.getFullName(), StringUtils.trim(name))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return nodes to distribute artifacts to.
+         */
+        @NonNull
+        public Set<Node> getNodes() {
+            if (StringUtils.isBlank(label)) {
+                return Collections.emptySet();
+            }
+            Label l;
+            try {
+                l = Jenkins.get().getLabel(label);
+            } catch (IllegalArgumentException e) {
+                return Collections.emptySet();
+            }
+            return (l != null) ? l.getNodes() : Collections.emptySet();
+        }
+
+        /**
+         * Descriptor for {@link Rule}.
+         */
+        @Extension
+        public static class DescriptorImpl extends Descriptor<Rule> {
+            @NonNull
+            @Override
+            public String getDisplayName() {
+                return Messages.ArtifactDistributionConfiguration_Rule_DisplayName();
+            }
+
+            public FormValidation doCheckLabel(@QueryParameter String value) {
+                if (StringUtils.isBlank(value)) {
+                    return FormValidation.error(Messages.ArtifactDistributionConfiguration_Rule_Label_Required());
+                }
+                return LabelExpression.validate(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package hudson.plugins.copyartifact;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+import hudson.AbortException;
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Util;
+import hudson.model.AbstractProject;
+import hudson.model.Computer;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.tasks.BuildStepDescriptor;
+import hudson.tasks.Builder;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.FormValidation;
+import hudson.util.NamingThreadFactory;
+import hudson.util.StreamTaskListener;
+import jenkins.model.Jenkins;
+import jenkins.tasks.SimpleBuildStep;
+import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Build step to start copying artifacts in background.
+ *
+ * The step returns once the copy is started, and {@link AwaitCopyArtifact} with the same handle
+ * waits for the copy to complete and reports the result.
+ * Other steps can run meanwhile, as long as they do not use the target directory.
+ * Copies not awaited are aborted when the build completes,
+ * or in Pipeline, when the {@code node} or {@code ws} block allocating the workspace ends
+ * (see {@link WorkspaceBlockListener}), as the workspace may be reused by other builds.
+ *
+ * Copies are performed by controller threads just like {@link CopyArtifact},
+ * as builds are selected and artifacts are listed in the controller,
+ * while files are written by the node of the workspace
+ * (or downloaded there directly if the artifact manager supports it).
+ * Pipeline uses {@link AsyncCopyArtifactStep} and {@link AwaitCopyArtifactStep} instead.
+ */
+public class AsyncCopyArtifact extends Builder implements SimpleBuildStep {
+    /**
+     * Maximum bytes of the log of each copy held until the copy is awaited.
+     * Older lines are dropped.
+     */
+    @Restricted(NoExternalUse.class)
+    @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "for script console")
+    public static int MAX_LOG_SIZE = SystemProperties.getInteger(AsyncCopyArtifact.class.getName() + ".maxLogSize", 256 * 1024);
+
+    private static final Object LOCK = new Object();
+
+    /**
+     * externalizable IDs of copier builds to handles to copies not awaited yet.
+     * Held only in memory as copies never survive restarts.
+     */
+    private static final Map<String, Map<String, PendingCopy>> pending = new HashMap<>();
+
+    private static final AtomicLong HANDLES = new AtomicLong();
+
+    private static ExecutorService pool;
+
+    private final String handle;
+    private final CopyArtifact copier;
+
+    /**
+     * @param handle the name to await the copy with.
+     * @param copier the copy to perform.
+     */
+    @DataBoundConstructor
+    public AsyncCopyArtifact(String handle, CopyArtifact copier) {
+        this.handle = Util.fixEmptyAndTrim(handle);
+        this.copier = copier;
+    }
+
+    /**
+     * @return the name to await the copy with.
+     */
+    public String getHandle() {
+        return handle;
+    }
+
+    /**
+     * @return the copy to perform.
+     */
+    public CopyArtifact getCopier() {
+        return copier;
+    }
+
+    @Override
+    public void perform(@NonNull Run<?, ?> build, @NonNull FilePath workspace, @NonNull Launcher launcher, @NonNull TaskListener listener) throws InterruptedException, IOException {
+        if (handle == null || copier == null) {
+            throw new AbortException(Messages.AsyncCopyArtifact_HandleRequired());
+        }
+        start(build, workspace, listener, handle, copier);
+    }
+
+    /**
+     * Starts copying artifacts in background.
+     * Shared with {@link AsyncCopyArtifactStep}.
+     *
+     * @param build the copier build.
+     * @param workspace the workspace to copy into.
+     * @param listener the listener of the step starting the copy.
+     * @param handle the name to await the copy with. {@code null} to generate one.
+     * @param copier the copy to perform.
+     * @return the name to await the copy with.
+     */
+    @NonNull
+    static String start(@NonNull Run<?, ?> build, @NonNull FilePath workspace, @NonNull TaskListener listener,
+            @CheckForNull String handle, @NonNull CopyArtifact copier) throws InterruptedException, IOException {
+        Jenkins jenkins = Jenkins.getInstanceOrNull();
+        if (jenkins == null) {
+            throw new AbortException("Jenkins instance is unavailable.");
+        }
+        if (handle == null) {
+            handle = "copy-" + HANDLES.incrementAndGet();
+        }
+        EnvVars env = CopyArtifact.getEnvironment(build, listener);
+        Authentication auth = Jenkins.getAuthentication2();
+        // the log of the step may be closed before the copy completes.
+        LogBuffer log = new LogBuffer(MAX_LOG_SIZE);
+        PendingCopy copy = new PendingCopy(() -> {
+            try (ACLContext ctx = ACL.as2(auth)) {
+                copier.perform(jenkins, build, workspace, new StreamTaskListener(log, StandardCharsets.UTF_8), env);
+                return null;
+            }
+        }, log, workspace);
+        synchronized (LOCK) {
+            Map<String, PendingCopy> copies = pending.computeIfAbsent(build.getExternalizableId(), k -> new HashMap<>());
+            if (copies.containsKey(handle)) {
+                throw new AbortException(Messages.AsyncCopyArtifact_DuplicateHandle(handle));
+            }
+            copies.put(handle, copy);
+        }
+        // does nothing if already aborted as the build completed.
+        getPool().execute(copy);
+        listener.getLogger().println(Messages.AsyncCopyArtifact_Started(copier.getProjectName(), handle));
+        return handle;
+    }
+
+    private static synchronized ExecutorService getPool() {
+        if (pool == null) {
+            // copies wait for each other only when awaited, so they are not limited in number.
+            pool = Executors.newCachedThreadPool(new NamingThreadFactory(new DaemonThreadFactory(), AsyncCopyArtifact.class.getSimpleName()));
+        }
+        return pool;
+    }
+
+    /**
+     * Removes a copy to await it.
+     *
+     * @param build the copier build.
+     * @param handle the name the copy was started with.
+     * @return the copy, or {@code null} if not started or already awaited.
+     */
+    @CheckForNull
+    static PendingCopy remove(@NonNull Run<?, ?> build, @NonNull String handle) {
+        synchronized (LOCK) {
+            Map<String, PendingCopy> copies = pending.get(build.getExternalizableId());
+            if (copies == null) {
+                return null;
+            }
+            PendingCopy copy = copies.remove(handle);
+            if (copies.isEmpty()) {
+                pending.remove(build.getExternalizableId());
+            }
+            return copy;
+        }
+    }
+
+    /**
+     * Aborts copies into a workspace, which are reported as aborted when awaited.
+     *
+     * @param build the copier build.
+     * @param node the name of a node.
+     * @param workspace the path of a workspace in the node.
+     * @return handles of aborted copies.
+     */
+    @NonNull
+    static List<String> cancel(@NonNull Run<?, ?> build, @NonNull String node, @NonNull String workspace) {
+        List<String> handles = new ArrayList<>();
+        synchronized (LOCK) {
+            Map<String, PendingCopy> copies = pending.get(build.getExternalizableId());
+            if (copies != null) {
+                for (Map.Entry<String, PendingCopy> copy : copies.entrySet()) {
+                    if (copy.getValue().isIn(node, workspace) && copy.getValue().cancel(true)) {
+                        handles.add(copy.getKey());
+                    }
+                }
+            }
+        }
+        return handles;
+    }
+
+    /**
+     * Aborts all copies not awaited in a build.
+     *
+     * @param build the copier build.
+     */
+    static void cancelAll(@NonNull Run<?, ?> build) {
+        Map<String, PendingCopy> copies;
+        synchronized (LOCK) {
+            copies = pending.remove(build.getExternalizableId());
+        }
+        if (copies != null) {
+            for (PendingCopy copy : copies.values()) {
+                copy.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * A copy in progress, with the log written by it.
+     */
+    static final class PendingCopy extends FutureTask<Void> {
+        private final LogBuffer log;
+        private final String node;
+        private final String workspace;
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+        PendingCopy(@NonNull Callable<Void> copy, @NonNull LogBuffer log, @NonNull FilePath workspace) {
+            super(copy);
+            this.log = log;
+            Computer computer = workspace.toComputer();
+            // the built-in node has an empty name.
+            this.node = (computer != null) ? computer.getName() : null;
+            this.workspace = workspace.getRemote();
+        }
+
+        /**
+         * @param node the name of a node.
+         * @param workspace the path of a workspace in the node.
+         * @return whether this copy writes into the workspace.
+         */
+        boolean isIn(@NonNull String node, @NonNull String workspace) {
+            return node.equals(this.node) && (this.workspace.equals(workspace) || this.workspace.startsWith(workspace + "/")
+                    || this.workspace.startsWith(workspace + "\\"));
+        }
+
+        @Override
+        protected void done() {
+            completion.complete(null);
+        }
+
+        /**
+         * @param callback called once the copy completes, fails or is aborted, possibly right in this call.
+         */
+        void whenDone(@NonNull Runnable callback) {
+            completion.thenRun(callback);
+        }
+
+        /**
+         * Prints the log of the completed copy, and fails if the copy failed.
+         *
+         * @param handle the name the copy was started with.
+         * @param listener the listener of the step awaiting the copy.
+         */
+        void report(@NonNull String handle, @NonNull TaskListener listener) throws IOException, InterruptedException {
+            listener.getLogger().write(log.toByteArray());
+            try {
+                get();
+            } catch (CancellationException e) {
+                throw new AbortException(Messages.AwaitCopyArtifact_Aborted(handle));
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof InterruptedException) {
+                    throw (InterruptedException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    /**
+     * Holds the last {@link #MAX_LOG_SIZE} bytes written, not to exhaust the memory of the controller
+     * with copies logging a lot and not awaited soon.
+     */
+    static final class LogBuffer extends OutputStream {
+        private final byte[] buf;
+        private int pos;
+        private long written;
+
+        LogBuffer(int size) {
+            this.buf = new byte[Math.max(size, 1)];
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            buf[pos] = (byte) b;
+            pos = (pos + 1) % buf.length;
+            written++;
+        }
+
+        @Override
+        public synchronized void write(@NonNull byte[] b, int off, int len) {
+            while (len > 0) {
+                int n = Math.min(len, buf.length - pos);
+                System.arraycopy(b, off, buf, pos, n);
+                pos = (pos + n) % buf.length;
+                off += n;
+                len -= n;
+                written += n;
+            }
+        }
+
+        /**
+         * @return the log written so far, starting with a note of truncated bytes if any.
+         */
+        @NonNull
+        synchronized byte[] toByteArray() {
+            if (written <= buf.length) {
+                return Arrays.copyOf(buf, (int) written);
+            }
+            // skip the partial line.
+            int skip = 0;
+            while (skip < buf.length && buf[(pos + skip) % buf.length] != '\n') {
+                skip++;
+            }
+            skip = (skip < buf.length) ? skip + 1 : 0;
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] note = (Messages.AsyncCopyArtifact_LogTruncated(written - buf.length + skip) + "\n").getBytes(StandardCharsets.UTF_8);
+            out.write(note, 0, note.length);
+            for (int i = skip; i < buf.length; i++) {
+                out.write(buf[(pos + i) % buf.length]);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Aborts copies not awaited, as the workspace may be reused by other builds.
+     */
+    @Extension
+    public static class RunListenerImpl extends RunListener<Run<?, ?>> {
+        @Override
+        public void onCompleted(Run<?, ?> r, @NonNull TaskListener listener) {
+            cancelAll(r);
+        }
+    }
+
+    @Extension
+    public static final class DescriptorImpl extends BuildStepDescriptor<Builder> {
+        @Override
+        public boolean isApplicable(Class<? extends AbstractProject> clazz) {
+            return true;
+        }
+
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return Messages.AsyncCopyArtifact_DisplayName();
+        }
+
+        public FormValidation doCheckHandle(@QueryParameter String value) {
+            if (Util.fixEmptyAndTrim(value) == null) {
+                return FormValidation.error(Messages.AsyncCopyArtifact_HandleRequired());
+            }
+            return FormValidation.ok();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package hudson.plugins.copyartifact;
+
+import java.util.Set;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflow.steps.SynchronousNonBlockingStepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+/**
+ * Pipeline step to start copying artifacts in background, just like {@link AsyncCopyArtifact}.
+ * Returns the handle to await the copy with {@link AwaitCopyArtifactStep}.
+ * Separated from {@link AsyncCopyArtifact} as the workflow-step-api plugin might not be installed.
+ */
+public class AsyncCopyArtifactStep extends Step {
+    private final CopyArtifact copier;
+    private String handle;
+
+    /**
+     * @param copier the copy to perform.
+     */
+    @DataBoundConstructor
+    public AsyncCopyArtifactStep(CopyArtifact copier) {
+        this.copier = copier;
+    }
+
+    /**
+     * @return the copy to perform.
+     */
+    public CopyArtifact getCopier() {
+        return copier;
+    }
+
+    /**
+     * @param handle the name to await the copy with. Generated if not specified.
+     */
+    @DataBoundSetter
+    public void setHandle(String handle) {
+        this.handle = Util.fixEmptyAndTrim(handle);
+    }
+
+    /**
+     * @return the name to await the copy with.
+     */
+    public String getHandle() {
+        return handle;
+    }
+
+    @Override
+    public StepExecution start(StepContext context) throws Exception {
+        return new Execution(context, copier, handle);
+    }
+
+    private static final class Execution extends SynchronousNonBlockingStepExecution<String> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient CopyArtifact copier;
+        private final transient String handle;
+
+        Execution(@NonNull StepContext context, CopyArtifact copier, String handle) {
+            super(context);
+            this.copier = copier;
+            this.handle = handle;
+        }
+
+        @Override
+        protected String run() throws Exception {
+            return AsyncCopyArtifact.start(getContext().get(Run.class), getContext().get(FilePath.class),
+                    getContext().get(TaskListener.class), handle, copier);
+        }
+    }
+
+    @Extension(optional = true)
+    public static final class DescriptorImpl extends StepDescriptor {
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return Set.of(Run.class, FilePath.class, TaskListener.class);
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "copyArtifactsAsync";
+        }
+
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return Messages.AsyncCopyArtifactStep_DisplayName();
+        }
+    }
+}
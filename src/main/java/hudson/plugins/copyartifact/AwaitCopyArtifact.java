@@ -0,0 +1,105 @@
+package hudson.plugins.copyartifact;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import hudson.AbortException;
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Util;
+import hudson.model.AbstractProject;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.tasks.BuildStepDescriptor;
+import hudson.tasks.Builder;
+import hudson.util.FormValidation;
+import jenkins.tasks.SimpleBuildStep;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+/**
+ * Build step to wait for a copy started by {@link AsyncCopyArtifact}.
+ *
+ * Prints the log of the copy, and fails if the copy failed.
+ * Aborting the build while waiting aborts the copy.
+ * Pipeline uses {@link AwaitCopyArtifactStep} instead.
+ */
+public class AwaitCopyArtifact extends Builder implements SimpleBuildStep {
+    private final String handle;
+
+    /**
+     * @param handle the name the copy was started with.
+     */
+    @DataBoundConstructor
+    public AwaitCopyArtifact(String handle) {
+        this.handle = Util.fixEmptyAndTrim(handle);
+    }
+
+    /**
+     * @return the name the copy was started with.
+     */
+    public String getHandle() {
+        return handle;
+    }
+
+    @Override
+    public boolean requiresWorkspace() {
+        return false;
+    }
+
+    @Override
+    public void perform(@NonNull Run<?, ?> build, @NonNull EnvVars env, @NonNull TaskListener listener) throws InterruptedException, IOException {
+        await(build, listener);
+    }
+
+    @Override
+    public void perform(@NonNull Run<?, ?> build, @NonNull FilePath workspace, @NonNull EnvVars env, @NonNull Launcher launcher,
+            @NonNull TaskListener listener) throws InterruptedException, IOException {
+        await(build, listener);
+    }
+
+    private void await(@NonNull Run<?, ?> build, @NonNull TaskListener listener) throws InterruptedException, IOException {
+        if (handle == null) {
+            throw new AbortException(Messages.AsyncCopyArtifact_HandleRequired());
+        }
+        AsyncCopyArtifact.PendingCopy copy = AsyncCopyArtifact.remove(build, handle);
+        if (copy == null) {
+            throw new AbortException(Messages.AwaitCopyArtifact_UnknownHandle(handle));
+        }
+        try {
+            copy.get();
+        } catch (InterruptedException e) {
+            copy.cancel(true);
+            throw e;
+        } catch (CancellationException | ExecutionException e) {
+            // reported below.
+        }
+        copy.report(handle, listener);
+    }
+
+    @Extension
+    public static final class DescriptorImpl extends BuildStepDescriptor<Builder> {
+        @Override
+        public boolean isApplicable(Class<? extends AbstractProject> clazz) {
+            return true;
+        }
+
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return Messages.AwaitCopyArtifact_DisplayName();
+        }
+
+        public FormValidation doCheckHandle(@QueryParameter String value) {
+            if (Util.fixEmptyAndTrim(value) == null) {
+                return FormValidation.error(Messages.AsyncCopyArtifact_HandleRequired());
+            }
+            return FormValidation.ok();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package hudson.plugins.copyartifact;
+
+import java.util.Set;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import hudson.AbortException;
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Pipeline step to wait for a copy started by {@link AsyncCopyArtifactStep}, just like {@link AwaitCopyArtifact}.
+ * Holds no thread while waiting: the step completes when the copy completes.
+ * Separated from {@link AwaitCopyArtifact} as the workflow-step-api plugin might not be installed.
+ */
+public class AwaitCopyArtifactStep extends Step {
+    private final String handle;
+
+    /**
+     * @param handle the name the copy was started with.
+     */
+    @DataBoundConstructor
+    public AwaitCopyArtifactStep(String handle) {
+        this.handle = Util.fixEmptyAndTrim(handle);
+    }
+
+    /**
+     * @return the name the copy was started with.
+     */
+    public String getHandle() {
+        return handle;
+    }
+
+    @Override
+    public StepExecution start(StepContext context) throws Exception {
+        return new Execution(context, handle);
+    }
+
+    private static final class Execution extends StepExecution {
+        private static final long serialVersionUID = 1L;
+
+        private final String handle;
+        private transient AsyncCopyArtifact.PendingCopy copy;
+
+        Execution(@NonNull StepContext context, String handle) {
+            super(context);
+            this.handle = handle;
+        }
+
+        @Override
+        public boolean start() throws Exception {
+            if (handle == null) {
+                throw new AbortException(Messages.AsyncCopyArtifact_HandleRequired());
+            }
+            copy = AsyncCopyArtifact.remove(getContext().get(Run.class), handle);
+            if (copy == null) {
+                throw new AbortException(Messages.AwaitCopyArtifact_UnknownHandle(handle));
+            }
+            TaskListener listener = getContext().get(TaskListener.class);
+            AsyncCopyArtifact.PendingCopy c = copy;
+            c.whenDone(() -> {
+                try {
+                    c.report(handle, listener);
+                    getContext().onSuccess(null);
+                } catch (Throwable t) {
+                    getContext().onFailure(t);
+                }
+            });
+            return false;
+        }
+
+        @Override
+        public void stop(@NonNull Throwable cause) throws Exception {
+            if (copy != null) {
+                copy.cancel(true);
+            }
+            getContext().onFailure(cause);
+        }
+
+        @Override
+        public void onResume() {
+            // copies never survive restarts.
+            getContext().onFailure(new AbortException(Messages.AwaitCopyArtifact_Aborted(handle)));
+        }
+
+        @Override
+        public String getStatus() {
+            return "waiting for the copy of artifacts as " + handle;
+        }
+    }
+
+    @Extension(optional = true)
+    public static final class DescriptorImpl extends StepDescriptor {
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return Set.of(Run.class, TaskListener.class);
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "awaitCopyArtifacts";
+        }
+
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return Messages.AwaitCopyArtifactStep_DisplayName();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package hudson.plugins.copyartifact;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import hudson.model.Job;
+import hudson.model.Run;
+
+/**
+ * Lazy sequences of candidate builds for {@link BuildSelector#getCandidates(Job, hudson.EnvVars, Run)}.
+ *
+ * Builds are loaded only when iterated.
+ */
+final class BuildCandidates {
+    private BuildCandidates() {
+    }
+
+    /**
+     * @param start the first build.
+     * @param next returns the build following the specified one, or {@code null} if no more builds.
+     * @return builds from {@code start} following {@code next}.
+     */
+    @NonNull
+    static Iterable<Run<?,?>> walk(@CheckForNull Run<?,?> start, @NonNull UnaryOperator<Run<?,?>> next) {
+        return () -> new Iterator<Run<?,?>>() {
+            private Run<?,?> current = start;
+
+            @Override
+            public boolean hasNext() {
+                return current != null;
+            }
+
+            @Override
+            public Run<?,?> next() {
+                if (current == null) {
+                    throw new NoSuchElementException();
+                }
+                Run<?,?> run = current;
+                current = next.apply(run);
+                return run;
+            }
+        };
+    }
+
+    /**
+     * @param job a job.
+     * @return completed builds of the job, newest first.
+     */
+    @NonNull
+    static Iterable<Run<?,?>> completedBuilds(@NonNull Job<?,?> job) {
+        return walk(job.getLastCompletedBuild(), run -> run.getPreviousCompletedBuild());
+    }
+
+    /**
+     * @param job a job.
+     * @param numbers build numbers.
+     * @return builds of the numbers, skipping ones not exist.
+     */
+    @NonNull
+    static Iterable<Run<?,?>> byNumbers(@NonNull Job<?,?> job, @NonNull Iterable<Integer> numbers) {
+        return () -> filter(new Iterator<Run<?,?>>() {
+            private final Iterator<Integer> it = numbers.iterator();
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Run<?,?> next() {
+                return job.getBuildByNumber(it.next());
+            }
+        }, run -> run != null, 0);
+    }
+
+    /**
+     * @param candidates candidate builds.
+     * @param predicate builds to pass.
+     * @param limit how many candidates to test at most. {@code 0} or less for no limit.
+     * @return candidates passing the predicate.
+     */
+    @NonNull
+    static Iterator<Run<?,?>> filter(@NonNull Iterator<? extends Run<?,?>> candidates, @NonNull Predicate<? super Run<?,?>> predicate, int limit) {
+        return new Iterator<Run<?,?>>() {
+            private Run<?,?> found;
+            private int tested;
+
+            @Override
+            public boolean hasNext() {
+                while (found == null && candidates.hasNext() && (limit <= 0 || tested < limit)) {
+                    Run<?,?> run = candidates.next();
+                    tested++;
+                    if (predicate.test(run)) {
+                        found = run;
+                    }
+                }
+                return found != null;
+            }
+
+            @Override
+            public Run<?,?> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Run<?,?> run = found;
+                found = null;
+                return run;
+            }
+        };
+    }
+}
@@ -33,17 +33,58 @@ import hudson.model.Job;
 import hudson.model.Run;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jenkins.util.SystemProperties;
 import jenkins.util.VirtualFile;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 
 /**
  * Extension point for selecting the build to copy artifacts from.
  * In a subclass override just isSelectable() for a standard loop through completed
- * builds, starting with the most recent.  Otherwise override getBuild() to provide
+ * builds, starting with the most recent.  Override getCandidates() (and isCandidate())
+ * to loop through other builds, or in another order.  Otherwise override getBuild() to provide
  * different build selection logic.
  * @author Alan Harder
  */
 public abstract class BuildSelector extends AbstractDescribableImpl<BuildSelector> implements ExtensionPoint {
+    private static final Logger LOGGER = Logger.getLogger(BuildSelector.class.getName());
+
+    /**
+     * Selectors already warned for selecting a single build when multiple builds are requested, not to flood the log.
+     */
+    private static final Set<Class<?>> WARNED_SINGLE_BUILD_SELECTORS = ConcurrentHashMap.newKeySet();
+
+    /**
+     * How many builds to test concurrently in {@link #getBuild(Job, EnvVars, BuildFilter, Run)}.
+     * {@code 1} or less tests builds one by one (the default).
+     * Helps when {@link #isSelectable(Run, EnvVars)} or {@link BuildFilter#isSelectable(Run, EnvVars)}
+     * is expensive, like {@link ParametersBuildFilter}.
+     * Both must be thread safe when this is enabled.
+     */
+    @Restricted(NoExternalUse.class)
+    @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "for script console")
+    public static int PARALLEL_EVALUATION_WINDOW = SystemProperties.getInteger(BuildSelector.class.getName() + ".parallelEvaluationWindow", 1);
+
+    /**
+     * How many candidate builds to test at most in {@link #getBuild(Job, EnvVars, BuildFilter, Run)}.
+     * {@code 0} or less for no limit (the default).
+     * Bounds the time to select a build from a long history with a selective filter.
+     */
+    @Restricted(NoExternalUse.class)
+    @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "for script console")
+    public static int MAX_CANDIDATES = SystemProperties.getInteger(BuildSelector.class.getName() + ".maxCandidates", 0);
 
     /**
      * Find a build to copy artifacts from.
@@ -52,6 +93,7 @@ public abstract class BuildSelector extends AbstractDescribableImpl<BuildSelecto
      * @param filter Additional filter; returned result should return true (return null otherwise)
      * @param parent Build to which artifacts are being copied
      * @return Build to use, or null if no appropriate build was found
+     * @throws SelectionInterruptedException if interrupted while testing builds concurrently
      */
     public Run<?,?> getBuild(Job<?,?> job, EnvVars env, BuildFilter filter, Run<?,?> parent) {
         // Backward compatibility:
@@ -61,8 +103,21 @@ public abstract class BuildSelector extends AbstractDescribableImpl<BuildSelecto
             return (run != null && filter.isSelectable(run, env)) ? run : null;
         }
 
-        for (Run<?,?> run = job.getLastCompletedBuild(); run != null; run = run.getPreviousCompletedBuild()) {
-            if (isSelectable(run, env) && filter.isSelectable(run, env)) {
+        Iterator<Run<?,?>> candidates = getCandidateIterator(job, env, parent);
+        Predicate<Run<?,?>> predicate = getPredicate(env, filter);
+
+        if (PARALLEL_EVALUATION_WINDOW > 1) {
+            try {
+                return ParallelBuildEvaluator.findFirst(candidates, predicate, PARALLEL_EVALUATION_WINDOW);
+            } catch (InterruptedException e) {
+                // not to be treated as no build found.
+                throw new SelectionInterruptedException(e);
+            }
+        }
+
+        while (candidates.hasNext()) {
+            Run<?,?> run = candidates.next();
+            if (predicate.test(run)) {
                 return run;
             }
         }
@@ -70,6 +125,117 @@ public abstract class BuildSelector extends AbstractDescribableImpl<BuildSelecto
         return null;
     }
 
+    /**
+     * Find builds to copy artifacts from, walking the history only once.
+     * Selectors overriding {@link #getBuild(Job, EnvVars, BuildFilter, Run)}
+     * select at most the build returned from it (see {@link #isMultipleBuildsSelectable()}).
+     *
+     * @param job Source project
+     * @param env Environment for build that is copying artifacts
+     * @param filter Additional filter; returned builds should pass it
+     * @param parent Build to which artifacts are being copied
+     * @param count How many builds to select at most
+     * @return Builds to use in the order of preference, or an empty list if no appropriate build was found
+     */
+    @NonNull
+    public List<Run<?,?>> getBuilds(@NonNull Job<?,?> job, @NonNull EnvVars env, @NonNull BuildFilter filter, @CheckForNull Run<?,?> parent, int count) {
+        if (count <= 1 || !isMultipleBuildsSelectable()) {
+            if (count > 1 && WARNED_SINGLE_BUILD_SELECTORS.add(getClass())) {
+                LOGGER.log(Level.WARNING, "{0} selects a single build, and copies from {1} builds get at most one",
+                        new Object[] {getClass().getName(), count});
+            }
+            Run<?,?> run = getBuild(job, env, filter, parent);
+            return (run != null) ? Collections.singletonList(run) : Collections.emptyList();
+        }
+
+        Iterator<Run<?,?>> candidates = getCandidateIterator(job, env, parent);
+        Predicate<Run<?,?>> predicate = getPredicate(env, filter);
+        List<Run<?,?>> runs = new ArrayList<>();
+        while (runs.size() < count && candidates.hasNext()) {
+            Run<?,?> run = candidates.next();
+            if (predicate.test(run)) {
+                runs.add(run);
+            }
+        }
+        return runs;
+    }
+
+    @NonNull
+    private Iterator<Run<?,?>> getCandidateIterator(@NonNull Job<?,?> job, @NonNull EnvVars env, @CheckForNull Run<?,?> parent) {
+        SelectionExplanation explanation = SelectionExplanation.current();
+        Iterator<Run<?,?>> candidates = getCandidates(job, env, parent).iterator();
+        return BuildCandidates.filter(
+                (explanation != null) ? explanation.countLoads(job, candidates) : candidates,
+                (explanation != null)
+                        ? run -> explanation.testCandidate(this, run, env)
+                        : run -> isCandidate(run, env),
+                MAX_CANDIDATES
+        );
+    }
+
+    @NonNull
+    private Predicate<Run<?,?>> getPredicate(@NonNull EnvVars env, @NonNull BuildFilter filter) {
+        SelectionExplanation explanation = SelectionExplanation.current();
+        return (explanation != null)
+                ? run -> explanation.testSelectable(this, run, env) && filter.isSelectable(run, env)
+                : run -> isSelectable(run, env) && filter.isSelectable(run, env);
+    }
+
+    /**
+     * Builds to test with {@link #isCandidate(Run, EnvVars)} and {@link #isSelectable(Run, EnvVars)}
+     * in {@link #getBuild(Job, EnvVars, BuildFilter, Run)}, in the order of preference.
+     * The first build passing them (and the {@link BuildFilter}) is selected.
+     *
+     * Should be lazy, as usually only first few builds are tested.
+     * Defaults to completed builds, starting with the most recent.
+     *
+     * @param job Source project
+     * @param env Environment for build that is copying artifacts
+     * @param parent Build to which artifacts are being copied
+     * @return Builds to test
+     */
+    @NonNull
+    protected Iterable<Run<?,?>> getCandidates(@NonNull Job<?,?> job, @NonNull EnvVars env, @CheckForNull Run<?,?> parent) {
+        return BuildCandidates.completedBuilds(job);
+    }
+
+    /**
+     * Cheap test applied to candidates before {@link #isSelectable(Run, EnvVars)}.
+     * Always called in the thread selecting the build,
+     * while {@link #isSelectable(Run, EnvVars)} may be called concurrently for multiple builds.
+     *
+     * @param run Build to check
+     * @param env Environment for build that is copying artifacts
+     * @return True to test this build with {@link #isSelectable(Run, EnvVars)}
+     */
+    protected boolean isCandidate(@NonNull Run<?,?> run, @NonNull EnvVars env) {
+        return true;
+    }
+
+    /**
+     * Whether {@link #getBuilds(Job, EnvVars, BuildFilter, Run, int)} can select more than one build.
+     * Selectors overriding {@link #getBuild(Job, EnvVars, BuildFilter, Run)} select at most the build returned from it.
+     *
+     * @return {@code true} if this selector can select multiple builds
+     */
+    public boolean isMultipleBuildsSelectable() {
+        return !Util.isOverridden(BuildSelector.class, getClass(), "getBuild", Job.class, EnvVars.class, BuildFilter.class, Run.class)
+                && !Util.isOverridden(BuildSelector.class, getClass(), "getBuild", Job.class, EnvVars.class, BuildFilter.class);
+    }
+
+    /**
+     * Whether this selector can select a build without the copier build,
+     * that is, when the copier build is queued ("Select the build when queued" option).
+     * Selectors looking at the copier build (e.g. its upstream builds or its workspace)
+     * must return {@code false}, as {@code parent} is {@code null} at that time.
+     * Defaults to {@code false}.
+     *
+     * @return {@code true} if this selector can select a build at queue time
+     */
+    public boolean isSelectableAtQueueTime() {
+        return false;
+    }
+
     /**
      * Find a build to copy artifacts from. Older and deprecated version of API.
      * @param job Source project
@@ -23,12 +23,16 @@
  */
 package hudson.plugins.copyartifact;
 
+import java.io.StringReader;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 import com.thoughtworks.xstream.XStreamException;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import jenkins.model.Jenkins;
 import hudson.DescriptorExtensionList;
 import hudson.Extension;
@@ -39,8 +43,12 @@ import hudson.model.ParameterValue;
 import hudson.model.SimpleParameterDefinition;
 import hudson.model.StringParameterValue;
 import hudson.util.XStream2;
+import jenkins.util.SystemProperties;
+import jenkins.util.xstream.XStreamDOM;
 import net.sf.json.JSONObject;
 import org.jenkinsci.Symbol;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.StaplerRequest2;
 
@@ -56,6 +64,15 @@ public class BuildSelectorParameter extends SimpleParameterDefinition {
 
     private static final Logger LOGGER = Logger.getLogger(BuildSelectorParameter.class.getName());
 
+    /**
+     * Pass selectors in the compact format like {@code lastSuccessful(stable:true)}
+     * instead of XML in parameter values.
+     * Off by default as tools may read the value directly.
+     */
+    @Restricted(NoExternalUse.class)
+    @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "for script console")
+    public static boolean USE_COMPACT_VALUE = SystemProperties.getBoolean(BuildSelectorParameter.class.getName() + ".useCompactValue");
+
     @DataBoundConstructor
     public BuildSelectorParameter(String name, BuildSelector defaultSelector, String description) {
         super(name, description);
@@ -94,7 +111,7 @@ public class BuildSelectorParameter extends SimpleParameterDefinition {
 
     @Override
     public ParameterValue createValue(String value) {
-        getSelectorFromXml(value); // validate the input
+        getCachedSelectorFromXml(value); // validate the input
         return new StringParameterValue(getName(), value, getDescription());
     }
 
@@ -105,7 +122,25 @@ public class BuildSelectorParameter extends SimpleParameterDefinition {
 
     private StringParameterValue toStringValue(BuildSelector selector) {
         return new StringParameterValue(
-                getName(), toXML(selector), getDescription());
+                getName(), toValueString(selector), getDescription());
+    }
+
+    /**
+     * Encode a selector to pass as a parameter value.
+     * Uses XML, or the compact format like {@code lastSuccessful(stable:true)}
+     * when {@link #USE_COMPACT_VALUE} is set and the selector can be expressed in it.
+     *
+     * @param selector the selector to encode.
+     * @return the encoded selector.
+     */
+    private static String toValueString(BuildSelector selector) {
+        if (USE_COMPACT_VALUE && selector != null) {
+            String compact = CompactBuildSelectorFormat.toCompact(selector);
+            if (compact != null) {
+                return compact;
+            }
+        }
+        return toXML(selector);
     }
 
     private static String toXML(BuildSelector selector) {
@@ -114,15 +149,78 @@ public class BuildSelectorParameter extends SimpleParameterDefinition {
 
     /**
      * Convert xml fragment into a BuildSelector object.
+     * Also accepts the compact format like {@code lastSuccessful(stable:true)}.
      * @param xml XML fragment to parse.
      * @return the BuildSelector represented by the input XML.
      * @throws XStreamException if the object cannot be deserialized
      * @throws ClassCastException if input is invalid
+     * @throws IllegalArgumentException if input in the compact format is invalid
      */
     public static BuildSelector getSelectorFromXml(String xml) {
+        if (CompactBuildSelectorFormat.isCompact(xml)) {
+            return CompactBuildSelectorFormat.fromCompact(xml);
+        }
         return (BuildSelector)XSTREAM.fromXML(xml);
     }
 
+    /**
+     * Convert xml fragment into a BuildSelector object,
+     * reusing the XML tree parsed for the same fragment before.
+     *
+     * Each call returns a new object, as selectors are mutable.
+     *
+     * @param xml XML fragment to parse.
+     * @return the BuildSelector represented by the input XML.
+     * @throws XStreamException if the object cannot be deserialized
+     * @throws ClassCastException if input is invalid
+     * @throws IllegalArgumentException if input in the compact format is invalid
+     */
+    static BuildSelector getCachedSelectorFromXml(String xml) {
+        if (CompactBuildSelectorFormat.isCompact(xml)) {
+            // cheap enough to parse each time.
+            return CompactBuildSelectorFormat.fromCompact(xml);
+        }
+        XStreamDOM dom;
+        synchronized (SELECTOR_CACHE) {
+            dom = SELECTOR_CACHE.get(xml);
+        }
+        if (dom == null) {
+            // parse outside the lock. The same fragment may be parsed twice concurrently, which is harmless.
+            dom = XStreamDOM.from(XStream2.getDefaultDriver().createReader(new StringReader(xml)));
+            synchronized (SELECTOR_CACHE) {
+                SELECTOR_CACHE.put(xml, dom);
+            }
+        }
+        return (BuildSelector)dom.unmarshal(XSTREAM);
+    }
+
+    /**
+     * Parsed XML trees of selectors by their XML fragments, least recently used first.
+     * Trees are never modified, and unmarshalled to a new selector for each use.
+     */
+    private static final Map<String, XStreamDOM> SELECTOR_CACHE = new LinkedHashMap<String, XStreamDOM>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, XStreamDOM> eldest) {
+            return size() > SELECTOR_CACHE_SIZE;
+        }
+    };
+
+    /**
+     * @return the number of cached XML trees.
+     */
+    static int getSelectorCacheSize() {
+        synchronized (SELECTOR_CACHE) {
+            return SELECTOR_CACHE.size();
+        }
+    }
+
+    /**
+     * Maximum number of parsed selectors to keep.
+     */
+    private static final int SELECTOR_CACHE_SIZE = 100;
+
     @Extension @Symbol("buildSelector")
     public static class DescriptorImpl extends ParameterDescriptor {
         @Override
@@ -0,0 +1,274 @@
+package hudson.plugins.copyartifact;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import hudson.model.Descriptor;
+import org.jenkinsci.plugins.structs.SymbolLookup;
+import org.jenkinsci.plugins.structs.describable.DescribableModel;
+import org.jenkinsci.plugins.structs.describable.UninstantiatedDescribable;
+
+/**
+ * Encodes {@link BuildSelector}s with their {@link org.jenkinsci.Symbol}s
+ * in the same way as Pipeline scripts, e.g. {@code lastSuccessful(stable:true)}.
+ *
+ * Much shorter and cheaper to parse than XML used by {@link BuildSelectorParameter} before.
+ * Values are written as:
+ * <ul>
+ *   <li>strings and enums: {@code 'value'} ({@code \} and {@code '} are escaped with {@code \})</li>
+ *   <li>booleans and numbers: {@code true}, {@code 10}</li>
+ *   <li>nested objects: {@code symbol(name:value, ...)}</li>
+ *   <li>lists: {@code [value, ...]}</li>
+ * </ul>
+ */
+final class CompactBuildSelectorFormat {
+    private static final Pattern COMPACT_PATTERN = Pattern.compile("\\s*[A-Za-z_][A-Za-z0-9_]*\\s*\\(.*\\)\\s*", Pattern.DOTALL);
+
+    private CompactBuildSelectorFormat() {
+    }
+
+    /**
+     * @param value a string representing a build selector.
+     * @return whether the value looks like the compact format (not an XML).
+     */
+    static boolean isCompact(@CheckForNull String value) {
+        return value != null && COMPACT_PATTERN.matcher(value).matches();
+    }
+
+    /**
+     * @param selector a selector to encode.
+     * @return the encoded selector, or {@code null} if the selector (or a value in it) has no symbol
+     *     or holds values not supported in this format.
+     */
+    @CheckForNull
+    static String toCompact(@NonNull BuildSelector selector) {
+        UninstantiatedDescribable ud;
+        try {
+            ud = DescribableModel.uninstantiate2_(selector);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        return writeDescribable(sb, ud) ? sb.toString() : null;
+    }
+
+    private static boolean writeDescribable(StringBuilder sb, UninstantiatedDescribable ud) {
+        if (ud.getSymbol() == null) {
+            return false;
+        }
+        sb.append(ud.getSymbol()).append('(');
+        boolean first = true;
+        for (Map.Entry<String, ?> arg : ud.getArguments().entrySet()) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append(arg.getKey()).append(':');
+            if (!writeValue(sb, arg.getValue())) {
+                return false;
+            }
+        }
+        sb.append(')');
+        return true;
+    }
+
+    private static boolean writeValue(StringBuilder sb, Object value) {
+        if (value instanceof String) {
+            sb.append('\'');
+            String s = (String) value;
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '\\' || c == '\'') {
+                    sb.append('\\');
+                }
+                sb.append(c);
+            }
+            sb.append('\'');
+            return true;
+        }
+        if (value instanceof Enum) {
+            return writeValue(sb, ((Enum<?>) value).name());
+        }
+        if (value instanceof Boolean || value instanceof Integer || value instanceof Long) {
+            sb.append(value);
+            return true;
+        }
+        if (value instanceof UninstantiatedDescribable) {
+            return writeDescribable(sb, (UninstantiatedDescribable) value);
+        }
+        if (value instanceof Collection) {
+            sb.append('[');
+            boolean first = true;
+            for (Object item : (Collection<?>) value) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                if (!writeValue(sb, item)) {
+                    return false;
+                }
+            }
+            sb.append(']');
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param value an encoded selector.
+     * @return the decoded selector.
+     * @throws IllegalArgumentException if the value is malformed or refers to an unknown symbol.
+     */
+    @NonNull
+    static BuildSelector fromCompact(@NonNull String value) {
+        Parser parser = new Parser(value);
+        UninstantiatedDescribable ud = parser.parseDescribable();
+        parser.skipSpaces();
+        if (!parser.isEnd()) {
+            throw parser.error("unexpected trailing characters");
+        }
+        Descriptor<?> d = SymbolLookup.get().findDescriptor(BuildSelector.class, ud.getSymbol());
+        if (d == null) {
+            throw new IllegalArgumentException(String.format("Unknown build selector: %s", ud.getSymbol()));
+        }
+        Object selector = DescribableModel.of(d.clazz).instantiate(ud.getArguments());
+        if (!(selector instanceof BuildSelector)) {
+            throw new IllegalArgumentException(String.format("Not a build selector: %s", ud.getSymbol()));
+        }
+        return (BuildSelector) selector;
+    }
+
+    private static class Parser {
+        private final String text;
+        private int pos;
+
+        Parser(String text) {
+            this.text = text;
+            this.pos = 0;
+        }
+
+        boolean isEnd() {
+            return pos >= text.length();
+        }
+
+        void skipSpaces() {
+            while (!isEnd() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(String.format("Malformed build selector at %d (%s): %s", pos, message, text));
+        }
+
+        private void expect(char c) {
+            skipSpaces();
+            if (isEnd() || text.charAt(pos) != c) {
+                throw error(String.format("'%s' expected", c));
+            }
+            pos++;
+        }
+
+        private boolean consume(char c) {
+            skipSpaces();
+            if (!isEnd() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private String parseName() {
+            skipSpaces();
+            int start = pos;
+            while (!isEnd() && (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_')) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error("name expected");
+            }
+            return text.substring(start, pos);
+        }
+
+        UninstantiatedDescribable parseDescribable() {
+            String symbol = parseName();
+            expect('(');
+            Map<String, Object> arguments = new LinkedHashMap<>();
+            if (!consume(')')) {
+                do {
+                    String name = parseName();
+                    expect(':');
+                    arguments.put(name, parseValue());
+                } while (consume(','));
+                expect(')');
+            }
+            return new UninstantiatedDescribable(symbol, null, arguments);
+        }
+
+        private Object parseValue() {
+            skipSpaces();
+            if (isEnd()) {
+                throw error("value expected");
+            }
+            char c = text.charAt(pos);
+            if (c == '\'') {
+                return parseString();
+            }
+            if (c == '[') {
+                pos++;
+                List<Object> values = new ArrayList<>();
+                if (!consume(']')) {
+                    do {
+                        values.add(parseValue());
+                    } while (consume(','));
+                    expect(']');
+                }
+                return values;
+            }
+            if (c == '-' || Character.isDigit(c)) {
+                int start = pos++;
+                while (!isEnd() && Character.isDigit(text.charAt(pos))) {
+                    pos++;
+                }
+                try {
+                    return Integer.valueOf(text.substring(start, pos));
+                } catch (NumberFormatException e) {
+                    return Long.valueOf(text.substring(start, pos));
+                }
+            }
+            int start = pos;
+            String name = parseName();
+            if ("true".equals(name) || "false".equals(name)) {
+                return Boolean.valueOf(name);
+            }
+            pos = start;
+            return parseDescribable();
+        }
+
+        private String parseString() {
+            StringBuilder sb = new StringBuilder();
+            pos++; // opening quote
+            while (!isEnd()) {
+                char c = text.charAt(pos++);
+                if (c == '\'') {
+                    return sb.toString();
+                }
+                if (c == '\\') {
+                    if (isEnd()) {
+                        break;
+                    }
+                    c = text.charAt(pos++);
+                }
+                sb.append(c);
+            }
+            throw error("unterminated string");
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package hudson.plugins.copyartifact;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import hudson.EnvVars;
+import hudson.Util;
+import hudson.model.Job;
+import hudson.model.Run;
+
+/**
+ * Base for selectors combining other selectors.
+ *
+ * Selectors only overriding {@link #isSelectable(Run, EnvVars)} and {@link #isCandidate(Run, EnvVars)} ("predicates")
+ * are tested together in a single pass through the build history,
+ * cheaper ones (e.g. testing the build result) first.
+ * Other selectors ("lookups", e.g. {@link SpecificBuildSelector}) are resolved with their own
+ * {@link #getBuild(Job, EnvVars, BuildFilter, Run)}, as well as ones with their own
+ * {@link #getCandidates(Job, EnvVars, Run)}.
+ * {@link BuildFilter} is tested last, as it's usually the most expensive one.
+ */
+public abstract class CompositeBuildSelector extends BuildSelector {
+    /**
+     * Tests only the build itself. e.g. the build result, "keep forever".
+     */
+    static final int COST_BUILD = 0;
+    /**
+     * Tests records of the build or an index. e.g. artifacts, fingerprints.
+     */
+    static final int COST_RECORDS = 1;
+    /**
+     * Tests the environment, parameters or other builds.
+     */
+    static final int COST_EXPENSIVE = 2;
+
+    private final List<BuildSelector> selectors;
+
+    /**
+     * @param selectors selectors to combine.
+     */
+    protected CompositeBuildSelector(@CheckForNull List<BuildSelector> selectors) {
+        this.selectors = (selectors != null) ? new ArrayList<>(selectors) : Collections.emptyList();
+    }
+
+    /**
+     * @return selectors to combine.
+     */
+    @NonNull
+    public List<BuildSelector> getSelectors() {
+        return Collections.unmodifiableList(selectors);
+    }
+
+    /**
+     * @return whether all combined selectors can select builds at queue time.
+     */
+    @Override
+    public boolean isSelectableAtQueueTime() {
+        for (BuildSelector selector : getSelectors()) {
+            if (!selector.isSelectableAtQueueTime()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether this selector can be tested only with {@link #isSelectable(Run, EnvVars)}.
+     */
+    boolean isPredicate() {
+        for (BuildSelector selector : getSelectors()) {
+            if (!isPredicate(selector)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the cost of this selector to test a build.
+     */
+    int getCost() {
+        int cost = COST_BUILD;
+        for (BuildSelector selector : getSelectors()) {
+            cost = Math.max(cost, getCost(selector));
+        }
+        return cost;
+    }
+
+    /**
+     * @param selector a selector.
+     * @return whether the selector can be tested only with {@link #isSelectable(Run, EnvVars)}.
+     */
+    static boolean isPredicate(@NonNull BuildSelector selector) {
+        if (selector instanceof CompositeBuildSelector) {
+            return ((CompositeBuildSelector) selector).isPredicate();
+        }
+        return !Util.isOverridden(BuildSelector.class, selector.getClass(), "getBuild",
+                        Job.class, EnvVars.class, BuildFilter.class, Run.class)
+                && !Util.isOverridden(BuildSelector.class, selector.getClass(), "getCandidates",
+                        Job.class, EnvVars.class, Run.class);
+    }
+
+    /**
+     * Tests a build with a predicate.
+     *
+     * @param selector a selector to test with.
+     * @param run the build to test.
+     * @param env the environment to test with.
+     * @return whether the build passes both {@link #isCandidate(Run, EnvVars)} and {@link #isSelectable(Run, EnvVars)}.
+     */
+    static boolean test(@NonNull BuildSelector selector, @NonNull Run<?,?> run, @NonNull EnvVars env) {
+        return selector.isCandidate(run, env) && selector.isSelectable(run, env);
+    }
+
+    /**
+     * @param selector a selector.
+     * @return the estimated cost of the selector to test a build. Unknown selectors are considered expensive.
+     */
+    static int getCost(@NonNull BuildSelector selector) {
+        if (selector instanceof CompositeBuildSelector) {
+            return ((CompositeBuildSelector) selector).getCost();
+        }
+        if (selector instanceof StatusBuildSelector
+                || selector instanceof LastCompletedBuildSelector
+                || selector instanceof SavedBuildSelector
+                || selector instanceof SpecificBuildSelector
+                || selector instanceof PermalinkBuildSelector) {
+            return COST_BUILD;
+        }
+        if (selector instanceof LastBuildWithArtifactSelector
+                || selector instanceof FingerprintBuildSelector
+                || selector instanceof TimestampBuildSelector
+                || selector instanceof ScmRevisionBuildSelector) {
+            return COST_RECORDS;
+        }
+        return COST_EXPENSIVE;
+    }
+
+    /**
+     * @return combined selectors, cheaper ones first.
+     */
+    @NonNull
+    protected List<BuildSelector> getSelectorsByCost() {
+        List<BuildSelector> sorted = new ArrayList<>(getSelectors());
+        sorted.sort(Comparator.comparingInt(CompositeBuildSelector::getCost));
+        return sorted;
+    }
+}
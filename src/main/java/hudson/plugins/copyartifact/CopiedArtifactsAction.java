@@ -0,0 +1,354 @@
+package hudson.plugins.copyartifact;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+import hudson.model.Action;
+import hudson.model.Run;
+import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Records artifacts copied into the build: the source build, copied entries with their sizes and digests,
+ * bytes transferred and time spent in each phase, for each build copied from.
+ * Also records the outcome of each source of {@link MultiCopyArtifact}.
+ * Available via the remote API of the build, not to read copied files again to learn what arrived.
+ * Only the first {@link #MAX_ENTRIES} entries of each copy are recorded, not to bloat {@code build.xml},
+ * while counts and sizes cover all entries.
+ */
+@ExportedBean
+public class CopiedArtifactsAction implements Action {
+    /**
+     * Maximum number of entries recorded for each copy.
+     */
+    @Restricted(NoExternalUse.class)
+    @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "for script console")
+    public static int MAX_ENTRIES = SystemProperties.getInteger(CopiedArtifactsAction.class.getName() + ".maxEntries", 100);
+
+    /**
+     * Guards adding actions to builds, not to lock builds which Jenkins core also locks.
+     */
+    private static final Object LOCK = new Object();
+
+    private final List<CopyResult> results = new ArrayList<>();
+
+    /**
+     * {@code null} unless {@link MultiCopyArtifact} copied into the build.
+     */
+    private List<SourceResult> sources;
+
+    /**
+     * Artifacts copied from a build.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static class CopyResult {
+        private final String projectName;
+        private final int buildNumber;
+        private final String target;
+        private final List<CopiedEntry> entries = new ArrayList<>();
+        private int entryCount;
+        private long totalSize;
+        private long bytesTransferred;
+        private long listingMillis;
+        private long transferMillis;
+        private long fingerprintingMillis;
+
+        CopyResult(@NonNull Run<?, ?> src, @NonNull String target) {
+            this.projectName = src.getParent().getFullName();
+            this.buildNumber = src.getNumber();
+            this.target = target;
+        }
+
+        /**
+         * @return the full name of the project copied from.
+         */
+        @Exported
+        public String getProjectName() {
+            return projectName;
+        }
+
+        /**
+         * @return the number of the build copied from.
+         */
+        @Exported
+        public int getBuildNumber() {
+            return buildNumber;
+        }
+
+        /**
+         * @return the directory copied to, in the node copied to.
+         */
+        @Exported
+        public String getTarget() {
+            return target;
+        }
+
+        /**
+         * @return copied entries, in the order copied. Only the first {@link #MAX_ENTRIES} entries are recorded.
+         */
+        @Exported
+        public synchronized List<CopiedEntry> getEntries() {
+            return Collections.unmodifiableList(new ArrayList<>(entries));
+        }
+
+        /**
+         * @return the number of all copied entries, including ones not recorded.
+         */
+        @Exported
+        public synchronized int getEntryCount() {
+            // not recorded before entries were limited.
+            return Math.max(entryCount, entries.size());
+        }
+
+        /**
+         * @return the total size in bytes of all copied entries, including ones not recorded.
+         */
+        @Exported
+        public synchronized long getTotalSize() {
+            return totalSize;
+        }
+
+        /**
+         * @return bytes transferred from the artifact storage.
+         *     Files already in the target or staged in the node are not counted.
+         */
+        @Exported
+        public synchronized long getBytesTransferred() {
+            return bytesTransferred;
+        }
+
+        /**
+         * @return milliseconds spent listing artifacts to copy.
+         */
+        @Exported
+        public long getListingMillis() {
+            return listingMillis;
+        }
+
+        /**
+         * @return milliseconds spent copying files.
+         */
+        @Exported
+        public long getTransferMillis() {
+            return transferMillis;
+        }
+
+        /**
+         * @return milliseconds spent recording fingerprints.
+         */
+        @Exported
+        public long getFingerprintingMillis() {
+            return fingerprintingMillis;
+        }
+
+        synchronized void add(@NonNull String path, long size, @CheckForNull String digest, @CheckForNull String sha256, boolean transferred) {
+            if (entries.size() < MAX_ENTRIES) {
+                entries.add(new CopiedEntry(path, size, digest, sha256));
+            }
+            entryCount++;
+            totalSize += size;
+            if (transferred) {
+                bytesTransferred += size;
+            }
+        }
+
+        void setListingMillis(long listingMillis) {
+            this.listingMillis = listingMillis;
+        }
+
+        void setTransferMillis(long transferMillis) {
+            this.transferMillis = transferMillis;
+        }
+
+        void setFingerprintingMillis(long fingerprintingMillis) {
+            this.fingerprintingMillis = fingerprintingMillis;
+        }
+    }
+
+    /**
+     * Outcome of a source of {@link MultiCopyArtifact}.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static class SourceResult {
+        private final String projectName;
+        private final String failure;
+        private final List<CopyResult> results;
+
+        SourceResult(@NonNull String projectName, @CheckForNull String failure, @NonNull List<CopyResult> results) {
+            this.projectName = projectName;
+            this.failure = failure;
+            this.results = new ArrayList<>(results);
+        }
+
+        /**
+         * @return the name of the project copied from, as configured or matched with wildcards.
+         */
+        @Exported
+        public String getProjectName() {
+            return projectName;
+        }
+
+        /**
+         * @return whether the source was copied.
+         */
+        @Exported
+        public boolean isSucceeded() {
+            return failure == null;
+        }
+
+        /**
+         * @return the reason why the source failed, or {@code null} if succeeded.
+         */
+        @Exported
+        @CheckForNull
+        public String getFailure() {
+            return failure;
+        }
+
+        /**
+         * @return copies performed for the source, including ones from child builds.
+         */
+        @Exported
+        @NonNull
+        public List<CopyResult> getResults() {
+            return Collections.unmodifiableList(results);
+        }
+    }
+
+    /**
+     * A copied file.
+     */
+    @ExportedBean(defaultVisibility = 3)
+    public static class CopiedEntry {
+        private final String path;
+        private final long size;
+        private final String digest;
+        private final String sha256;
+
+        CopiedEntry(String path, long size, String digest, String sha256) {
+            this.path = path;
+            this.size = size;
+            this.digest = digest;
+            this.sha256 = sha256;
+        }
+
+        /**
+         * @return the path relative to the artifacts of the build copied from.
+         */
+        @Exported
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * @return the size in bytes.
+         */
+        @Exported
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * @return the MD5 digest computed from the copied bytes, or {@code null} for symbolic links.
+         */
+        @Exported
+        @CheckForNull
+        public String getDigest() {
+            return digest;
+        }
+
+        /**
+         * @return the SHA-256 digest computed from the copied bytes,
+         *     or {@code null} for symbolic links and entries recorded before SHA-256 digests were computed.
+         */
+        @Exported
+        @CheckForNull
+        public String getSha256() {
+            return sha256;
+        }
+    }
+
+    /**
+     * Record a copy to the build.
+     *
+     * @param build the copier build
+     * @param result the copy
+     */
+    static void add(@NonNull Run<?, ?> build, @NonNull CopyResult result) {
+        get(build).add(result);
+    }
+
+    /**
+     * Record the outcome of a source of {@link MultiCopyArtifact} to the build.
+     *
+     * @param build the copier build
+     * @param source the outcome
+     */
+    static void addSource(@NonNull Run<?, ?> build, @NonNull SourceResult source) {
+        CopiedArtifactsAction action = get(build);
+        synchronized (action) {
+            if (action.sources == null) {
+                action.sources = new ArrayList<>();
+            }
+            action.sources.add(source);
+        }
+    }
+
+    @NonNull
+    private static CopiedArtifactsAction get(@NonNull Run<?, ?> build) {
+        // child builds and sources of MultiCopyArtifact are copied concurrently.
+        synchronized (LOCK) {
+            CopiedArtifactsAction action = build.getAction(CopiedArtifactsAction.class);
+            if (action == null) {
+                action = new CopiedArtifactsAction();
+                build.addAction(action);
+            }
+            return action;
+        }
+    }
+
+    synchronized void add(@NonNull CopyResult result) {
+        results.add(result);
+    }
+
+    /**
+     * @return copies, in the order completed.
+     */
+    @Exported
+    @NonNull
+    public synchronized List<CopyResult> getResults() {
+        return new ArrayList<>(results);
+    }
+
+    /**
+     * @return outcomes of sources of {@link MultiCopyArtifact}, in the order configured.
+     */
+    @Exported
+    @NonNull
+    public synchronized List<SourceResult> getSources() {
+        return (sources != null) ? new ArrayList<>(sources) : Collections.emptyList();
+    }
+
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return null;
+    }
+
+    @Override
+    public String getUrlName() {
+        return null;
+    }
+}
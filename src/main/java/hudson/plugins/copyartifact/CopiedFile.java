@@ -0,0 +1,92 @@
+package hudson.plugins.copyartifact;
+
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import hudson.Util;
+
+/**
+ * The size and the digests of a copied file.
+ */
+final class CopiedFile implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final long size;
+    private final String digest;
+    private final String sha256;
+
+    CopiedFile(long size, @NonNull String digest, @NonNull String sha256) {
+        this.size = size;
+        this.digest = digest;
+        this.sha256 = sha256;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the MD5 digest computed from the copied bytes.
+     */
+    @NonNull
+    String getDigest() {
+        return digest;
+    }
+
+    /**
+     * @return the SHA-256 digest computed from the copied bytes.
+     */
+    @NonNull
+    String getSha256() {
+        return sha256;
+    }
+
+    /**
+     * Computes the MD5 and the SHA-256 digests of bytes written through a stream, in the same pass as the copy.
+     * Used also in agents.
+     */
+    static final class Digests {
+        private final MessageDigest md5 = newDigest("MD5");
+        private final MessageDigest sha256 = newDigest("SHA-256");
+
+        private static MessageDigest newDigest(String algorithm) {
+            try {
+                return MessageDigest.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException x) {
+                throw new AssertionError(x);
+            }
+        }
+
+        /**
+         * @param os the stream to write to. Restarts the digests.
+         * @return the stream to write bytes through.
+         */
+        @NonNull
+        OutputStream wrap(@NonNull OutputStream os) {
+            md5.reset();
+            sha256.reset();
+            return new DigestOutputStream(new DigestOutputStream(os, md5), sha256);
+        }
+
+        /**
+         * @param size the number of bytes written.
+         * @return the size and the digests of the bytes written.
+         */
+        @NonNull
+        CopiedFile toCopiedFile(long size) {
+            return new CopiedFile(size, Util.toHexString(md5.digest()), Util.toHexString(sha256.digest()));
+        }
+
+        /**
+         * @return the MD5 digest of the bytes written, for callers not counting bytes.
+         */
+        @NonNull
+        String getDigest() {
+            return Util.toHexString(md5.digest());
+        }
+    }
+}
@@ -32,6 +32,7 @@ import hudson.FilePath;
 import hudson.Functions;
 import hudson.Launcher;
 import hudson.Util;
+import hudson.XmlFile;
 import hudson.console.HyperlinkNote;
 import hudson.diagnosis.OldDataMonitor;
 import hudson.init.InitMilestone;
@@ -43,23 +44,26 @@ import hudson.maven.MavenModuleSet;
 import hudson.maven.MavenModuleSetBuild;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
+import hudson.model.Computer;
 import hudson.model.Descriptor;
-import hudson.model.EnvironmentContributingAction;
 import hudson.model.Fingerprint;
 import hudson.model.FingerprintMap;
 import hudson.model.Item;
 import hudson.model.ItemGroup;
 import hudson.model.Items;
 import hudson.model.Job;
-import hudson.model.ParameterValue;
-import hudson.model.ParametersAction;
+import hudson.model.Node;
 import hudson.model.Project;
 import hudson.model.Run;
+import hudson.model.Saveable;
 import hudson.model.TaskListener;
 import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import hudson.model.listeners.SaveableListener;
 import hudson.plugins.copyartifact.monitor.LegacyJobConfigMigrationMonitor;
 import hudson.remoting.VirtualChannel;
 import hudson.security.ACL;
+import hudson.security.ACLContext;
 import hudson.security.SecurityRealm;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.Builder;
@@ -70,6 +74,7 @@ import hudson.util.VariableResolver;
 import hudson.util.XStream2;
 import io.jenkins.plugins.httpclient.RobustHTTPClient;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 
 import java.io.IOException;
@@ -77,16 +82,22 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.net.URL;
-import java.security.DigestOutputStream;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.function.UnaryOperator;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
@@ -99,6 +110,7 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.apache.commons.lang3.StringUtils;
 import org.jenkinsci.Symbol;
+import net.sf.json.JSONObject;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
@@ -107,9 +119,12 @@ import org.kohsuke.stapler.Stapler;
 import org.kohsuke.stapler.StaplerRequest2;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
-import edu.umd.cs.findbugs.annotations.Nullable;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import jenkins.MasterToSlaveFileCallable;
+import jenkins.util.SystemProperties;
 import jenkins.util.VirtualFile;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.apache.commons.io.IOUtils;
 import org.apache.http.client.methods.HttpGet;
 
@@ -123,23 +138,46 @@ public class CopyArtifact extends Builder implements SimpleBuildStep {
     private static boolean upgradeNeeded = false;
     private static Logger LOGGER = Logger.getLogger(CopyArtifact.class.getName());
     private static final BuildSelector DEFAULT_BUILD_SELECTOR = new StatusBuildSelector(true);
-    private static final Authentication AUTHENTICATED_ANONYMOUS = new UsernamePasswordAuthenticationToken(
+    /*package*/ static final Authentication AUTHENTICATED_ANONYMOUS = new UsernamePasswordAuthenticationToken(
         "authenticated",
         "",
         List.of(SecurityRealm.AUTHENTICATED_AUTHORITY2)
     );
 
+    /**
+     * How many child builds (matrix configurations or multiple builds) to copy from concurrently.
+     * {@code 1} or less copies them one by one.
+     * Maven modules are always copied one by one, as they are copied into the same directory.
+     */
+    @Restricted(NoExternalUse.class)
+    @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "for script console")
+    public static int CHILD_COPY_CONCURRENCY = SystemProperties.getInteger(CopyArtifact.class.getName() + ".childCopyConcurrency", 4);
+
+    /**
+     * Guards actions of builds updated by copies running concurrently,
+     * not to lock builds which Jenkins core also locks.
+     */
+    private static final Object ACTIONS_LOCK = new Object();
+
     @Deprecated private transient String projectName;
     private String project;
     private String parameters;
     private String filter, target;
     private boolean includeBuildNumberInTargetPath;
     private String excludes;
+    private String combinationFilter, moduleFilter;
     private /*almost final*/ BuildSelector selector;
     @Deprecated private transient Boolean stable;
-    private Boolean flatten, optional;
+    private Boolean flatten, optional, explain, selectAtQueueTime, prefetch, skipIdenticalFiles, preferCopiedBuild;
     private boolean doNotFingerprintArtifacts;
     private String resultVariableSuffix;
+    private Integer buildCount;
+
+    /**
+     * Collects copies performed by this instance.
+     * Set only to instances created for a single execution with {@link #collectingResults(List)}.
+     */
+    private transient List<CopiedArtifactsAction.CopyResult> collectedResults;
 
     @Deprecated
     public CopyArtifact(String projectName, String parameters, BuildSelector selector, String filter, String target,
@@ -222,6 +260,22 @@ public class CopyArtifact extends Builder implements SimpleBuildStep {
         this.excludes = Util.fixNull(excludes).trim();
     }
 
+    /**
+     * @param combinationFilter comma-separated {@code axis=value} conditions to select configurations of matrix builds.
+     */
+    @DataBoundSetter
+    public void setCombinationFilter(String combinationFilter) {
+        this.combinationFilter = Util.fixEmptyAndTrim(combinationFilter);
+    }
+
+    /**
+     * @param moduleFilter comma-separated names of modules to copy from Maven builds.
+     */
+    @DataBoundSetter
+    public void setModuleFilter(String moduleFilter) {
+        this.moduleFilter = Util.fixEmptyAndTrim(moduleFilter);
+    }
+
     @DataBoundSetter
     public void setSelector(@NonNull BuildSelector selector) {
         if (selector == null) {
@@ -245,6 +299,56 @@ public class CopyArtifact extends Builder implements SimpleBuildStep {
         this.optional = optional ? Boolean.TRUE : null;
     }
 
+    /**
+     * @param explain {@code true} to report builds inspected in the selection and time spent in each phase.
+     */
+    @DataBoundSetter
+    public void setExplain(boolean explain) {
+        this.explain = explain ? Boolean.TRUE : null;
+    }
+
+    /**
+     * @param selectAtQueueTime {@code true} to select the build to copy from when the copier build is queued.
+     */
+    @DataBoundSetter
+    public void setSelectAtQueueTime(boolean selectAtQueueTime) {
+        this.selectAtQueueTime = selectAtQueueTime ? Boolean.TRUE : null;
+    }
+
+    /**
+     * @param prefetch {@code true} to transfer artifacts to the node in background when the copier build starts.
+     */
+    @DataBoundSetter
+    public void setPrefetch(boolean prefetch) {
+        this.prefetch = prefetch ? Boolean.TRUE : null;
+    }
+
+    /**
+     * @param buildCount how many of the most recent builds selected by the selector to copy from.
+     *     Artifacts of each build are copied into a subdirectory named with its build number when more than 1.
+     */
+    @DataBoundSetter
+    public void setBuildCount(int buildCount) {
+        this.buildCount = (buildCount > 1) ? Integer.valueOf(buildCount) : null;
+    }
+
+    /**
+     * @param skipIdenticalFiles {@code true} not to transfer files already in the target with the same digests.
+     */
+    @DataBoundSetter
+    public void setSkipIdenticalFiles(boolean skipIdenticalFiles) {
+        this.skipIdenticalFiles = skipIdenticalFiles ? Boolean.TRUE : null;
+    }
+
+    /**
+     * @param preferCopiedBuild {@code true} to copy from the build last copied to the node
+     *     instead of the selected build, if the selector accepts it and it has the same artifacts.
+     */
+    @DataBoundSetter
+    public void setPreferCopiedBuild(boolean preferCopiedBuild) {
+        this.preferCopiedBuild = preferCopiedBuild ? Boolean.TRUE : null;
+    }
+
     @DataBoundSetter
     public void setFingerprintArtifacts(boolean fingerprintArtifacts) {
         this.doNotFingerprintArtifacts = !fingerprintArtifacts;
@@ -285,7 +389,7 @@ public class CopyArtifact extends Builder implements SimpleBuildStep {
     }
 
     // get all CopyArtifacts configured to AbstractProject. This works both for Project and MatrixProject.
-    private static List<CopyArtifact> getCopyArtifactsInProject(AbstractProject<?,?> project) {
+    /*package*/ static List<CopyArtifact> getCopyArtifactsInProject(AbstractProject<?,?> project) {
         DescribableList<Builder,Descriptor<Builder>> list;
         if (project instanceof Project) {
             list = ((Project<?,?>)project).getBuildersList();
@@ -300,6 +404,14 @@ public class CopyArtifact extends Builder implements SimpleBuildStep {
         return list.getAll(CopyArtifact.class);
     }
 
+    /**
+     * {@link EnvAction} used to be nested in this class, and is recorded in existing builds with that name.
+     */
+    @Initializer(before=InitMilestone.JOB_LOADED)
+    public static void addCompatibilityAliases() {
+        Run.XSTREAM2.addCompatibilityAlias("hudson.plugins.copyartifact.CopyArtifact$EnvAction", EnvAction.class);
+    }
+
     @Initializer(after=InitMilestone.JOB_LOADED)
     public static void upgradeCopyArtifact() {
         if (!upgradeNeeded) {
@@ -356,6 +468,24 @@ public class CopyArtifact extends Builder implements SimpleBuildStep {
         return excludes;
     }
 
+    /**
+     * @return comma-separated {@code axis=value} conditions to select configurations of matrix builds.
+     *     {@code null} to copy from all configurations.
+     */
+    @CheckForNull
+    public String getCombinationFilter() {
+        return combinationFilter;
+    }
+
+    /**
+     * @return comma-separated names of modules to copy from Maven builds.
+     *     {@code null} to copy from all modules.
+     */
+    @CheckForNull
+    public String getModuleFilter() {
+        return moduleFilter;
+    }
+
     public String getTarget() {
         return target;
     }
@@ -368,6 +498,49 @@ public class CopyArtifact extends Builder implements SimpleBuildStep {
         return optional != null && optional;
     }
 
+    /**
+     * @return {@code true} to report builds inspected in the selection and time spent in each phase.
+     */
+    public boolean isExplain() {
+        return explain != null && explain;
+    }
+
+    /**
+     * @return {@code true} to select the build to copy from when the copier build is queued.
+     */
+    public boolean isSelectAtQueueTime() {
+        return selectAtQueueTime != null && selectAtQueueTime;
+    }
+
+    /**
+     * @return {@code true} to transfer artifacts to the node in background when the copier build starts.
+     *     The build to copy from is selected when the copier build is queued.
+     */
+    public boolean isPrefetch() {
+        return prefetch != null && prefetch;
+    }
+
+    /**
+     * @return {@code true} not to transfer files already in the target with the same digests.
+     *     Applies only to artifacts with recorded fingerprints.
+     */
+    public boolean isSkipIdenticalFiles() {
+        return skipIdenticalFiles != null && skipIdenticalFiles;
+    }
+
+    /**
+     * @return {@code true} to copy from the build last copied to the node
+     *     instead of the selected build, if the selector accepts it and it has the same artifacts.
+     *     Applies only to artifacts with recorded fingerprints, and only when copying from a single build.
+     */
+    public boolean isPreferCopiedBuild() {
+        return preferCopiedBuild != null && preferCopiedBuild;
+    }
+
+    /*package*/ boolean isSelectedAtQueueTime() {
+        return isSelectAtQueueTime() || isPrefetch();
+    }
+
     /**
      * @return the suffix for variables to store copying results.
      */
@@ -375,6 +548,13 @@ public class CopyArtifact extends Builder implements SimpleBuildStep {
         return resultVariableSuffix;
     }
 
+    /**
+     * @return how many of the most recent builds selected by the selector to copy from.
+     */
+    public int getBuildCount() {
+        return (buildCount != null) ? buildCount : 1;
+    }
+
     public boolean getIncludeBuildNumberInTargetPath() {
         return this.includeBuildNumberInTargetPath;
     }
@@ -428,32 +608,85 @@ public class CopyArtifact extends Builder implements SimpleBuildStep {
             upgradeIfNecessary(((AbstractBuild)build).getProject());
         }
 
-        EnvVars env = build.getEnvironment(listener);
-        if (build instanceof AbstractBuild) {
-            env.putAll(((AbstractBuild)build).getBuildVariables()); // Add in matrix axes..
-        } else {
-            // Abstract#getEnvironment(TaskListener) put build parameters to
-            // environments, but Run#getEnvironment(TaskListener) doesn't.
-            // That means we can't retrieve build parameters from WorkflowRun
-            // as it is a subclass of Run, not of AbstractBuild.
-            // We need expand build parameters manually.
-            // See JENKINS-26694, JENKINS-30357 for details.
-            for(ParametersAction pa: build.getActions(ParametersAction.class)) {
-                // We have to extract parameters manually as ParametersAction#buildEnvVars
-                // (overrides EnvironmentContributingAction#buildEnvVars)
-                // is applicable only for AbstractBuild.
-                for(ParameterValue pv: pa.getParameters()) {
-                    pv.buildEnvironment(build, env);
-                }
+        perform(jenkins, build, workspace, listener, getEnvironment(build, listener));
+    }
+
+    /**
+     * Copy artifacts with the environment already calculated.
+     * Used also by {@link MultiCopyArtifact} to share the environment among sources.
+     */
+    void perform(@NonNull Jenkins jenkins, @NonNull Run<?, ?> build, @NonNull FilePath workspace, @NonNull TaskListener listener,
+            @NonNull EnvVars env) throws InterruptedException, IOException {
+        SelectionExplanation explanation = isExplain() ? new SelectionExplanation() : null;
+        try {
+            performCopy(jenkins, build, workspace, listener, env, explanation);
+        } finally {
+            if (explanation != null) {
+                explanation.report(build, listener, project);
             }
         }
+    }
+
+    /**
+     * @return the environment of the build to expand variables in copies.
+     */
+    @NonNull
+    static EnvVars getEnvironment(@NonNull Run<?, ?> build, @NonNull TaskListener listener) throws IOException, InterruptedException {
+        return EnvSnapshotAction.getEnvironment(build, listener);
+    }
+
+    /**
+     * @param projectName the project to copy from.
+     * @param target the directory to copy to.
+     * @return a copy of this step copying from another project to another directory.
+     */
+    @NonNull
+    CopyArtifact withProject(@NonNull String projectName, @NonNull String target) {
+        CopyArtifact copier = new CopyArtifact(projectName);
+        // copy all other fields.
+        copier.parameters = parameters;
+        copier.filter = filter;
+        copier.target = target;
+        copier.includeBuildNumberInTargetPath = includeBuildNumberInTargetPath;
+        copier.excludes = excludes;
+        copier.combinationFilter = combinationFilter;
+        copier.moduleFilter = moduleFilter;
+        copier.selector = selector;
+        copier.flatten = flatten;
+        copier.optional = optional;
+        copier.explain = explain;
+        copier.selectAtQueueTime = selectAtQueueTime;
+        copier.prefetch = prefetch;
+        copier.skipIdenticalFiles = skipIdenticalFiles;
+        copier.preferCopiedBuild = preferCopiedBuild;
+        copier.doNotFingerprintArtifacts = doNotFingerprintArtifacts;
+        copier.resultVariableSuffix = resultVariableSuffix;
+        copier.buildCount = buildCount;
+        return copier;
+    }
 
+    /**
+     * @param results collects copies performed by the returned instance, including ones from child builds.
+     * @return a copy of this step for a single execution.
+     */
+    @NonNull
+    CopyArtifact collectingResults(@NonNull List<CopiedArtifactsAction.CopyResult> results) {
+        CopyArtifact copier = withProject(project, target);
+        copier.collectedResults = results;
+        return copier;
+    }
+
+    private void performCopy(@NonNull Jenkins jenkins, @NonNull Run<?, ?> build, @NonNull FilePath workspace, @NonNull TaskListener listener,
+            @NonNull EnvVars env, @CheckForNull SelectionExplanation explanation) throws InterruptedException, IOException {
         PrintStream console = listener.getLogger();
         String expandedProject = project, expandedFilter = filter;
         String expandedExcludes = getExcludes();
 
+        if (explanation != null) {
+            explanation.beginPhase(Messages.CopyArtifact_Explain_ResolvingProject());
+        }
         expandedProject = env.expand(project);
-        Job<?, ?> job = jenkins.getItem(expandedProject, getItemGroup(build), Job.class);
+        Job<?, ?> job = ItemResolutionCache.getJob(jenkins, expandedProject, getItemGroup(build));
         if (job != null && !canReadFrom(job, build)) {
             if (CopyArtifactConfiguration.isMigrationMode()) {
                 if (!expandedProject.equals(project)) {
@@ -490,8 +723,17 @@ public class CopyArtifact extends Builder implements SimpleBuildStep {
         if (job == null) {
             throw new AbortException(Messages.CopyArtifact_MissingProject(expandedProject));
         }
-        Run src = selector.getBuild(job, env, parameters != null ? new ParametersBuildFilter(env.expand(parameters)) : new BuildFilter(), build);
-        if (src == null) {
+        List<Run<?, ?>> sources;
+        try {
+            sources = selectBuilds(job, env, build, explanation);
+        } catch (SelectionInterruptedException e) {
+            // the selection was aborted, not failed to find a build.
+            throw e.toInterruptedException();
+        }
+        if (getBuildCount() > 1 && !selector.isMultipleBuildsSelectable()) {
+            console.println(Messages.CopyArtifact_SingleBuildSelector(selector.getDescriptor().getDisplayName(), getBuildCount()));
+        }
+        if (sources.isEmpty()) {
             String message = Messages.CopyArtifact_MissingBuild(expandedProject);
             if (isOptional()) {
                 // just return without an error
@@ -502,28 +744,45 @@ public class CopyArtifact extends Builder implements SimpleBuildStep {
                 throw new AbortException(message);
             }
         }
+        Computer computer = isPreferCopiedBuild() ? workspace.toComputer() : null;
+        Node node = (computer != null) ? computer.getNode() : null;
+        if (node != null && getBuildCount() <= 1) {
+            sources = Collections.singletonList(preferCopiedBuild(job, sources.get(0), env, node, console));
+        }
+        if (explanation != null) {
+            explanation.beginPhase(Messages.CopyArtifact_Explain_CheckingPermission());
+        }
         if (!CopyArtifactConfiguration.get().isMigrationMode()) {
-            if (!canReadArtifact(src, build)) {
-                throw new AbortException(
-                    Messages.CopyArtifact_NoArtifactsPermission(
-                        src.getFullDisplayName()
-                    )
-                );
+            for (Run<?, ?> src : sources) {
+                if (!canReadArtifact(src, build)) {
+                    throw new AbortException(
+                        Messages.CopyArtifact_NoArtifactsPermission(
+                            src.getFullDisplayName()
+                        )
+                    );
+                }
             }
         }
+        if (explanation != null) {
+            explanation.beginPhase(Messages.CopyArtifact_Explain_Copying());
+        }
         FilePath targetDir = workspace;
         targetDir.mkdirs(); // being a SimpleBuildStep guarantees it will have a workspace, but the physical dir might not yet exist.
         // Add info about the selected build into the environment
-        EnvAction envData = build.getAction(EnvAction.class);
-        if (envData == null) {
-            envData = new EnvAction();
-            build.addAction(envData);
+        // (sources of MultiCopyArtifact are copied concurrently)
+        synchronized (ACTIONS_LOCK) {
+            EnvAction envData = build.getAction(EnvAction.class);
+            if (envData == null) {
+                envData = new EnvAction();
+                build.addAction(envData);
+            }
+            // the most recent one for multiple builds
+            envData.add(build, sources.get(0), expandedProject, getResultVariableSuffix());
+            EnvSnapshotAction.onEnvActionUpdated(build, envData);
         }
-        envData.add(build, src, expandedProject, getResultVariableSuffix());
         if (target.length() > 0) {
             targetDir = new FilePath(targetDir, env.expand(target));
         }
-        if (this.includeBuildNumberInTargetPath) targetDir = new FilePath(targetDir, String.valueOf(src.getNumber()));
         expandedFilter = env.expand(filter);
         if (expandedFilter.trim().length() == 0) {
             expandedFilter = "**";
@@ -533,28 +792,117 @@ public class CopyArtifact extends Builder implements SimpleBuildStep {
             expandedExcludes = null;
         }
 
+        if (getBuildCount() <= 1) {
+            Run<?, ?> src = sources.get(0);
+            if (this.includeBuildNumberInTargetPath) targetDir = new FilePath(targetDir, String.valueOf(src.getNumber()));
+            performBuild(jenkins, src, build, expandedProject, expandedFilter, expandedExcludes, targetDir, env, listener);
+            if (node != null) {
+                CopyHistory.record(node, src);
+            }
+            return;
+        }
+        // Copy multiple builds into subdirectories with build numbers, as includeBuildNumberInTargetPath does
+        Map<Run<?,?>, FilePath> builds = new LinkedHashMap<>();
+        for (Run<?, ?> src : sources) {
+            FilePath buildDir = targetDir.child(String.valueOf(src.getNumber()));
+            if (isParentBuild(jenkins, src)) {
+                // child builds are already copied concurrently.
+                performBuild(jenkins, src, build, expandedProject, expandedFilter, expandedExcludes, buildDir, env, listener);
+            } else {
+                builds.put(src, buildDir);
+            }
+        }
+        if (!builds.isEmpty() && !performChildren(builds, build, expandedFilter, expandedExcludes, listener)) {
+            throw new AbortException(Messages.CopyArtifact_FailedToCopy(expandedProject, expandedFilter));
+        }
+    }
+
+    /**
+     * Prefer the build last copied to the node over the selected build,
+     * if the selector also accepts it and it has the same artifacts.
+     * The copy then transfers nothing with {@link #isSkipIdenticalFiles()}, or copies files staged in the node.
+     *
+     * @param job the source job
+     * @param src the selected build
+     * @param env the environment of the copier build
+     * @param node the node to copy to
+     * @param console the console of the copier build
+     * @return the build to copy from
+     */
+    @NonNull
+    private Run<?, ?> preferCopiedBuild(@NonNull Job<?, ?> job, @NonNull Run<?, ?> src, @NonNull EnvVars env,
+            @NonNull Node node, @NonNull PrintStream console) {
+        Run<?, ?> copied = CopyHistory.getCopied(node, job);
+        if (copied == null || copied == src || copied.isBuilding() || !CopyHistory.hasSameArtifacts(src, copied)) {
+            return src;
+        }
+        String expandedParameters = (parameters != null) ? env.expand(parameters) : null;
+        BuildFilter buildFilter = (expandedParameters != null) ? new ParametersBuildFilter(expandedParameters) : new BuildFilter();
+        // selectors overriding getBuild() accept no other builds.
+        if (!buildFilter.isSelectable(copied, env) || !selector.isSelectable(copied, env)) {
+            return src;
+        }
+        console.println(Messages.CopyArtifact_PreferCopiedBuild(copied.getFullDisplayName(), src.getFullDisplayName()));
+        return copied;
+    }
+
+    /**
+     * @return whether artifacts are copied also from child builds of the build, that is, matrix configurations or Maven modules.
+     */
+    private static boolean isParentBuild(@NonNull Jenkins jenkins, @NonNull Run<?, ?> src) {
+        return (jenkins.getPlugin("maven-plugin") != null && (src instanceof MavenModuleSetBuild))
+                || (jenkins.getPlugin("matrix-project") != null && src instanceof MatrixBuild);
+    }
+
+    /**
+     * Copy artifacts from a selected build, and its child builds if any.
+     */
+    private void performBuild(@NonNull Jenkins jenkins, @NonNull Run<?, ?> src, @NonNull Run<?, ?> build, @NonNull String expandedProject,
+            @NonNull String expandedFilter, @CheckForNull String expandedExcludes, @NonNull FilePath targetDir, @NonNull EnvVars env,
+            @NonNull TaskListener listener) throws InterruptedException, IOException {
         if (jenkins.getPlugin("maven-plugin") != null && (src instanceof MavenModuleSetBuild) ) {
         // use classes in the "maven-plugin" plugin as might not be installed
             // Copy artifacts from the build (ArchiveArtifacts build step)
             boolean ok = perform(src, build, expandedFilter, expandedExcludes, targetDir, listener);
             // Copy artifacts from all modules of this Maven build (automatic archiving)
-            for (Iterator<MavenBuild> it = ((MavenModuleSetBuild)src).getModuleLastBuilds().values().iterator(); it.hasNext(); ) {
-                // for(Run r: ....values()) causes upcasting and loading MavenBuild compiled with jdk 1.6.
-                // SEE https://wiki.jenkins-ci.org/display/JENKINS/Tips+for+optional+dependencies for details.
-                Run<?,?> r = it.next();
-                ok |= perform(r, build, expandedFilter, expandedExcludes, targetDir, listener);
+            Map<Run<?,?>, FilePath> children = new LinkedHashMap<>();
+            if (moduleFilter != null) {
+                // not to load builds of other modules.
+                for (Run<?,?> r : MavenModuleFilter.parse(env.expand(moduleFilter)).getRuns((MavenModuleSetBuild) src)) {
+                    children.put(r, targetDir);
+                }
+            } else {
+                for (Iterator<MavenBuild> it = ((MavenModuleSetBuild)src).getModuleLastBuilds().values().iterator(); it.hasNext(); ) {
+                    // for(Run r: ....values()) causes upcasting and loading MavenBuild compiled with jdk 1.6.
+                    // SEE https://wiki.jenkins-ci.org/display/JENKINS/Tips+for+optional+dependencies for details.
+                    Run<?,?> r = it.next();
+                    children.put(r, targetDir);
+                }
             }
+            ok |= performChildren(children, build, expandedFilter, expandedExcludes, listener);
             if (!ok) {
                 throw new AbortException(Messages.CopyArtifact_FailedToCopy(expandedProject, expandedFilter));
             }
         } else if (jenkins.getPlugin("matrix-project") != null && src instanceof MatrixBuild) {
-            boolean ok = false;
             // Copy artifacts from all configurations of this matrix build
             // Use MatrixBuild.getExactRuns if available
-            for (Run r : ((MatrixBuild) src).getExactRuns()) {
+            Map<Run<?,?>, FilePath> children = new LinkedHashMap<>();
+            Collection<? extends Run<?,?>> runs;
+            if (combinationFilter != null) {
+                // not to load runs of other configurations.
+                try {
+                    runs = MatrixCombinationFilter.parse(env.expand(combinationFilter)).getRuns((MatrixBuild) src);
+                } catch (IllegalArgumentException e) {
+                    throw new AbortException(e.getMessage());
+                }
+            } else {
+                runs = ((MatrixBuild) src).getExactRuns();
+            }
+            for (Run<?,?> r : runs) {
                 // Use subdir of targetDir with configuration name (like "jdk=java6u20")
-                ok |= perform(r, build, expandedFilter, expandedExcludes, targetDir.child(r.getParent().getName()), listener);
+                children.put(r, targetDir.child(r.getParent().getName()));
             }
+            boolean ok = performChildren(children, build, expandedFilter, expandedExcludes, listener);
 
             if (!ok) {
                 throw new AbortException(Messages.CopyArtifact_FailedToCopy(expandedProject, expandedFilter));
@@ -566,6 +914,73 @@ public class CopyArtifact extends Builder implements SimpleBuildStep {
         }
     }
 
+    /**
+     * Select the builds to copy artifacts from.
+     * Optional copies remember selections found no build until builds of the source job change.
+     *
+     * @param job the source job
+     * @param env the environment of the copier build
+     * @param build the copier build
+     * @param explanation records the selection if not {@code null}
+     * @return the selected builds, the most recent first, or an empty list if no build is selected
+     */
+    @NonNull
+    private List<Run<?, ?>> selectBuilds(@NonNull Job<?, ?> job, @NonNull EnvVars env, @NonNull Run<?, ?> build,
+            @CheckForNull SelectionExplanation explanation) {
+        if (explanation == null) {
+            return selectBuilds(job, env, build, UnaryOperator.identity());
+        }
+        return explanation.select(decorator -> selectBuilds(job, env, build, decorator));
+    }
+
+    /**
+     * @param decorator applied to the {@link BuildFilter} for the selection
+     */
+    @NonNull
+    private List<Run<?, ?>> selectBuilds(@NonNull Job<?, ?> job, @NonNull EnvVars env, @NonNull Run<?, ?> build,
+            @NonNull UnaryOperator<BuildFilter> decorator) {
+        int count = getBuildCount();
+        if (count <= 1) {
+            Run<?, ?> src = selectBuild(job, env, build, decorator);
+            return (src != null) ? Collections.singletonList(src) : Collections.emptyList();
+        }
+        // builds selected at queue time and missing selections are cached only for single builds.
+        String expandedParameters = (parameters != null) ? env.expand(parameters) : null;
+        BuildFilter buildFilter = decorator.apply((expandedParameters != null) ? new ParametersBuildFilter(expandedParameters) : new BuildFilter());
+        return selector.getBuilds(job, env, buildFilter, build, count);
+    }
+
+    /**
+     * @param decorator applied to the {@link BuildFilter} for the selection
+     */
+    @CheckForNull
+    private Run<?, ?> selectBuild(@NonNull Job<?, ?> job, @NonNull EnvVars env, @NonNull Run<?, ?> build,
+            @NonNull UnaryOperator<BuildFilter> decorator) {
+        String expandedParameters = (parameters != null) ? env.expand(parameters) : null;
+        if (isSelectedAtQueueTime()) {
+            Run<?, ?> pinned = PinnedBuildsAction.getPinned(build, job, QueueTimeSelection.getPinKey(selector, job, expandedParameters));
+            if (pinned != null) {
+                LOGGER.log(Level.FINE, "Use {0} selected when {1} was queued", new Object[] {pinned, build});
+                return pinned;
+            }
+        }
+        BuildFilter buildFilter = decorator.apply((expandedParameters != null) ? new ParametersBuildFilter(expandedParameters) : new BuildFilter());
+        String cacheKey = isOptional() ? NegativeSelectionCache.getKey(selector, expandedParameters) : null;
+        if (cacheKey == null) {
+            return selector.getBuild(job, env, buildFilter, build);
+        }
+        if (NegativeSelectionCache.isMissing(job, cacheKey)) {
+            LOGGER.log(Level.FINE, "No build of {0} has changed since no build was found for {1}", new Object[] {job.getFullName(), cacheKey});
+            return null;
+        }
+        long generation = NegativeSelectionCache.getGeneration(job);
+        Run<?, ?> src = selector.getBuild(job, env, buildFilter, build);
+        if (src == null) {
+            NegativeSelectionCache.recordMissing(job, cacheKey, generation);
+        }
+        return src;
+    }
+
     /**
      * Test the permission to read the source job.
      *
@@ -577,7 +992,7 @@ public class CopyArtifact extends Builder implements SimpleBuildStep {
      * @param build the copier build
      * @return true if the test passes
      */
-    private boolean canReadFrom(Job<?, ?> job, Run<?, ?> build) {
+    /*package*/ static boolean canReadFrom(Job<?, ?> job, Run<?, ?> build) {
         Job<?, ?> fromJob = job;
         Job<?, ?> toJob = build.getParent();
 
@@ -623,7 +1038,7 @@ public class CopyArtifact extends Builder implements SimpleBuildStep {
      * @param destBuild the build copying artifacts
      * @return true if can read artifacts.
      */
-    private boolean canReadArtifact(Run<?, ?> srcBuild, Run<?, ?> destBuild) {
+    /*package*/ static boolean canReadArtifact(Run<?, ?> srcBuild, Run<?, ?> destBuild) {
         if (!Functions.isArtifactsPermissionEnabled()) {
             // Run.ARTIFACTS permission is enabled only when
             // system property "hudson.security.ArtifactsPermission" is set.
@@ -654,7 +1069,7 @@ public class CopyArtifact extends Builder implements SimpleBuildStep {
         );
     }
 
-    private static Job<?, ?> getRootProject(Job<?, ?> job) {
+    /*package*/ static Job<?, ?> getRootProject(Job<?, ?> job) {
         if (job instanceof AbstractProject) {
             return ((AbstractProject<?,?>)job).getRootProject();
         } else {
@@ -663,7 +1078,7 @@ public class CopyArtifact extends Builder implements SimpleBuildStep {
     }
 
     // retrieve the "folder" (jenkins root if no folder used) for this build
-    private static ItemGroup getItemGroup(Run<?, ?> build) {
+    /*package*/ static ItemGroup getItemGroup(Run<?, ?> build) {
         return getRootProject(build.getParent()).getParent();
     }
 
@@ -674,9 +1089,16 @@ public class CopyArtifact extends Builder implements SimpleBuildStep {
         if (srcDir == null) {
             return isOptional();  // Fail build unless copy is optional
         }
+        // staged artifacts are used only by copies which staged them.
+        Computer computer = isPrefetch() ? targetDir.toComputer() : null;
+        Node node = (computer != null) ? computer.getNode() : null;
+        // only when artifacts may be staged on the node or already in the target.
+        Map<String, String> records = (node != null || isSkipIdenticalFiles())
+                ? AgentArtifactCache.getDigests(src) : Collections.emptyMap();
         Map<String, String> fingerprints = null; // entry → MD5
+        CopiedArtifactsAction.CopyResult result = new CopiedArtifactsAction.CopyResult(src, targetDir.getRemote());
         try {
-            fingerprints = copy(targetDir, srcDir, expandedFilter, expandedExcludes, isFingerprintArtifacts(), listener, isFlatten());
+            fingerprints = copy(targetDir, srcDir, expandedFilter, expandedExcludes, isFingerprintArtifacts(), listener, isFlatten(), node, src.getParent(), records, isSkipIdenticalFiles(), result);
             int cnt = fingerprints.size();
             console.println(Messages.CopyArtifact_Copied(cnt, HyperlinkNote.encodeTo('/'+ src.getParent().getUrl(), src.getParent().getFullDisplayName()),
                     HyperlinkNote.encodeTo('/'+src.getUrl(), Integer.toString(src.getNumber()))));
@@ -684,6 +1106,7 @@ public class CopyArtifact extends Builder implements SimpleBuildStep {
             return cnt > 0 || isOptional();
         } finally {
             if (fingerprints != null) {
+                long start = System.currentTimeMillis();
                 Map<String, String> fingerprintsShallow = new HashMap<>();
                 FingerprintMap map = Jenkins.get().getFingerprintMap();
                 for (Map.Entry<String, String> entry : fingerprints.entrySet()) {
@@ -699,38 +1122,123 @@ public class CopyArtifact extends Builder implements SimpleBuildStep {
                 }
                 if (!fingerprintsShallow.isEmpty()) {
                     for (Run<?, ?> r : new Run<?, ?>[] {src, dst}) {
-                        Fingerprinter.FingerprintAction fa = r.getAction(Fingerprinter.FingerprintAction.class);
-                        if (fa != null) {
-                            fa.add(fingerprintsShallow);
-                        } else {
-                            r.addAction(new Fingerprinter.FingerprintAction(r, fingerprintsShallow));
+                        // child builds may be copied concurrently.
+                        synchronized (ACTIONS_LOCK) {
+                            Fingerprinter.FingerprintAction fa = r.getAction(Fingerprinter.FingerprintAction.class);
+                            if (fa != null) {
+                                fa.add(fingerprintsShallow);
+                            } else {
+                                r.addAction(new Fingerprinter.FingerprintAction(r, fingerprintsShallow));
+                            }
                         }
                     }
                 }
+                result.setFingerprintingMillis(System.currentTimeMillis() - start);
+                CopiedArtifactsAction.add(dst, result);
+                if (collectedResults != null) {
+                    // child builds may be copied concurrently.
+                    synchronized (collectedResults) {
+                        collectedResults.add(result);
+                    }
+                }
             }
         }
     }
 
-    private static Map<String, String> copy(FilePath targetDir, VirtualFile srcDir, String expandedFilter, String expandedExcludes, boolean fingerprint, TaskListener listener, boolean flatten) throws IOException, InterruptedException {
-        targetDir.mkdirs();  // Create target if needed
-        Collection<String> list = srcDir.list(expandedFilter.replace('\\', '/'), expandedExcludes != null ? expandedExcludes.replace('\\', '/') : null, false);
-        Map<String, String> fingerprints = new HashMap<>();
-        for (String entry : list) {
-            String digest = copyOne(srcDir.child(entry), new FilePath(targetDir, flatten ? entry.replaceFirst(".+/", "") : entry), fingerprint, listener);
-            fingerprints.put(entry, digest);
+    /**
+     * Copy artifacts of child builds (matrix configurations or Maven modules),
+     * at most {@link #CHILD_COPY_CONCURRENCY} builds at a time.
+     * Builds copied into the same directory are copied one by one,
+     * not to mix files of different builds with the same paths.
+     *
+     * @param children child builds to the directories to copy to
+     * @return {@code true} if any of the copies succeeded, the same as copying them one by one
+     */
+    private boolean performChildren(Map<Run<?,?>, FilePath> children, Run<?,?> dst, String expandedFilter, @CheckForNull String expandedExcludes, TaskListener listener) throws IOException, InterruptedException {
+        boolean ok = false;
+        if (CHILD_COPY_CONCURRENCY <= 1 || children.size() <= 1 || new HashSet<>(children.values()).size() < children.size()) {
+            for (Map.Entry<Run<?,?>, FilePath> child : children.entrySet()) {
+                ok |= perform(child.getKey(), dst, expandedFilter, expandedExcludes, child.getValue(), listener);
+            }
+            return ok;
         }
-        return fingerprints;
+        Authentication auth = Jenkins.getAuthentication2();
+        CompletionService<Boolean> completion = new ExecutorCompletionService<>(Computer.threadPoolForRemoting);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        Iterator<Map.Entry<Run<?,?>, FilePath>> it = children.entrySet().iterator();
+        try {
+            while (it.hasNext() && futures.size() < CHILD_COPY_CONCURRENCY) {
+                futures.add(submitChild(completion, auth, it.next(), dst, expandedFilter, expandedExcludes, listener));
+            }
+            for (int remaining = futures.size(); remaining > 0; remaining--) {
+                try {
+                    ok |= completion.take().get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    if (cause instanceof InterruptedException) {
+                        throw (InterruptedException) cause;
+                    }
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IOException(cause);
+                }
+                if (it.hasNext()) {
+                    futures.add(submitChild(completion, auth, it.next(), dst, expandedFilter, expandedExcludes, listener));
+                    remaining++;
+                }
+            }
+            return ok;
+        } finally {
+            // abort other copies on failures.
+            for (Future<Boolean> f : futures) {
+                f.cancel(true);
+            }
+        }
+    }
+
+    private Future<Boolean> submitChild(CompletionService<Boolean> completion, Authentication auth, Map.Entry<Run<?,?>, FilePath> child,
+            Run<?,?> dst, String expandedFilter, @CheckForNull String expandedExcludes, TaskListener listener) {
+        return completion.submit(() -> {
+            try (ACLContext ctx = ACL.as2(auth)) {
+                return perform(child.getKey(), dst, expandedFilter, expandedExcludes, child.getValue(), listener);
+            }
+        });
     }
 
-    private static MessageDigest md5() {
+    private static Map<String, String> copy(FilePath targetDir, VirtualFile srcDir, String expandedFilter, String expandedExcludes, boolean fingerprint, TaskListener listener, boolean flatten,
+            @CheckForNull Node node, @NonNull Job<?, ?> srcJob, @NonNull Map<String, String> records, boolean skipIdentical,
+            @NonNull CopiedArtifactsAction.CopyResult result) throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        targetDir.mkdirs();  // Create target if needed
+        Collection<String> list = srcDir.list(expandedFilter.replace('\\', '/'), expandedExcludes != null ? expandedExcludes.replace('\\', '/') : null, false);
+        Map<String, String> digests = AgentArtifactCache.resolveDigests(records, list);
+        result.setListingMillis(System.currentTimeMillis() - start);
+        start = System.currentTimeMillis();
+        Map<String, String> fingerprints = new HashMap<>();
         try {
-            return MessageDigest.getInstance("MD5");
-        } catch (NoSuchAlgorithmException x) {
-            throw new AssertionError(x);
+            for (String entry : list) {
+                String digest = copyOne(entry, srcDir.child(entry), new FilePath(targetDir, flatten ? entry.replaceFirst(".+/", "") : entry), fingerprint, listener, node, srcJob, digests.get(entry), skipIdentical, result);
+                fingerprints.put(entry, digest);
+            }
+        } finally {
+            result.setTransferMillis(System.currentTimeMillis() - start);
         }
+        return fingerprints;
     }
 
-    private static String copyOne(VirtualFile s, FilePath d, boolean fingerprint, TaskListener listener) throws IOException, InterruptedException {
+    /**
+     * @param entry the path of the artifact, recorded to {@code result}
+     */
+    private static String copyOne(String entry, VirtualFile s, FilePath d, boolean fingerprint, TaskListener listener,
+            @CheckForNull Node node, @NonNull Job<?, ?> srcJob, @CheckForNull String knownDigest, boolean skipIdentical,
+            @NonNull CopiedArtifactsAction.CopyResult result) throws IOException, InterruptedException {
         String link = s.readLink();
         if (link != null) {
             FilePath parent = d.getParent();
@@ -738,30 +1246,32 @@ public class CopyArtifact extends Builder implements SimpleBuildStep {
                 parent.mkdirs();
             }
             d.symlinkTo(link, listener);
+            result.add(entry, 0, null, null, false);
             return null;
         }
         try {
             URL u = s.toExternalURL();
-            byte[] digest;
-            if (u != null) {
-                if (fingerprint) {
-                    digest = d.act(new CopyURLWithFingerprinting(u, listener));
-                } else {
-                    new RobustHTTPClient().copyFromRemotely(d, u, listener);
-                    digest = null;
-                }
-            } else {
-                if (fingerprint) {
-                    MessageDigest md5 = md5();
-                    try (InputStream is = s.open(); OutputStream os = d.write()) {
-                        IOUtils.copy(is, new DigestOutputStream(os, md5));
-                    }
-                    digest = md5.digest();
+            CopiedFile copied = null;
+            boolean transferred = false;
+            if (knownDigest != null && skipIdentical) {
+                // no need to transfer.
+                copied = getIdentical(s, d, knownDigest);
+            }
+            if (copied == null && node != null && knownDigest != null) {
+                copied = AgentArtifactCache.copyTo(node, srcJob, knownDigest, d);
+            }
+            if (copied == null) {
+                transferred = true;
+                if (u != null) {
+                    copied = d.act(new CopyURL(u, listener));
                 } else {
-                    try (InputStream is = s.open()) {
-                        d.copyFrom(is);
+                    // digests are computed while bytes pass anyway, whether fingerprinting or not.
+                    CopiedFile.Digests digests = new CopiedFile.Digests();
+                    long size;
+                    try (InputStream is = s.open(); OutputStream os = digests.wrap(d.write())) {
+                        size = IOUtils.copyLarge(is, os);
                     }
-                    digest = null;
+                    copied = digests.toCopiedFile(size);
                 }
             }
             // FilePath.setLastModifiedIfPossible private; copyToWithPermission OK but would have to calc digest separately:
@@ -774,31 +1284,61 @@ public class CopyArtifact extends Builder implements SimpleBuildStep {
             if (mode != -1) {
                 d.chmod(mode);
             }
-            return digest != null ? Util.toHexString(digest) : null;
+            // the size and the digests of the copied bytes, not to query the artifact storage again.
+            result.add(entry, copied.getSize(), copied.getDigest(), copied.getSha256(), transferred);
+            return fingerprint ? copied.getDigest() : null;
         } catch (IOException e) {
             throw new IOException("Failed to copy " + s + " to " + d, e);
         }
     }
 
-    private static class CopyURLWithFingerprinting extends MasterToSlaveFileCallable<byte[]> {
+    /**
+     * @return the target file if it has the MD5 digest, tested only when the size is the same.
+     */
+    @CheckForNull
+    private static CopiedFile getIdentical(VirtualFile s, FilePath d, String digest) throws IOException, InterruptedException {
+        if (!d.exists() || d.isDirectory() || d.length() != s.length()) {
+            return null;
+        }
+        // reads the file once for both digests.
+        CopiedFile existing = d.act(new DigestFile());
+        return digest.equals(existing.getDigest()) ? existing : null;
+    }
+
+    private static class DigestFile extends MasterToSlaveFileCallable<CopiedFile> {
+        private static final long serialVersionUID = 1;
+        @Override
+        public CopiedFile invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
+            CopiedFile.Digests digests = new CopiedFile.Digests();
+            long size;
+            try (InputStream is = new FileInputStream(f); OutputStream os = digests.wrap(OutputStream.nullOutputStream())) {
+                size = IOUtils.copyLarge(is, os);
+            }
+            return digests.toCopiedFile(size);
+        }
+    }
+
+    private static class CopyURL extends MasterToSlaveFileCallable<CopiedFile> {
         private static final long serialVersionUID = 1;
         private final URL u;
         private final TaskListener listener;
         private final RobustHTTPClient client = new RobustHTTPClient();
-        CopyURLWithFingerprinting(URL u, TaskListener listener) {
+        CopyURL(URL u, TaskListener listener) {
             this.u = u;
             this.listener = listener;
         }
         @Override
-        public byte[] invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
+        public CopiedFile invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
             hudson.util.IOUtils.mkdirs(f.getParentFile());
-            MessageDigest md5 = md5();
+            CopiedFile.Digests digests = new CopiedFile.Digests();
+            long[] size = new long[1];
             client.connect("download", "download " + RobustHTTPClient.sanitize(u) + " to " + f, c -> c.execute(new HttpGet(u.toString())), response -> {
-                try (InputStream is = response.getEntity().getContent(); OutputStream os = new FileOutputStream(f)) {
-                    IOUtils.copy(is, new DigestOutputStream(os, md5));
+                // restarted on retries.
+                try (InputStream is = response.getEntity().getContent(); OutputStream os = digests.wrap(new FileOutputStream(f))) {
+                    size[0] = IOUtils.copyLarge(is, os);
                 }
             }, listener);
-            return md5.digest();
+            return digests.toCopiedFile(size[0]);
         }
     }
 
@@ -837,6 +1377,26 @@ public class CopyArtifact extends Builder implements SimpleBuildStep {
     @Extension @Symbol("copyArtifacts")
     public static final class DescriptorImpl extends BuildStepDescriptor<Builder> {
 
+        @Override
+        public Builder newInstance(@CheckForNull StaplerRequest2 req, @NonNull JSONObject formData) throws FormException {
+            CopyArtifact copier = (CopyArtifact) super.newInstance(req, formData);
+            BuildSelector selector = copier.getSelector();
+            if (copier.getBuildCount() > 1 && selector != null && !selector.isMultipleBuildsSelectable()) {
+                throw new FormException(
+                        Messages.CopyArtifact_SingleBuildSelector(selector.getDescriptor().getDisplayName(), copier.getBuildCount()),
+                        "buildCount");
+            }
+            return copier;
+        }
+
+        public FormValidation doCheckBuildCount(@QueryParameter int value) {
+            if (value > 1) {
+                // the selector is not available here.
+                return FormValidation.warning(Messages.CopyArtifact_BuildCountRequiresTestingSelector());
+            }
+            return FormValidation.ok();
+        }
+
         public FormValidation doCheckProjectName(
                 @AncestorInPath Job<?,?> anc, @QueryParameter String value) {
             // JENKINS-32526: Check that it behaves gracefully for an unknown context
@@ -878,6 +1438,19 @@ public class CopyArtifact extends Builder implements SimpleBuildStep {
             return result;
         }
 
+        public FormValidation doCheckCombinationFilter(@QueryParameter String value) {
+            value = Util.fixEmptyAndTrim(value);
+            if (value == null || value.contains("$") || Jenkins.get().getPlugin("matrix-project") == null) {
+                return FormValidation.ok();
+            }
+            try {
+                MatrixCombinationFilter.parse(value);
+            } catch (IllegalArgumentException e) {
+                return FormValidation.error(e.getMessage());
+            }
+            return FormValidation.ok();
+        }
+
         public FormValidation doCheckResultVariableSuffix(@QueryParameter String value) {
             value = Util.fixEmptyAndTrim(value);
             if (value == null) {
@@ -905,10 +1478,38 @@ public class CopyArtifact extends Builder implements SimpleBuildStep {
     }
 
     // Listen for project renames and update property here if needed.
+    // Also discard resolved source projects when items change.
     @Extension
     public static final class ListenerImpl extends ItemListener {
+        @Override
+        public void onCreated(Item item) {
+            ItemResolutionCache.invalidate();
+        }
+
+        @Override
+        public void onCopied(Item src, Item item) {
+            ItemResolutionCache.invalidate();
+        }
+
+        @Override
+        public void onUpdated(Item item) {
+            // permissions may be changed.
+            ItemResolutionCache.invalidate();
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            ItemResolutionCache.invalidate();
+        }
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            ItemResolutionCache.invalidate();
+        }
+
         @Override
         public void onRenamed(Item item, String oldName, String newName) {
+            ItemResolutionCache.invalidate();
             String oldFullName = Items.getCanonicalName(item.getParent(), oldName);
             String newFullName = Items.getCanonicalName(item.getParent(), newName);
             Jenkins jenkins = Jenkins.getInstanceOrNull();
@@ -960,68 +1561,35 @@ public class CopyArtifact extends Builder implements SimpleBuildStep {
         }
     }
 
-    private static class EnvAction implements EnvironmentContributingAction {
-        // Decided not to record this data in build.xml, so marked transient:
-        private transient Map<String,String> data = new HashMap<>();
-
-        @Nullable
-        private String calculateDefaultSuffix(@NonNull Run<?,?> build, @NonNull Run<?,?> src, @NonNull String projectName) {
-            ItemGroup<?> ctx = getItemGroup(build);
-            Job<?,?> item = src.getParent();
-            // Use full name if configured with absolute path
-            // and relative otherwise
-            projectName = projectName.startsWith("/") ? item.getFullName() : item.getRelativeNameFrom(ctx);
-            if (projectName == null) {
-                // this is a case when the copying project doesn't belong to Jenkins item tree.
-                // (e.g. promotion for Promoted Builds plugin)
-                LOGGER.log(
-                        Level.WARNING,
-                        "Failed to calculate a relative path of {0} from {2}",
-                        new Object[] {
-                                item.getFullName(),
-                                ctx.getFullName(),
-                        }
-                );
-                return null;
-            }
-            
-            return  projectName.toUpperCase().replaceAll("[^A-Z]+", "_"); // Only use letters and _
-        }
-        
-        private void add(
-                @NonNull Run<?,?> build,
-                @NonNull Run<?,?> src,
-                @NonNull String projectName,
-                @Nullable String resultVariableSuffix
-        ) {
-            if (data == null) {
-                return;
-            }
-            
-            if (!isValidVariableName(resultVariableSuffix)) {
-                resultVariableSuffix = calculateDefaultSuffix(build, src, projectName);
-                if (resultVariableSuffix == null) {
-                    return;
-                }
+    // Discard resolved source projects when the security configuration may change.
+    @Extension
+    public static final class SaveableListenerImpl extends SaveableListener {
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof Jenkins) {
+                ItemResolutionCache.invalidate();
             }
-            data.put(
-                String.format("COPYARTIFACT_BUILD_NUMBER_%s", resultVariableSuffix),
-                Integer.toString(src.getNumber())
-            );
         }
+    }
 
+    // Discard remembered selections when builds change.
+    @Extension
+    public static final class RunListenerImpl extends RunListener<Run<?, ?>> {
         @Override
-        public void buildEnvVars(AbstractBuild<?,?> build, EnvVars env) {
-            if (data != null) {
-                env.putAll(data);
-            }
+        public void onCompleted(Run<?, ?> run, @NonNull TaskListener listener) {
+            NegativeSelectionCache.invalidate(run.getParent());
+            ArtifactDistributionConfiguration.distribute(run);
         }
 
         @Override
-        public String getIconFileName() { return null; }
-        @Override
-        public String getDisplayName() { return null; }
+        public void onFinalized(Run<?, ?> run) {
+            // builds are not regarded as completed until finalized.
+            NegativeSelectionCache.invalidate(run.getParent());
+        }
+
         @Override
-        public String getUrlName() { return null; }
+        public void onDeleted(Run<?, ?> run) {
+            NegativeSelectionCache.invalidate(run.getParent());
+        }
     }
 }
@@ -0,0 +1,72 @@
+package hudson.plugins.copyartifact;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import hudson.model.Action;
+
+/**
+ * Records explanations of copying artifacts requested with {@link CopyArtifact#setExplain(boolean)}:
+ * builds inspected in the selection and time spent in each phase.
+ * Displayed in the build page.
+ */
+public class CopyArtifactExplanationAction implements Action {
+    private final List<Explanation> explanations = new ArrayList<>();
+
+    /**
+     * An explanation of a copy.
+     */
+    public static class Explanation {
+        private final String projectName;
+        private final List<String> lines;
+
+        Explanation(String projectName, List<String> lines) {
+            this.projectName = projectName;
+            this.lines = new ArrayList<>(lines);
+        }
+
+        /**
+         * @return the name of the source project as configured.
+         */
+        public String getProjectName() {
+            return projectName;
+        }
+
+        /**
+         * @return lines of the explanation.
+         */
+        public List<String> getLines() {
+            return Collections.unmodifiableList(lines);
+        }
+    }
+
+    synchronized void add(String projectName, List<String> lines) {
+        explanations.add(new Explanation(projectName, lines));
+    }
+
+    /**
+     * @return explanations of copies, in the order performed.
+     */
+    @NonNull
+    public synchronized List<Explanation> getExplanations() {
+        return new ArrayList<>(explanations);
+    }
+
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return Messages.CopyArtifactExplanationAction_DisplayName();
+    }
+
+    @Override
+    public String getUrlName() {
+        return null;
+    }
+}
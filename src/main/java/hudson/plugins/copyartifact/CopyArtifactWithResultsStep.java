@@ -0,0 +1,122 @@
+package hudson.plugins.copyartifact;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import jenkins.model.Jenkins;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflow.steps.SynchronousNonBlockingStepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Pipeline step to copy artifacts just like {@link CopyArtifact}, returning what each copy brought in
+ * ({@link CopiedArtifactsAction.CopyResult}) as lists and maps,
+ * which scripts can read without script approvals and keep across restarts.
+ * Separated from {@link CopyArtifact} as the workflow-step-api plugin might not be installed.
+ */
+public class CopyArtifactWithResultsStep extends Step {
+    private final CopyArtifact copier;
+
+    /**
+     * @param copier the copy to perform.
+     */
+    @DataBoundConstructor
+    public CopyArtifactWithResultsStep(CopyArtifact copier) {
+        this.copier = copier;
+    }
+
+    /**
+     * @return the copy to perform.
+     */
+    public CopyArtifact getCopier() {
+        return copier;
+    }
+
+    @Override
+    public StepExecution start(StepContext context) throws Exception {
+        return new Execution(context, copier);
+    }
+
+    private static final class Execution extends SynchronousNonBlockingStepExecution<List<Map<String, Object>>> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient CopyArtifact copier;
+
+        Execution(@NonNull StepContext context, CopyArtifact copier) {
+            super(context);
+            this.copier = copier;
+        }
+
+        @Override
+        protected List<Map<String, Object>> run() throws Exception {
+            Run<?, ?> build = getContext().get(Run.class);
+            TaskListener listener = getContext().get(TaskListener.class);
+            List<CopiedArtifactsAction.CopyResult> results = new ArrayList<>();
+            copier.collectingResults(results).perform(Jenkins.get(), build, getContext().get(FilePath.class), listener,
+                    CopyArtifact.getEnvironment(build, listener));
+            List<Map<String, Object>> values = new ArrayList<>();
+            synchronized (results) {
+                for (CopiedArtifactsAction.CopyResult result : results) {
+                    values.add(toMap(result));
+                }
+            }
+            return values;
+        }
+    }
+
+    @NonNull
+    private static Map<String, Object> toMap(@NonNull CopiedArtifactsAction.CopyResult result) {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("projectName", result.getProjectName());
+        value.put("buildNumber", result.getBuildNumber());
+        value.put("target", result.getTarget());
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (CopiedArtifactsAction.CopiedEntry entry : result.getEntries()) {
+            Map<String, Object> e = new LinkedHashMap<>();
+            e.put("path", entry.getPath());
+            e.put("size", entry.getSize());
+            e.put("digest", entry.getDigest());
+            e.put("sha256", entry.getSha256());
+            entries.add(e);
+        }
+        value.put("entries", entries);
+        value.put("entryCount", result.getEntryCount());
+        value.put("totalSize", result.getTotalSize());
+        value.put("bytesTransferred", result.getBytesTransferred());
+        value.put("listingMillis", result.getListingMillis());
+        value.put("transferMillis", result.getTransferMillis());
+        value.put("fingerprintingMillis", result.getFingerprintingMillis());
+        return value;
+    }
+
+    @Extension(optional = true)
+    public static final class DescriptorImpl extends StepDescriptor {
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return Set.of(Run.class, FilePath.class, TaskListener.class);
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "copyArtifactsWithResults";
+        }
+
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return Messages.CopyArtifactWithResultsStep_DisplayName();
+        }
+    }
+}
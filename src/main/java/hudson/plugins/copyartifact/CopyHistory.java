@@ -0,0 +1,94 @@
+package hudson.plugins.copyartifact;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import hudson.model.Job;
+import hudson.model.Node;
+import hudson.model.Run;
+
+/**
+ * Builds last copied to each node from each source job,
+ * for {@link CopyArtifact#isPreferCopiedBuild()}.
+ * Held only in memory, just like files staged in {@link AgentArtifactCache}.
+ */
+final class CopyHistory {
+    /**
+     * Number of source jobs remembered for each node. Least recently copied ones are forgotten.
+     */
+    private static final int MAX_JOBS_PER_NODE = 256;
+
+    /**
+     * node name to full names of source jobs, to externalizable IDs of builds last copied to that node.
+     */
+    private static final Map<String, Map<String, String>> copied = new HashMap<>();
+
+    private CopyHistory() {
+    }
+
+    /**
+     * Records a build copied to a node.
+     *
+     * @param node the node where artifacts are copied to.
+     * @param src the copied build.
+     */
+    static void record(@NonNull Node node, @NonNull Run<?, ?> src) {
+        synchronized (copied) {
+            copied.computeIfAbsent(node.getNodeName(), k -> new LinkedHashMap<String, String>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > MAX_JOBS_PER_NODE;
+                }
+            }).put(src.getParent().getFullName(), src.getExternalizableId());
+        }
+    }
+
+    /**
+     * @param node a node.
+     * @param job a source job.
+     * @return the build of the job last copied to the node, if still available.
+     */
+    @CheckForNull
+    static Run<?, ?> getCopied(@NonNull Node node, @NonNull Job<?, ?> job) {
+        String id;
+        synchronized (copied) {
+            Map<String, String> c = copied.get(node.getNodeName());
+            id = (c != null) ? c.get(job.getFullName()) : null;
+        }
+        if (id == null) {
+            return null;
+        }
+        // null if deleted or not permitted to read.
+        Run<?, ?> run = Run.fromExternalizableId(id);
+        return (run != null && run.getParent() == job) ? run : null;
+    }
+
+    /**
+     * Artifacts without recorded fingerprints cannot be compared.
+     *
+     * @return whether both builds have the same artifacts, all with the same recorded fingerprints.
+     */
+    static boolean hasSameArtifacts(@NonNull Run<?, ?> src, @NonNull Run<?, ?> other) {
+        Map<String, String> records = AgentArtifactCache.getDigests(src);
+        if (records.isEmpty() || !records.equals(AgentArtifactCache.getDigests(other))) {
+            return false;
+        }
+        List<String> paths = new ArrayList<>();
+        for (Run<?, ?>.Artifact a : src.getArtifacts()) {
+            paths.add(a.relativePath);
+        }
+        List<String> otherPaths = new ArrayList<>();
+        for (Run<?, ?>.Artifact a : other.getArtifacts()) {
+            otherPaths.add(a.relativePath);
+        }
+        return paths.equals(otherPaths) && AgentArtifactCache.resolveDigests(records, paths).size() == paths.size();
+    }
+}
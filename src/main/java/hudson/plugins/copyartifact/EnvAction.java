@@ -0,0 +1,88 @@
+package hudson.plugins.copyartifact;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+import hudson.EnvVars;
+import hudson.model.AbstractBuild;
+import hudson.model.EnvironmentContributingAction;
+import hudson.model.ItemGroup;
+import hudson.model.Job;
+import hudson.model.Run;
+
+/**
+ * Exposes numbers of builds copied from as {@code COPYARTIFACT_BUILD_NUMBER_*} variables.
+ * Used to be nested in {@link CopyArtifact}, and recorded in builds with that name
+ * (see {@link CopyArtifact#addCompatibilityAliases()}).
+ */
+final class EnvAction implements EnvironmentContributingAction {
+    private static final Logger LOGGER = Logger.getLogger(EnvAction.class.getName());
+
+    // Decided not to record this data in build.xml, so marked transient:
+    private transient Map<String,String> data = new HashMap<>();
+
+    @Nullable
+    private String calculateDefaultSuffix(@NonNull Run<?,?> build, @NonNull Run<?,?> src, @NonNull String projectName) {
+        ItemGroup<?> ctx = CopyArtifact.getItemGroup(build);
+        Job<?,?> item = src.getParent();
+        // Use full name if configured with absolute path
+        // and relative otherwise
+        projectName = projectName.startsWith("/") ? item.getFullName() : item.getRelativeNameFrom(ctx);
+        if (projectName == null) {
+            // this is a case when the copying project doesn't belong to Jenkins item tree.
+            // (e.g. promotion for Promoted Builds plugin)
+            LOGGER.log(
+                    Level.WARNING,
+                    "Failed to calculate a relative path of {0} from {2}",
+                    new Object[] {
+                            item.getFullName(),
+                            ctx.getFullName(),
+                    }
+            );
+            return null;
+        }
+        
+        return  projectName.toUpperCase().replaceAll("[^A-Z]+", "_"); // Only use letters and _
+    }
+    
+    void add(
+            @NonNull Run<?,?> build,
+            @NonNull Run<?,?> src,
+            @NonNull String projectName,
+            @Nullable String resultVariableSuffix
+    ) {
+        if (data == null) {
+            return;
+        }
+        
+        if (!CopyArtifact.isValidVariableName(resultVariableSuffix)) {
+            resultVariableSuffix = calculateDefaultSuffix(build, src, projectName);
+            if (resultVariableSuffix == null) {
+                return;
+            }
+        }
+        data.put(
+            String.format("COPYARTIFACT_BUILD_NUMBER_%s", resultVariableSuffix),
+            Integer.toString(src.getNumber())
+        );
+    }
+
+    @Override
+    public void buildEnvVars(AbstractBuild<?,?> build, EnvVars env) {
+        if (data != null) {
+            env.putAll(data);
+        }
+    }
+
+    @Override
+    public String getIconFileName() { return null; }
+    @Override
+    public String getDisplayName() { return null; }
+    @Override
+    public String getUrlName() { return null; }
+}
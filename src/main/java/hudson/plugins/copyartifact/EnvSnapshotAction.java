@@ -0,0 +1,101 @@
+package hudson.plugins.copyartifact;
+
+import java.io.IOException;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import hudson.EnvVars;
+import hudson.model.AbstractBuild;
+import hudson.model.EnvironmentContributingAction;
+import hudson.model.InvisibleAction;
+import hudson.model.ParameterValue;
+import hudson.model.ParametersAction;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+
+/**
+ * Shares the environment of a build among copy steps,
+ * as it's expensive to calculate with all {@link hudson.model.EnvironmentContributor}s.
+ *
+ * Recalculated only when the environment contributed by actions
+ * (parameters and other {@link EnvironmentContributingAction}s) changes.
+ * Updates by {@link EnvAction} are applied to the snapshot directly.
+ * Applies only to {@link AbstractBuild}s, as the environment of other builds
+ * (e.g. Pipelines) can change in other ways.
+ */
+final class EnvSnapshotAction extends InvisibleAction {
+    // Decided not to record this data in build.xml, so marked transient:
+    private transient EnvVars contributed;
+    private transient EnvVars env;
+
+    static EnvVars getEnvironment(@NonNull Run<?,?> build, @NonNull TaskListener listener) throws IOException, InterruptedException {
+        if (!(build instanceof AbstractBuild)) {
+            return calculate(build, listener);
+        }
+        EnvSnapshotAction action = build.getAction(EnvSnapshotAction.class);
+        if (action == null) {
+            action = new EnvSnapshotAction();
+            build.addAction(action);
+        }
+        return action.get((AbstractBuild<?,?>) build, listener);
+    }
+
+    static void onEnvActionUpdated(@NonNull Run<?,?> build, @NonNull EnvAction envAction) {
+        EnvSnapshotAction action = build.getAction(EnvSnapshotAction.class);
+        if (action != null && build instanceof AbstractBuild) {
+            action.apply((AbstractBuild<?,?>) build, envAction);
+        }
+    }
+
+    /**
+     * @return the environment contributed by actions other than {@link EnvAction}. Cheap to calculate.
+     */
+    private static EnvVars getContributed(@NonNull AbstractBuild<?,?> build) {
+        EnvVars contributed = new EnvVars();
+        for (EnvironmentContributingAction a : build.getActions(EnvironmentContributingAction.class)) {
+            if (!(a instanceof EnvAction)) {
+                a.buildEnvironment(build, contributed);
+            }
+        }
+        return contributed;
+    }
+
+    private synchronized EnvVars get(@NonNull AbstractBuild<?,?> build, @NonNull TaskListener listener) throws IOException, InterruptedException {
+        EnvVars currentContributed = getContributed(build);
+        if (env == null || !currentContributed.equals(contributed)) {
+            env = calculate(build, listener);
+            contributed = currentContributed;
+        }
+        // callers may modify it.
+        return new EnvVars(env);
+    }
+
+    private synchronized void apply(@NonNull AbstractBuild<?,?> build, @NonNull EnvAction envAction) {
+        if (env != null) {
+            envAction.buildEnvVars(build, env);
+        }
+    }
+
+    private static EnvVars calculate(@NonNull Run<?,?> build, @NonNull TaskListener listener) throws IOException, InterruptedException {
+        EnvVars env = build.getEnvironment(listener);
+        if (build instanceof AbstractBuild) {
+            env.putAll(((AbstractBuild)build).getBuildVariables()); // Add in matrix axes..
+        } else {
+            // Abstract#getEnvironment(TaskListener) put build parameters to
+            // environments, but Run#getEnvironment(TaskListener) doesn't.
+            // That means we can't retrieve build parameters from WorkflowRun
+            // as it is a subclass of Run, not of AbstractBuild.
+            // We need expand build parameters manually.
+            // See JENKINS-26694, JENKINS-30357 for details.
+            for(ParametersAction pa: build.getActions(ParametersAction.class)) {
+                // We have to extract parameters manually as ParametersAction#buildEnvVars
+                // (overrides EnvironmentContributingAction#buildEnvVars)
+                // is applicable only for AbstractBuild.
+                for(ParameterValue pv: pa.getParameters()) {
+                    pv.buildEnvironment(build, env);
+                }
+            }
+        }
+        return env;
+    }
+}
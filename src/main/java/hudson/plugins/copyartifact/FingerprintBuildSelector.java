@@ -0,0 +1,143 @@
+package hudson.plugins.copyartifact;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.Descriptor;
+import hudson.model.Fingerprint;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.util.FormValidation;
+import jenkins.model.Jenkins;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+/**
+ * Select the build that produced (or used) an artifact with the specified MD5 checksum,
+ * looked up through recorded fingerprints instead of scanning builds.
+ *
+ * Selects the build that originally produced the artifact if it's a build of the source project.
+ * Otherwise, selects the newest build of the source project recorded to use the artifact.
+ */
+public class FingerprintBuildSelector extends BuildSelector {
+    private static final Logger LOGGER = Logger.getLogger(FingerprintBuildSelector.class.getName());
+    private static final Pattern MD5_PATTERN = Pattern.compile("[0-9a-f]{32}");
+
+    private final String md5;
+
+    /**
+     * @param md5 MD5 checksum (the fingerprint ID) of an artifact. May include variable expressions.
+     */
+    @DataBoundConstructor
+    public FingerprintBuildSelector(String md5) {
+        this.md5 = Util.fixNull(md5).trim();
+    }
+
+    /**
+     * @return MD5 checksum (the fingerprint ID) of an artifact. May include variable expressions.
+     */
+    public String getMd5() {
+        return md5;
+    }
+
+    @Override
+    public Run<?,?> getBuild(Job<?,?> job, EnvVars env, BuildFilter filter, Run<?,?> parent) {
+        String expandedMd5 = normalize(env.expand(getMd5()));
+        if (expandedMd5 == null) {
+            LOGGER.log(Level.FINE, "Not a MD5 checksum: {0}", env.expand(getMd5()));
+            return null;
+        }
+        Fingerprint fp;
+        try {
+            fp = Jenkins.get().getFingerprintMap().get(expandedMd5);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, String.format("Failed to load the fingerprint %s", expandedMd5), e);
+            return null;
+        }
+        if (fp == null) {
+            LOGGER.log(Level.FINE, "No fingerprint recorded for {0}", expandedMd5);
+            return null;
+        }
+
+        Run<?,?> run = null;
+        Fingerprint.BuildPtr original = fp.getOriginal();
+        if (original != null && original.getName().equals(job.getFullName())) {
+            run = job.getBuildByNumber(original.getNumber());
+        }
+        if (run == null) {
+            // newest first
+            for (int number : fp.getRangeSet(job.getFullName()).listNumbersReverse()) {
+                run = job.getBuildByNumber(number);
+                if (run != null) {
+                    break;
+                }
+            }
+        }
+
+        if (run == null) {
+            LOGGER.log(Level.FINE, "No build of {0} is recorded for {1}", new Object[] {job.getFullName(), expandedMd5});
+            return null;
+        }
+        if (!filter.isSelectable(run, env)) {
+            LOGGER.log(Level.FINE, "{0} claims {1} is not selectable", new Object[] {filter, run});
+            return null;
+        }
+        return run;
+    }
+
+    /**
+     * @param value a value to test.
+     * @return the value in lower case if it's a MD5 checksum, {@code null} otherwise.
+     */
+    @CheckForNull
+    private static String normalize(@CheckForNull String value) {
+        if (value == null) {
+            return null;
+        }
+        String normalized = value.trim().toLowerCase(Locale.ENGLISH);
+        return MD5_PATTERN.matcher(normalized).matches() ? normalized : null;
+    }
+
+    @Override
+    public boolean isSelectableAtQueueTime() {
+        return true;
+    }
+
+    @Extension @Symbol("fingerprint")
+    public static class DescriptorImpl extends Descriptor<BuildSelector> {
+        @Override
+        public String getDisplayName() {
+            return Messages.FingerprintBuildSelector_DisplayName();
+        }
+
+        /**
+         * Validates a form input to "MD5 checksum"
+         *
+         * @param md5 MD5 checksum.
+         * @return the form validation result.
+         */
+        public FormValidation doCheckMd5(@QueryParameter String md5) {
+            md5 = Util.fixEmptyAndTrim(md5);
+            if (md5 == null) {
+                return FormValidation.error(Messages.FingerprintBuildSelector_Md5_Required());
+            }
+            if (md5.indexOf('$') >= 0) {
+                // cannot validate variable expressions.
+                return FormValidation.ok();
+            }
+            if (normalize(md5) == null) {
+                return FormValidation.error(Messages.FingerprintBuildSelector_Md5_Invalid());
+            }
+            return FormValidation.ok();
+        }
+    }
+}
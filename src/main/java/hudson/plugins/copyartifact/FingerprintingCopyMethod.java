@@ -3,7 +3,6 @@ package hudson.plugins.copyartifact;
 import hudson.AbortException;
 import hudson.Extension;
 import hudson.FilePath;
-import hudson.Util;
 import hudson.model.Fingerprint;
 import hudson.model.FingerprintMap;
 import hudson.model.Run;
@@ -12,9 +11,7 @@ import hudson.tasks.Fingerprinter.FingerprintAction;
 import jenkins.model.Jenkins;
 
 import java.io.IOException;
-import java.security.DigestOutputStream;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Level;
@@ -36,7 +33,7 @@ public class FingerprintingCopyMethod extends Copier {
     private static final Logger LOGGER = Logger.getLogger(FingerprintingCopyMethod.class.getName());
     private Run<?,?> src;
     private Run<?,?> dst;
-    private final MessageDigest md5 = newMD5();
+    private final CopiedFile.Digests digests = new CopiedFile.Digests();
     private final Map<String,String> fingerprints = new HashMap<>();
 
     @Override
@@ -46,14 +43,6 @@ public class FingerprintingCopyMethod extends Copier {
         fingerprints.clear();
     }
 
-    private MessageDigest newMD5() {
-        try {
-            return MessageDigest.getInstance("MD5");
-        } catch (NoSuchAlgorithmException e) {
-            throw new AssertionError(e);    // impossible
-        }
-    }
-
     @Override
     public int copyAll(FilePath srcDir, String filter, String excludes, FilePath targetDir, boolean fingerprintArtifacts) throws IOException, InterruptedException {
         targetDir.mkdirs();  // Create target if needed
@@ -80,8 +69,7 @@ public class FingerprintingCopyMethod extends Copier {
             return;
         }
         try {
-            md5.reset();
-            try (DigestOutputStream out = new DigestOutputStream(d.write(), md5)) {
+            try (OutputStream out = digests.wrap(d.write())) {
                 s.copyTo(out);
             }
             try {
@@ -95,7 +83,7 @@ public class FingerprintingCopyMethod extends Copier {
             } catch (IOException x) {
                 LOGGER.warning(x.getMessage());
             }
-            String digest = Util.toHexString(md5.digest());
+            String digest = digests.getDigest();
 
             if (fingerprintArtifacts) {
                 Jenkins jenkins = Jenkins.getInstanceOrNull();
@@ -0,0 +1,124 @@
+package hudson.plugins.copyartifact;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.model.Descriptor;
+import hudson.model.Job;
+import hudson.model.Run;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Select the build with the first of the specified selectors that selects a build,
+ * just like trying them one by one.
+ *
+ * Predicates are tested in a single pass through the build history,
+ * which ends as soon as the build of the first remaining predicate is found.
+ */
+public class FirstOfBuildSelector extends CompositeBuildSelector {
+
+    /**
+     * @param selectors selectors to try in order.
+     */
+    @DataBoundConstructor
+    public FirstOfBuildSelector(List<BuildSelector> selectors) {
+        super(selectors);
+    }
+
+    @Override
+    boolean isPredicate() {
+        // the order of selectors matters.
+        return false;
+    }
+
+    @Override
+    public Run<?,?> getBuild(Job<?,?> job, EnvVars env, BuildFilter filter, Run<?,?> parent) {
+        List<BuildSelector> selectors = getSelectors();
+        Run<?,?>[] found = null;
+        for (int i = 0; i < selectors.size(); i++) {
+            BuildSelector selector = selectors.get(i);
+            Run<?,?> run;
+            if (isPredicate(selector)) {
+                if (found == null) {
+                    found = findAll(job, env, filter, selectors, i);
+                }
+                run = found[i];
+            } else {
+                run = selector.getBuild(job, env, filter, parent);
+            }
+            if (run != null) {
+                return run;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find builds for predicates in a single pass.
+     *
+     * @param job the job to search.
+     * @param env the environment to test builds.
+     * @param filter the filter to test builds.
+     * @param selectors all selectors.
+     * @param from the index of the first predicate to find the build for.
+     * @return builds found for predicates at or after {@code from}.
+     */
+    @NonNull
+    private static Run<?,?>[] findAll(Job<?,?> job, EnvVars env, BuildFilter filter, List<BuildSelector> selectors, int from) {
+        Run<?,?>[] found = new Run<?,?>[selectors.size()];
+        List<Integer> pending = new ArrayList<>();
+        for (int i = from; i < selectors.size(); i++) {
+            if (isPredicate(selectors.get(i))) {
+                pending.add(i);
+            }
+        }
+        pending.sort(Comparator.comparingInt(i -> getCost(selectors.get(i))));
+        for (Run<?,?> run = job.getLastCompletedBuild(); run != null && !pending.isEmpty(); run = run.getPreviousCompletedBuild()) {
+            Boolean filtered = null;
+            for (int i = 0; i < pending.size(); i++) {
+                int index = pending.get(i);
+                if (!test(selectors.get(index), run, env)) {
+                    continue;
+                }
+                if (filtered == null) {
+                    // test BuildFilter at most once for a build.
+                    filtered = filter.isSelectable(run, env);
+                }
+                if (!filtered) {
+                    break;
+                }
+                found[index] = run;
+                pending.remove(i--);
+            }
+            if (found[from] != null) {
+                // no need to find builds for lower priority predicates.
+                break;
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public boolean isSelectable(Run<?,?> run, EnvVars env) {
+        for (BuildSelector selector : getSelectorsByCost()) {
+            if (test(selector, run, env)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Extension @Symbol("firstOf")
+    public static class DescriptorImpl extends Descriptor<BuildSelector> {
+        @Override
+        public String getDisplayName() {
+            return Messages.FirstOfBuildSelector_DisplayName();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package hudson.plugins.copyartifact;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import hudson.model.ItemGroup;
+import hudson.model.Job;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+
+/**
+ * Caches source jobs resolved from (possibly parameterized) project names,
+ * as resolving paths in deep folder trees with permission checks at each level is repeated
+ * by every copy.
+ *
+ * Results are cached for each authentication and context, and all discarded when
+ * items are created, updated, renamed, moved or deleted, or the global configuration is saved
+ * (see {@link CopyArtifact.ListenerImpl} and {@link CopyArtifact.SaveableListenerImpl}).
+ * Entries also expire after a while, as group memberships in security realms may change without notice.
+ */
+final class ItemResolutionCache {
+    /**
+     * Maximum number of resolved jobs to keep. {@code 0} disables the cache.
+     */
+    private static final int SIZE = SystemProperties.getInteger(ItemResolutionCache.class.getName() + ".size", 1000);
+
+    /**
+     * Milliseconds to keep resolved jobs.
+     */
+    private static final long TTL_MILLIS = SystemProperties.getLong(ItemResolutionCache.class.getName() + ".ttlMillis", 60000L);
+
+    private static final class Key {
+        private final String authentication;
+        private final String context;
+        private final String name;
+
+        Key(String authentication, String context, String name) {
+            this.authentication = authentication;
+            this.context = context;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return authentication.equals(other.authentication) && context.equals(other.context) && name.equals(other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(authentication, context, name);
+        }
+    }
+
+    private static final class Entry {
+        private final Job<?,?> job;
+        private final long expiresAt;
+
+        Entry(Job<?,?> job, long expiresAt) {
+            this.job = job;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Resolved jobs, least recently used first.
+     */
+    private static final Map<Key, Entry> CACHE = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > SIZE;
+        }
+    };
+
+    /**
+     * Incremented when invalidated, not to cache jobs resolved before that.
+     */
+    private static long generation;
+
+    private ItemResolutionCache() {
+    }
+
+    /**
+     * Resolve a job the same as {@link Jenkins#getItem(String, ItemGroup, Class)}
+     * with the current authentication.
+     *
+     * @param jenkins the Jenkins instance.
+     * @param name the name of the job, relative to {@code context} or absolute.
+     * @param context the context to resolve the name.
+     * @return the resolved job, or {@code null} if not found or not permitted to read.
+     */
+    @CheckForNull
+    static Job<?,?> getJob(@NonNull Jenkins jenkins, @NonNull String name, @NonNull ItemGroup<?> context) {
+        if (SIZE <= 0) {
+            return jenkins.getItem(name, context, Job.class);
+        }
+        Key key = new Key(Jenkins.getAuthentication2().getName(), context.getFullName(), name);
+        long now = System.currentTimeMillis();
+        long resolvedGeneration;
+        synchronized (CACHE) {
+            Entry entry = CACHE.get(key);
+            if (entry != null && entry.expiresAt > now) {
+                return entry.job;
+            }
+            resolvedGeneration = generation;
+        }
+        // resolve outside the lock.
+        Job<?,?> job = jenkins.getItem(name, context, Job.class);
+        if (job != null) {
+            synchronized (CACHE) {
+                if (resolvedGeneration == generation) {
+                    CACHE.put(key, new Entry(job, now + TTL_MILLIS));
+                }
+            }
+        }
+        return job;
+    }
+
+    /**
+     * Discards all resolved jobs.
+     */
+    static void invalidate() {
+        synchronized (CACHE) {
+            generation++;
+            CACHE.clear();
+        }
+    }
+}
@@ -41,6 +41,11 @@ public class LastBuildWithArtifactSelector extends BuildSelector {
         return run.getHasArtifacts();
     }
 
+    @Override
+    public boolean isSelectableAtQueueTime() {
+        return true;
+    }
+
     @Extension @Symbol("lastWithArtifacts")
     public static class DescriptorImpl extends Descriptor<BuildSelector> {
         @Override
@@ -52,6 +52,11 @@ public class LastCompletedBuildSelector extends BuildSelector {
     @Deprecated
     public static /*almost final*/ Descriptor<BuildSelector> DESCRIPTOR;
 
+    @Override
+    public boolean isSelectableAtQueueTime() {
+        return true;
+    }
+
     @Extension @Symbol("lastCompleted")
     public static final class DescriptorImpl extends SimpleBuildSelectorDescriptor {
         public DescriptorImpl() {
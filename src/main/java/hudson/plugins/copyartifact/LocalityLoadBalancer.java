@@ -0,0 +1,112 @@
+package hudson.plugins.copyartifact;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.LoadBalancer;
+import hudson.model.Queue;
+import hudson.model.queue.MappingWorksheet;
+import hudson.model.queue.MappingWorksheet.ExecutorChunk;
+import hudson.model.queue.MappingWorksheet.Mapping;
+import jenkins.model.Jenkins;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Prefers nodes where artifacts to copy are already staged in {@link AgentArtifactCache}.
+ *
+ * Applies to builds whose copy steps selected the builds to copy from when queued
+ * ({@link CopyArtifact#isSelectAtQueueTime()} or {@link CopyArtifact#isPrefetch()}),
+ * and have a single subtask.
+ * Only idle executors are considered, so builds never wait for those nodes.
+ * Other builds are assigned by the load balancer installed when this is enabled
+ * with {@link ArtifactDistributionConfiguration#isPreferStagedNodes()}.
+ */
+@Restricted(NoExternalUse.class)
+public final class LocalityLoadBalancer extends LoadBalancer {
+    private static final Logger LOGGER = Logger.getLogger(LocalityLoadBalancer.class.getName());
+
+    private final LoadBalancer base;
+
+    LocalityLoadBalancer(@NonNull LoadBalancer base) {
+        this.base = base;
+    }
+
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void install() {
+        ArtifactDistributionConfiguration config = ArtifactDistributionConfiguration.get();
+        update(config != null && config.isPreferStagedNodes());
+    }
+
+    /**
+     * Installs this load balancer wrapping the current one, or restores the wrapped one.
+     *
+     * @param enabled whether to install this load balancer.
+     */
+    static synchronized void update(boolean enabled) {
+        Jenkins jenkins = Jenkins.getInstanceOrNull();
+        if (jenkins == null) {
+            return;
+        }
+        Queue queue = jenkins.getQueue();
+        LoadBalancer current = queue.getLoadBalancer();
+        if (enabled && !(current instanceof LocalityLoadBalancer)) {
+            queue.setLoadBalancer(new LocalityLoadBalancer(current));
+        } else if (!enabled && current instanceof LocalityLoadBalancer) {
+            queue.setLoadBalancer(((LocalityLoadBalancer) current).base);
+        }
+    }
+
+    /**
+     * @return the load balancer assigning builds not assigned by this.
+     */
+    @NonNull
+    LoadBalancer getBase() {
+        return base;
+    }
+
+    private static boolean isEnabled() {
+        ArtifactDistributionConfiguration config = ArtifactDistributionConfiguration.get();
+        return config != null && config.isPreferStagedNodes();
+    }
+
+    @Override
+    @CheckForNull
+    public Mapping map(@NonNull Queue.Task task, MappingWorksheet worksheet) {
+        // may be wrapped by another load balancer installed later.
+        if (isEnabled() && worksheet.works.size() == 1) {
+            PinnedBuildsAction action = worksheet.item.getAction(PinnedBuildsAction.class);
+            Set<String> keys = (action != null) ? action.getKeys() : null;
+            if (keys != null && !keys.isEmpty()) {
+                Map<ExecutorChunk, Integer> counts = new HashMap<>();
+                for (ExecutorChunk ec : worksheet.works(0).applicableExecutorChunks()) {
+                    int count = AgentArtifactCache.countStored(ec.node, keys);
+                    if (count > 0) {
+                        counts.put(ec, count);
+                    }
+                }
+                List<ExecutorChunk> preferred = new ArrayList<>(counts.keySet());
+                preferred.sort(Comparator.comparing(counts::get, Comparator.reverseOrder()));
+                for (ExecutorChunk ec : preferred) {
+                    Mapping m = worksheet.new Mapping();
+                    m.assign(0, ec);
+                    if (m.isCompletelyValid()) {
+                        LOGGER.fine(() -> String.format("Assign %s to %s with %d artifacts staged", task.getFullDisplayName(), ec.node.getDisplayName(), counts.get(ec)));
+                        return m;
+                    }
+                }
+            }
+        }
+        return base.map(task, worksheet);
+    }
+}
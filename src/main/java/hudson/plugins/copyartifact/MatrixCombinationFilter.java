@@ -0,0 +1,103 @@
+package hudson.plugins.copyartifact;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import hudson.matrix.Combination;
+import hudson.matrix.MatrixBuild;
+import hudson.matrix.MatrixConfiguration;
+import hudson.matrix.MatrixRun;
+import hudson.model.Run;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Selects configurations of matrix builds to copy from,
+ * with comma-separated {@code axis=value} conditions like {@code jdk=17,os=linux}.
+ *
+ * Values can contain {@code *} as wildcards.
+ * Configurations must match one of the values for each axis in the conditions,
+ * e.g. {@code jdk=11,jdk=17,os=linux} selects configurations with jdk 11 or 17 on linux.
+ * Separated from {@link CopyArtifact} as the matrix-project plugin might not be installed.
+ */
+final class MatrixCombinationFilter {
+    /**
+     * axis names to patterns of values.
+     */
+    private final Map<String, List<String>> conditions;
+
+    private MatrixCombinationFilter(Map<String, List<String>> conditions) {
+        this.conditions = conditions;
+    }
+
+    /**
+     * @param expression comma-separated {@code axis=value} conditions.
+     * @return the filter.
+     * @throws IllegalArgumentException if the expression is malformed.
+     */
+    @NonNull
+    static MatrixCombinationFilter parse(@NonNull String expression) {
+        Map<String, List<String>> conditions = new LinkedHashMap<>();
+        for (String condition : StringUtils.split(expression, ',')) {
+            if (StringUtils.isBlank(condition)) {
+                continue;
+            }
+            int eq = condition.indexOf('=');
+            String axis = (eq > 0) ? condition.substring(0, eq).trim() : "";
+            if (axis.isEmpty()) {
+                throw new IllegalArgumentException(Messages.CopyArtifact_InvalidCombinationFilter(condition.trim()));
+            }
+            conditions.computeIfAbsent(axis, k -> new ArrayList<>()).add(condition.substring(eq + 1).trim());
+        }
+        return new MatrixCombinationFilter(conditions);
+    }
+
+    /**
+     * @param combination a combination of axis values.
+     * @return whether the combination matches the conditions.
+     */
+    boolean matches(@NonNull Combination combination) {
+        for (Map.Entry<String, List<String>> condition : conditions.entrySet()) {
+            String value = combination.get(condition.getKey());
+            if (value == null) {
+                return false;
+            }
+            boolean matched = false;
+            for (String pattern : condition.getValue()) {
+                if (CopyArtifactPermissionProperty.isNameMatch(value, pattern)) {
+                    matched = true;
+                    break;
+                }
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same as {@link MatrixBuild#getExactRuns()}, but loads only runs of matching configurations.
+     * Configurations no longer active are included, as they may have runs in the build.
+     *
+     * @param build a matrix build.
+     * @return runs of matching configurations.
+     */
+    @NonNull
+    List<Run<?, ?>> getRuns(@NonNull MatrixBuild build) {
+        List<Run<?, ?>> runs = new ArrayList<>();
+        for (MatrixConfiguration c : build.getParent().getItems()) {
+            if (!matches(c.getCombination())) {
+                continue;
+            }
+            MatrixRun r = c.getBuildByNumber(build.getNumber());
+            if (r != null) {
+                runs.add(r);
+            }
+        }
+        return runs;
+    }
+}
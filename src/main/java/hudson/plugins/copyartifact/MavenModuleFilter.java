@@ -0,0 +1,82 @@
+package hudson.plugins.copyartifact;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import hudson.maven.MavenBuild;
+import hudson.maven.MavenModule;
+import hudson.maven.MavenModuleSetBuild;
+import hudson.maven.ModuleName;
+import hudson.model.Run;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Selects modules of Maven builds to copy from,
+ * with comma-separated module names ({@code groupId:artifactId} or {@code artifactId}).
+ *
+ * Names can contain {@code *} as wildcards.
+ * Separated from {@link CopyArtifact} as the maven-plugin might not be installed.
+ */
+final class MavenModuleFilter {
+    private final List<String> patterns;
+
+    private MavenModuleFilter(List<String> patterns) {
+        this.patterns = patterns;
+    }
+
+    /**
+     * @param expression comma-separated module names.
+     * @return the filter.
+     */
+    @NonNull
+    static MavenModuleFilter parse(@NonNull String expression) {
+        List<String> patterns = new ArrayList<>();
+        for (String pattern : StringUtils.split(expression, ',')) {
+            if (StringUtils.isNotBlank(pattern)) {
+                patterns.add(pattern.trim());
+            }
+        }
+        return new MavenModuleFilter(patterns);
+    }
+
+    /**
+     * @param module a module.
+     * @return whether the module matches any of the names.
+     */
+    boolean matches(@NonNull MavenModule module) {
+        ModuleName name = module.getModuleName();
+        for (String pattern : patterns) {
+            if (CopyArtifactPermissionProperty.isNameMatch(name.toString(), pattern)
+                    || CopyArtifactPermissionProperty.isNameMatch(name.artifactId, pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Same as {@link MavenModuleSetBuild#getModuleLastBuilds()}, but loads only builds of matching modules.
+     *
+     * @param build a Maven build.
+     * @return builds of matching modules.
+     */
+    @NonNull
+    List<Run<?, ?>> getRuns(@NonNull MavenModuleSetBuild build) {
+        // builds of modules in [build, next build)
+        MavenModuleSetBuild next = build.getNextBuild();
+        int end = (next != null) ? next.getNumber() : Integer.MAX_VALUE;
+        List<Run<?, ?>> runs = new ArrayList<>();
+        for (MavenModule m : build.getParent().getModules()) {
+            if (!matches(m)) {
+                continue;
+            }
+            MavenBuild b = m.getNearestOldBuild(end - 1);
+            if (b != null && b.getNumber() >= build.getNumber()) {
+                runs.add(b);
+            }
+        }
+        return runs;
+    }
+}
@@ -0,0 +1,225 @@
+package hudson.plugins.copyartifact;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+import hudson.AbortException;
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Util;
+import hudson.model.AbstractProject;
+import hudson.model.Computer;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.Items;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.tasks.BuildStepDescriptor;
+import hudson.tasks.Builder;
+import jenkins.model.Jenkins;
+import jenkins.tasks.SimpleBuildStep;
+import jenkins.util.SystemProperties;
+import org.jenkinsci.Symbol;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Build step to copy artifacts from multiple projects at once.
+ *
+ * Each source is configured as a {@link CopyArtifact} with its own selector, filter and target.
+ * Sources are copied concurrently sharing the environment of the build,
+ * and the result of each source is reported after all sources are copied.
+ * Project names can contain {@code *} to copy from all matching jobs the build is allowed to copy from
+ * (matched with full names), into subdirectories named with the full names of the jobs.
+ * Jobs are looked up only in the folder named before the first {@code *}.
+ * Copied builds and the outcome of each source are recorded in {@link CopiedArtifactsAction}.
+ */
+public class MultiCopyArtifact extends Builder implements SimpleBuildStep {
+    /**
+     * How many sources to copy from concurrently.
+     */
+    @Restricted(NoExternalUse.class)
+    @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "for script console")
+    public static int CONCURRENCY = SystemProperties.getInteger(MultiCopyArtifact.class.getName() + ".concurrency", 4);
+
+    private final List<CopyArtifact> sources;
+
+    /**
+     * @param sources copies to perform.
+     */
+    @DataBoundConstructor
+    public MultiCopyArtifact(List<CopyArtifact> sources) {
+        this.sources = (sources != null) ? new ArrayList<>(sources) : Collections.emptyList();
+    }
+
+    /**
+     * @return copies to perform.
+     */
+    @NonNull
+    public List<CopyArtifact> getSources() {
+        return Collections.unmodifiableList(sources);
+    }
+
+    @Override
+    public void perform(@NonNull Run<?, ?> build, @NonNull FilePath workspace, @NonNull Launcher launcher, @NonNull TaskListener listener) throws InterruptedException, IOException {
+        Jenkins jenkins = Jenkins.getInstanceOrNull();
+        if (jenkins == null) {
+            throw new AbortException("Jenkins instance is unavailable.");
+        }
+        EnvVars env = CopyArtifact.getEnvironment(build, listener);
+        List<Source> copiers = new ArrayList<>();
+        for (CopyArtifact source : sources) {
+            List<Source> expanded = expand(source, build, env);
+            if (expanded.isEmpty() && !source.isOptional()) {
+                throw new AbortException(Messages.CopyArtifact_MissingProject(env.expand(source.getProjectName())));
+            }
+            copiers.addAll(expanded);
+        }
+
+        Authentication auth = Jenkins.getAuthentication2();
+        CompletionService<Void> completion = new ExecutorCompletionService<>(Computer.threadPoolForRemoting);
+        List<Future<Void>> futures = new ArrayList<>();
+        int next = 0;
+        int failed = 0;
+        try {
+            for (int running = 0; running > 0 || next < copiers.size(); running--) {
+                while (next < copiers.size() && running < Math.max(CONCURRENCY, 1)) {
+                    futures.add(submit(completion, auth, jenkins, copiers.get(next), build, workspace, listener, env));
+                    next++;
+                    running++;
+                }
+                try {
+                    completion.take().get();
+                } catch (ExecutionException e) {
+                    // reported with results.
+                    failed++;
+                }
+            }
+        } finally {
+            for (Future<Void> f : futures) {
+                f.cancel(true);
+            }
+        }
+        for (Source source : copiers) {
+            listener.getLogger().println(Messages.MultiCopyArtifact_Result(source.name,
+                    (source.failure != null) ? source.failure : Messages.MultiCopyArtifact_Succeeded()));
+            // copies of child builds aborted on failures may still be completing.
+            synchronized (source.results) {
+                CopiedArtifactsAction.addSource(build, new CopiedArtifactsAction.SourceResult(source.name, source.failure, source.results));
+            }
+        }
+        if (failed > 0) {
+            throw new AbortException(Messages.MultiCopyArtifact_Failed(failed, copiers.size()));
+        }
+    }
+
+    /**
+     * A copy to perform in a single execution, and its outcome.
+     */
+    private static final class Source {
+        private final String name;
+        private final CopyArtifact copier;
+        private final List<CopiedArtifactsAction.CopyResult> results = new ArrayList<>();
+        private volatile String failure;
+
+        Source(@NonNull String name, @NonNull CopyArtifact copier) {
+            this.name = name;
+            this.copier = copier.collectingResults(results);
+        }
+    }
+
+    private static Future<Void> submit(CompletionService<Void> completion, Authentication auth, Jenkins jenkins, Source source,
+            Run<?, ?> build, FilePath workspace, TaskListener listener, EnvVars env) {
+        return completion.submit(() -> {
+            try (ACLContext ctx = ACL.as2(auth)) {
+                source.copier.perform(jenkins, build, workspace, listener, new EnvVars(env));
+                return null;
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                source.failure = (e.getMessage() != null) ? e.getMessage() : e.toString();
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * @return copies for all jobs matching the project name if it contains wildcards.
+     *     Jobs the build is not allowed to copy from are not contained.
+     */
+    @NonNull
+    private static List<Source> expand(@NonNull CopyArtifact source, @NonNull Run<?, ?> build, @NonNull EnvVars env) {
+        String pattern = env.expand(source.getProjectName());
+        if (!pattern.contains("*")) {
+            return Collections.singletonList(new Source(pattern, source));
+        }
+        ItemGroup<?> root = getRoot(pattern);
+        if (root == null) {
+            return Collections.emptyList();
+        }
+        List<Source> copiers = new ArrayList<>();
+        String target = Util.fixNull(source.getTarget());
+        // only readable jobs are listed.
+        for (Job<?, ?> job : Items.allItems(root, Job.class)) {
+            // matrix configurations and Maven modules are copied via their parents.
+            if (job == build.getParent() || job.getParent() instanceof Job
+                    || !CopyArtifactPermissionProperty.isNameMatch(job.getFullName(), pattern)) {
+                continue;
+            }
+            // not to fail the build nor to disclose jobs not allowed to copy from.
+            if (!CopyArtifact.canReadFrom(job, build)) {
+                continue;
+            }
+            // absolute, as names are resolved relative to the folder of the build.
+            copiers.add(new Source(job.getFullName(), source.withProject(
+                    "/" + job.getFullName(),
+                    target.isEmpty() ? job.getFullName() : target + "/" + job.getFullName()
+            )));
+        }
+        return copiers;
+    }
+
+    /**
+     * @param pattern a full name pattern with wildcards.
+     * @return the folder named before the first wildcard, to look up jobs in.
+     */
+    @CheckForNull
+    private static ItemGroup<?> getRoot(@NonNull String pattern) {
+        String prefix = pattern.substring(0, pattern.indexOf('*'));
+        int slash = prefix.lastIndexOf('/');
+        if (slash < 0) {
+            return Jenkins.get();
+        }
+        Item folder = Jenkins.get().getItemByFullName(prefix.substring(0, slash));
+        return (folder instanceof ItemGroup) ? (ItemGroup<?>) folder : null;
+    }
+
+    @Extension @Symbol("copyArtifactsFrom")
+    public static final class DescriptorImpl extends BuildStepDescriptor<Builder> {
+        @Override
+        public boolean isApplicable(Class<? extends AbstractProject> clazz) {
+            return true;
+        }
+
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return Messages.MultiCopyArtifact_DisplayName();
+        }
+    }
+}
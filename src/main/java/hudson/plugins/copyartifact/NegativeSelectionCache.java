@@ -0,0 +1,134 @@
+package hudson.plugins.copyartifact;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import hudson.model.Job;
+
+/**
+ * Remembers selections found no build, for optional copies polling jobs rarely having builds to copy.
+ *
+ * Applies only to selectors which never select builds newly unless a build of the source job completes
+ * (e.g. {@link StatusBuildSelector}), and entries of a job are discarded when a build of the job
+ * completes or is deleted.
+ */
+final class NegativeSelectionCache {
+    /**
+     * How many selections to remember for each job at most.
+     */
+    private static final int MAX_ENTRIES_PER_JOB = 100;
+
+    private static final Map<Job<?,?>, Entry> ENTRIES = new WeakHashMap<>();
+
+    private static class Entry {
+        private long generation;
+        private final Set<String> missing = new HashSet<>();
+    }
+
+    private NegativeSelectionCache() {
+    }
+
+    /**
+     * @param selector the selector.
+     * @param expandedParameters the parameters to filter builds, or {@code null} if not filtered.
+     * @return the key for the selection, or {@code null} if the selection cannot be cached.
+     */
+    @CheckForNull
+    static String getKey(@NonNull BuildSelector selector, @CheckForNull String expandedParameters) {
+        String selectorKey = getSelectorKey(selector);
+        if (selectorKey == null) {
+            return null;
+        }
+        return (expandedParameters != null) ? selectorKey + '\n' + expandedParameters : selectorKey;
+    }
+
+    /**
+     * Only selectors not depending on the environment, the copier build, the time,
+     * or properties of builds changing after completion (e.g. "keep forever").
+     */
+    @CheckForNull
+    private static String getSelectorKey(@NonNull BuildSelector selector) {
+        if (selector.getClass() == StatusBuildSelector.class) {
+            return ((StatusBuildSelector) selector).isStable() ? "lastStable" : "lastSuccessful";
+        }
+        if (selector.getClass() == LastCompletedBuildSelector.class) {
+            return "lastCompleted";
+        }
+        if (selector.getClass() == LastBuildWithArtifactSelector.class) {
+            return "lastWithArtifacts";
+        }
+        if (selector.getClass() == AllOfBuildSelector.class || selector.getClass() == AnyOfBuildSelector.class) {
+            StringBuilder sb = new StringBuilder((selector.getClass() == AllOfBuildSelector.class) ? "allOf(" : "anyOf(");
+            for (BuildSelector child : ((CompositeBuildSelector) selector).getSelectors()) {
+                String childKey = getSelectorKey(child);
+                if (childKey == null) {
+                    return null;
+                }
+                sb.append(childKey).append(',');
+            }
+            return sb.append(')').toString();
+        }
+        return null;
+    }
+
+    /**
+     * @param job the source job.
+     * @return the generation of the cache for the job, to pass to {@link #recordMissing(Job, String, long)}.
+     */
+    static long getGeneration(@NonNull Job<?,?> job) {
+        synchronized (ENTRIES) {
+            return ENTRIES.computeIfAbsent(job, j -> new Entry()).generation;
+        }
+    }
+
+    /**
+     * @param job the source job.
+     * @param key the key of the selection.
+     * @return whether the selection is known to find no build.
+     */
+    static boolean isMissing(@NonNull Job<?,?> job, @NonNull String key) {
+        synchronized (ENTRIES) {
+            Entry entry = ENTRIES.get(job);
+            return entry != null && entry.missing.contains(key);
+        }
+    }
+
+    /**
+     * @param job the source job.
+     * @param key the key of the selection.
+     * @param generation the generation when the selection started.
+     *     Not recorded if builds completed or were deleted since then.
+     */
+    static void recordMissing(@NonNull Job<?,?> job, @NonNull String key, long generation) {
+        synchronized (ENTRIES) {
+            Entry entry = ENTRIES.get(job);
+            if (entry == null || entry.generation != generation) {
+                return;
+            }
+            if (entry.missing.size() >= MAX_ENTRIES_PER_JOB) {
+                entry.missing.clear();
+            }
+            entry.missing.add(key);
+        }
+    }
+
+    /**
+     * Discards selections for a job as builds of the job changed.
+     *
+     * @param job the source job.
+     */
+    static void invalidate(@NonNull Job<?,?> job) {
+        synchronized (ENTRIES) {
+            Entry entry = ENTRIES.get(job);
+            if (entry != null) {
+                entry.generation++;
+                entry.missing.clear();
+            }
+        }
+    }
+}
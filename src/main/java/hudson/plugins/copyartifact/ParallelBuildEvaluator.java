@@ -0,0 +1,89 @@
+package hudson.plugins.copyartifact;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import hudson.model.Computer;
+import hudson.model.Run;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import jenkins.model.Jenkins;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Tests candidate builds concurrently for selectors and filters with expensive predicates.
+ *
+ * Keeps a sliding window of the next candidates being tested in {@link Computer#threadPoolForRemoting},
+ * and returns the first build accepted, the same as testing them one by one.
+ * Predicates may block on I/O (e.g. loading builds), so a shared fork-join pool is not used.
+ */
+final class ParallelBuildEvaluator {
+    private ParallelBuildEvaluator() {
+    }
+
+    private static class Candidate {
+        private final Run<?,?> run;
+        private final Future<Boolean> result;
+
+        Candidate(Run<?,?> run, Future<Boolean> result) {
+            this.run = run;
+            this.result = result;
+        }
+    }
+
+    /**
+     * Find the first build accepted by the predicate.
+     *
+     * @param candidates builds to test, in the order of preference.
+     * @param predicate the test to apply. Evaluated in other threads with the current authentication.
+     * @param windowSize how many builds to test at a time.
+     * @return the first build accepted, or {@code null} if no build is accepted.
+     * @throws InterruptedException if interrupted while waiting for the tests, e.g. the build is aborted.
+     */
+    @CheckForNull
+    static Run<?,?> findFirst(@NonNull Iterator<Run<?,?>> candidates, @NonNull Predicate<Run<?,?>> predicate, int windowSize)
+            throws InterruptedException {
+        Authentication auth = Jenkins.getAuthentication2();
+        Deque<Candidate> window = new ArrayDeque<>(windowSize);
+        try {
+            while (true) {
+                while (candidates.hasNext() && window.size() < windowSize) {
+                    Run<?,?> run = candidates.next();
+                    window.add(new Candidate(run, Computer.threadPoolForRemoting.submit(() -> {
+                        try (ACLContext ctx = ACL.as2(auth)) {
+                            return predicate.test(run);
+                        }
+                    })));
+                }
+                Candidate head = window.poll();
+                if (head == null) {
+                    return null;
+                }
+                if (head.result.get()) {
+                    return head.run;
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            // no need to test older builds any more.
+            for (Candidate c : window) {
+                c.result.cancel(true);
+            }
+        }
+    }
+}
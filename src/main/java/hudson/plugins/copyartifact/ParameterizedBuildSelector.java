@@ -63,7 +63,7 @@ public class ParameterizedBuildSelector extends BuildSelector {
         }
         BuildSelector selector;
         try {
-            selector = BuildSelectorParameter.getSelectorFromXml(xml);
+            selector = BuildSelectorParameter.getCachedSelectorFromXml(xml);
         } catch (Exception e) {
             LOG.log(Level.SEVERE, String.format("Failed to resolve selector: %s", xml), e);
             return null;
@@ -76,13 +76,15 @@ public class ParameterizedBuildSelector extends BuildSelector {
      * <ol>
      *   <li>Considers an immediate value if contains '&lt;'.
      *       This is expected to be used in especially in workflow jobs.</li>
+     *   <li>Considers an immediate value if in the form of {@code symbol(...)}
+     *       and {@link BuildSelectorParameter#USE_COMPACT_VALUE} is set.</li>
      *   <li>Otherwise, considers a variable expression if contains '$'.
      *       This is to keep the compatibility of usage between workflow jobs and non-workflow jobs.</li>
      *   <li>Otherwise, considers a variable name.</li>
      * </ol>
      * 
      * @param env
-     * @return xstream expression.
+     * @return xstream or symbol expression.
      */
     private String resolveParameter(EnvVars env) {
         if (StringUtils.isBlank(getParameterName())) {
@@ -93,6 +95,10 @@ public class ParameterizedBuildSelector extends BuildSelector {
             LOG.log(Level.FINEST, "{0} is considered a xstream expression", getParameterName());
             return getParameterName();
         }
+        if (BuildSelectorParameter.USE_COMPACT_VALUE && CompactBuildSelectorFormat.isCompact(getParameterName())) {
+            LOG.log(Level.FINEST, "{0} is considered a symbol expression", getParameterName());
+            return getParameterName();
+        }
         if (getParameterName().contains("$")) {
             LOG.log(Level.FINEST, "{0} is considered a variable expression", getParameterName());
             return env.expand(getParameterName());
@@ -60,6 +60,11 @@ public class PermalinkBuildSelector extends BuildSelector {
         return (run != null && filter.isSelectable(run, env)) ? run : null;
     }
 
+    @Override
+    public boolean isSelectableAtQueueTime() {
+        return true;
+    }
+
     @Extension @Symbol("permalink")
     public static class DescriptorImpl extends Descriptor<BuildSelector> {
         @Override
@@ -0,0 +1,78 @@
+package hudson.plugins.copyartifact;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import hudson.model.InvisibleAction;
+import hudson.model.Job;
+import hudson.model.Run;
+
+/**
+ * Builds selected when the copier build was queued, used instead of selecting again.
+ * Recorded in build.xml to tell what was copied.
+ *
+ * @see QueueTimeSelection
+ */
+final class PinnedBuildsAction extends InvisibleAction {
+    /**
+     * key to the externalizable ID of the selected build.
+     */
+    private final Map<String, String> pinned = new HashMap<>();
+
+    /**
+     * keys of artifacts of selected builds in {@link AgentArtifactCache},
+     * to prefer nodes with those artifacts staged.
+     */
+    // Decided not to record this data in build.xml, so marked transient:
+    private transient Set<String> keys;
+
+    synchronized void pin(@NonNull String key, @NonNull Run<?, ?> run) {
+        pinned.put(key, run.getExternalizableId());
+        if (keys == null) {
+            keys = new HashSet<>();
+        }
+        keys.addAll(AgentArtifactCache.getKeys(run));
+    }
+
+    synchronized boolean isEmpty() {
+        return pinned.isEmpty();
+    }
+
+    /**
+     * @return keys of artifacts of selected builds in {@link AgentArtifactCache}.
+     */
+    @NonNull
+    synchronized Set<String> getKeys() {
+        return (keys != null) ? new HashSet<>(keys) : Collections.emptySet();
+    }
+
+    /**
+     * @param build the copier build.
+     * @param job the job to copy from.
+     * @param key the key from {@link QueueTimeSelection#getPinKey(BuildSelector, Job, String)}.
+     * @return the build selected when the copier build was queued, if any.
+     */
+    @CheckForNull
+    static Run<?, ?> getPinned(@NonNull Run<?, ?> build, @NonNull Job<?, ?> job, @NonNull String key) {
+        PinnedBuildsAction action = build.getAction(PinnedBuildsAction.class);
+        if (action == null) {
+            return null;
+        }
+        String id;
+        synchronized (action) {
+            id = action.pinned.get(key);
+        }
+        if (id == null) {
+            return null;
+        }
+        // null if deleted or not permitted to read.
+        Run<?, ?> run = Run.fromExternalizableId(id);
+        return (run != null && run.getParent() == job) ? run : null;
+    }
+}
@@ -0,0 +1,132 @@
+package hudson.plugins.copyartifact;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.model.AbstractBuild;
+import hudson.model.Executor;
+import hudson.model.Job;
+import hudson.model.Node;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import jenkins.model.Jenkins;
+import jenkins.util.VirtualFile;
+import org.apache.commons.lang3.StringUtils;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Transfers artifacts of builds selected at queue time
+ * to the node where the copier build runs, for {@link CopyArtifact#isPrefetch()}.
+ *
+ * Artifacts are listed and transferred in background with the authentication of the copier build,
+ * not to delay the start of the build.
+ */
+@Restricted(NoExternalUse.class)
+public final class Prefetcher {
+    private static final Logger LOGGER = Logger.getLogger(Prefetcher.class.getName());
+
+    private Prefetcher() {
+    }
+
+    /**
+     * Start transferring artifacts of the build selected at queue time.
+     * Only artifacts with recorded fingerprints are transferred,
+     * and copied within the node when the copier runs.
+     *
+     * @param copier the copier to prefetch for
+     * @param build the copier build
+     * @param node the node where the copier build runs
+     */
+    private static void prefetch(@NonNull CopyArtifact copier, @NonNull AbstractBuild<?, ?> build, @NonNull Node node) throws IOException, InterruptedException {
+        EnvVars env = QueueTimeSelection.getQueueTimeEnvironment(build);
+        String expandedProject = env.expand(copier.getProjectName());
+        String expandedParameters = (copier.getParameters() != null) ? env.expand(copier.getParameters()) : null;
+        String expandedFilter = env.expand(StringUtils.defaultString(copier.getFilter()));
+        String expandedExcludes = env.expand(StringUtils.defaultString(copier.getExcludes()));
+        if (expandedProject.contains("$") || expandedFilter.contains("$") || expandedExcludes.contains("$")) {
+            // refers variables not available yet.
+            return;
+        }
+        Job<?, ?> job = Jenkins.get().getItem(expandedProject, CopyArtifact.getRootProject(build.getParent()).getParent(), Job.class);
+        if (job == null) {
+            return;
+        }
+        BuildSelector selector = copier.getSelector();
+        Run<?, ?> src = PinnedBuildsAction.getPinned(build, job, QueueTimeSelection.getPinKey(selector, job, expandedParameters));
+        if (src == null || !CopyArtifact.canReadFrom(job, build) || !CopyArtifact.canReadArtifact(src, build)) {
+            return;
+        }
+        Map<String, String> records = AgentArtifactCache.getDigests(src);
+        if (records.isEmpty()) {
+            return;
+        }
+        VirtualFile srcDir = selector.getArtifacts(src, TaskListener.NULL.getLogger());
+        if (srcDir == null) {
+            return;
+        }
+        if (expandedFilter.trim().length() == 0) {
+            expandedFilter = "**";
+        }
+        Collection<String> list = srcDir.list(
+                expandedFilter.replace('\\', '/'),
+                StringUtils.isBlank(expandedExcludes) ? null : expandedExcludes.replace('\\', '/'),
+                false
+        );
+        for (Map.Entry<String, String> entry : AgentArtifactCache.resolveDigests(records, list).entrySet()) {
+            AgentArtifactCache.fetch(node, src.getParent(), srcDir.child(entry.getKey()), entry.getValue());
+        }
+    }
+
+    // Start transferring artifacts to nodes when copier builds start.
+    @Extension
+    public static final class RunListenerImpl extends RunListener<Run<?, ?>> {
+        @Override
+        public void onStarted(Run<?, ?> run, TaskListener listener) {
+            if (!(run instanceof AbstractBuild) || run.getAction(PinnedBuildsAction.class) == null) {
+                return;
+            }
+            Executor executor = run.getExecutor();
+            Node node = (executor != null) ? executor.getOwner().getNode() : null;
+            if (node == null) {
+                return;
+            }
+            AbstractBuild<?, ?> build = (AbstractBuild<?, ?>) run;
+            List<CopyArtifact> copiers = new ArrayList<>();
+            for (CopyArtifact copier : CopyArtifact.getCopyArtifactsInProject(build.getProject())) {
+                if (copier.isPrefetch()) {
+                    copiers.add(copier);
+                }
+            }
+            if (copiers.isEmpty()) {
+                return;
+            }
+            // permissions are tested just like the copier does when it runs.
+            Authentication auth = Jenkins.getAuthentication2();
+            AgentArtifactCache.execute(() -> {
+                try (ACLContext ctx = ACL.as2(auth)) {
+                    for (CopyArtifact copier : copiers) {
+                        prefetch(copier, build, node);
+                    }
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, String.format("Failed to prefetch artifacts for %s", build.getFullDisplayName()), e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package hudson.plugins.copyartifact;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.AbstractProject;
+import hudson.model.Actionable;
+import hudson.model.Items;
+import hudson.model.Job;
+import hudson.model.ParameterValue;
+import hudson.model.ParametersAction;
+import hudson.model.Queue;
+import hudson.model.Run;
+import hudson.model.queue.CauseOfBlockage;
+import hudson.model.queue.QueueListener;
+import hudson.model.queue.QueueTaskDispatcher;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import jenkins.model.Jenkins;
+import jenkins.util.Timer;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Selects builds to copy artifacts from when copier builds are queued,
+ * for {@link CopyArtifact#isSelectAtQueueTime()} and {@link CopyArtifact#isPrefetch()},
+ * and records them with {@link PinnedBuildsAction}.
+ *
+ * The selection runs in background not to block the queue,
+ * and the queued build is held by {@link DispatcherImpl} until it finishes,
+ * so it never starts (or is assigned to a node) before the selected builds are recorded.
+ */
+@Restricted(NoExternalUse.class)
+public final class QueueTimeSelection {
+    private static final Logger LOGGER = Logger.getLogger(QueueTimeSelection.class.getName());
+
+    /**
+     * IDs of queue items whose builds to copy from are being selected.
+     */
+    private static final Set<Long> PENDING = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Serialized selectors, not to serialize them for each lookup.
+     */
+    private static final Map<BuildSelector, String> SELECTOR_KEYS = new WeakHashMap<>();
+
+    private QueueTimeSelection() {
+    }
+
+    /**
+     * @param selector the selector of the copier.
+     * @param job the job to copy from.
+     * @param expandedParameters the parameter filter of the copier.
+     * @return the key to identify the build selected at queue time.
+     */
+    @NonNull
+    static String getPinKey(@NonNull BuildSelector selector, @NonNull Job<?, ?> job, @CheckForNull String expandedParameters) {
+        String selectorKey;
+        synchronized (SELECTOR_KEYS) {
+            selectorKey = SELECTOR_KEYS.computeIfAbsent(selector, Items.XSTREAM2::toXML);
+        }
+        return job.getFullName() + '\n' + Util.fixNull(expandedParameters) + '\n' + selectorKey;
+    }
+
+    /**
+     * @param actionable a queued build or the build started from it.
+     * @return variables available when the build is queued, that is, build parameters.
+     */
+    @NonNull
+    static EnvVars getQueueTimeEnvironment(@NonNull Actionable actionable) {
+        EnvVars env = new EnvVars();
+        ParametersAction pa = actionable.getAction(ParametersAction.class);
+        if (pa != null) {
+            for (ParameterValue pv : pa.getParameters()) {
+                Object value = pv.getValue();
+                // not to expose sensitive values like passwords.
+                if (value instanceof String || value instanceof Boolean || value instanceof Number) {
+                    env.put(pv.getName(), value.toString());
+                }
+            }
+        }
+        return env;
+    }
+
+    /**
+     * Select the build to copy from for a queued build.
+     * Only build parameters are available to expand variables.
+     *
+     * @param copier the copy step
+     * @param owner the copier project
+     * @param item the queued build
+     * @param action records the selected build
+     */
+    private static void select(@NonNull CopyArtifact copier, @NonNull AbstractProject<?, ?> owner, @NonNull Queue.Item item, @NonNull PinnedBuildsAction action) {
+        BuildSelector selector = copier.getSelector();
+        if (copier.getBuildCount() > 1 || !selector.isSelectableAtQueueTime()) {
+            // only single builds are selected at queue time.
+            return;
+        }
+        EnvVars env = getQueueTimeEnvironment(item);
+        String expandedProject = env.expand(copier.getProjectName());
+        String expandedParameters = (copier.getParameters() != null) ? env.expand(copier.getParameters()) : null;
+        if (expandedProject.contains("$") || (expandedParameters != null && expandedParameters.contains("$"))) {
+            // refers variables not available at queue time.
+            return;
+        }
+        Job<?, ?> job = Jenkins.get().getItem(expandedProject, CopyArtifact.getRootProject(owner).getParent(), Job.class);
+        if (job == null) {
+            return;
+        }
+        Run<?, ?> src = selector.getBuild(
+                job,
+                env,
+                (expandedParameters != null) ? new ParametersBuildFilter(expandedParameters) : new BuildFilter(),
+                null
+        );
+        if (src != null) {
+            action.pin(getPinKey(selector, job, expandedParameters), src);
+        }
+    }
+
+    // Select builds to copy from when builds are queued.
+    @Extension
+    public static final class QueueListenerImpl extends QueueListener {
+        @Override
+        public void onEnterWaiting(Queue.WaitingItem wi) {
+            if (!(wi.task instanceof AbstractProject)) {
+                return;
+            }
+            AbstractProject<?, ?> owner = (AbstractProject<?, ?>) wi.task;
+            List<CopyArtifact> copiers = new ArrayList<>();
+            for (CopyArtifact copier : CopyArtifact.getCopyArtifactsInProject(owner)) {
+                if (copier.isSelectedAtQueueTime()) {
+                    copiers.add(copier);
+                }
+            }
+            if (copiers.isEmpty()) {
+                return;
+            }
+            Authentication auth = wi.authenticate2();
+            long id = wi.getId();
+            // held by DispatcherImpl until selected.
+            PENDING.add(id);
+            // not to block the queue.
+            Timer.get().submit(() -> {
+                try (ACLContext ctx = ACL.as2(auth)) {
+                    PinnedBuildsAction action = new PinnedBuildsAction();
+                    for (CopyArtifact copier : copiers) {
+                        select(copier, owner, wi, action);
+                    }
+                    // the item may have moved to another state.
+                    Queue.Item item = Queue.getInstance().getItem(id);
+                    if (!action.isEmpty() && item != null) {
+                        item.addAction(action);
+                    }
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, String.format("Failed to select builds to copy from for %s", owner.getFullName()), e);
+                } finally {
+                    PENDING.remove(id);
+                    Queue.getInstance().scheduleMaintenance();
+                }
+            });
+        }
+
+        @Override
+        public void onLeft(Queue.LeftItem li) {
+            // e.g. cancelled
+            PENDING.remove(li.getId());
+        }
+    }
+
+    // Hold queued builds until builds to copy from are selected.
+    @Extension
+    public static final class DispatcherImpl extends QueueTaskDispatcher {
+        @Override
+        public CauseOfBlockage canRun(Queue.Item item) {
+            if (PENDING.contains(item.getId())) {
+                return CauseOfBlockage.fromMessage(Messages._CopyArtifact_SelectingAtQueueTime());
+            }
+            return null;
+        }
+    }
+}
@@ -51,6 +51,11 @@ public class SavedBuildSelector extends BuildSelector {
     @Deprecated
     public static /*almost final*/ Descriptor<BuildSelector> DESCRIPTOR;
 
+    @Override
+    public boolean isSelectableAtQueueTime() {
+        return true;
+    }
+
     @Extension(ordinal=50) @Symbol("latestSavedBuild")
     public static final class DescriptorImpl extends SimpleBuildSelectorDescriptor {
         public DescriptorImpl() {
@@ -0,0 +1,38 @@
+package hudson.plugins.copyartifact;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import hudson.Util;
+import hudson.model.Run;
+import jenkins.scm.api.SCMRevision;
+import jenkins.scm.api.SCMRevisionAction;
+
+/**
+ * Reads revisions recorded for builds of branch projects (e.g. multibranch Pipelines).
+ * Separated from {@link ScmRevisionIndex} as the scm-api plugin might not be installed.
+ */
+final class ScmRevisionActions {
+    private ScmRevisionActions() {
+    }
+
+    /**
+     * @param run a build.
+     * @return revisions recorded with {@link SCMRevisionAction}, e.g. Git commit IDs.
+     */
+    @NonNull
+    static Set<String> getRevisions(@NonNull Run<?,?> run) {
+        Set<String> revisions = new HashSet<>();
+        for (SCMRevisionAction action : run.getActions(SCMRevisionAction.class)) {
+            SCMRevision revision = action.getRevision();
+            // e.g. the commit ID for Git.
+            String r = Util.fixEmptyAndTrim(revision.toString());
+            if (r != null) {
+                revisions.add(r);
+            }
+        }
+        return revisions;
+    }
+}
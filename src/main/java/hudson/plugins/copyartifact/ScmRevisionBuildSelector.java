@@ -0,0 +1,110 @@
+package hudson.plugins.copyartifact;
+
+import java.util.Collections;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.Descriptor;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import hudson.util.FormValidation;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+/**
+ * Select the newest build performed for the specified SCM revision (e.g. a Git commit ID).
+ *
+ * Looks up builds through an index from revisions to build numbers
+ * instead of scanning SCM data of all builds.
+ */
+public class ScmRevisionBuildSelector extends BuildSelector {
+    private static final Logger LOGGER = Logger.getLogger(ScmRevisionBuildSelector.class.getName());
+
+    private final String revision;
+
+    /**
+     * @param revision the SCM revision. May include variable expressions.
+     */
+    @DataBoundConstructor
+    public ScmRevisionBuildSelector(String revision) {
+        this.revision = Util.fixNull(revision).trim();
+    }
+
+    /**
+     * @return the SCM revision. May include variable expressions.
+     */
+    public String getRevision() {
+        return revision;
+    }
+
+    @Override
+    protected Iterable<Run<?,?>> getCandidates(Job<?,?> job, EnvVars env, Run<?,?> parent) {
+        String expandedRevision = Util.fixEmptyAndTrim(env.expand(getRevision()));
+        if (expandedRevision == null) {
+            LOGGER.log(Level.FINE, "No revision is specified: {0}", getRevision());
+            return Collections.emptyList();
+        }
+        return BuildCandidates.byNumbers(job, ScmRevisionIndex.lookup(job, expandedRevision));
+    }
+
+    @Override
+    public boolean isSelectable(Run<?,?> run, EnvVars env) {
+        if (run.isBuilding()) {
+            // the index includes running builds when built.
+            return false;
+        }
+        // the index may be stale.
+        String expandedRevision = Util.fixEmptyAndTrim(env.expand(getRevision()));
+        return expandedRevision != null && ScmRevisionIndex.matches(run, expandedRevision);
+    }
+
+    @Override
+    public boolean isSelectableAtQueueTime() {
+        return true;
+    }
+
+    /**
+     * Keeps {@link ScmRevisionIndex} up to date.
+     */
+    @Extension
+    public static final class RunListenerImpl extends RunListener<Run<?,?>> {
+        @Override
+        public void onCompleted(Run<?,?> run, @NonNull TaskListener listener) {
+            ScmRevisionIndex.onCompleted(run);
+        }
+
+        @Override
+        public void onDeleted(Run<?,?> run) {
+            ScmRevisionIndex.onDeleted(run);
+        }
+    }
+
+    @Extension @Symbol("scmRevision")
+    public static class DescriptorImpl extends Descriptor<BuildSelector> {
+        @Override
+        public String getDisplayName() {
+            return Messages.ScmRevisionBuildSelector_DisplayName();
+        }
+
+        /**
+         * Validates a form input to "Revision"
+         *
+         * @param revision the SCM revision.
+         * @return the form validation result.
+         */
+        public FormValidation doCheckRevision(@QueryParameter String revision) {
+            if (Util.fixEmptyAndTrim(revision) == null) {
+                return FormValidation.error(Messages.ScmRevisionBuildSelector_Revision_Required());
+            }
+            return FormValidation.ok();
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package hudson.plugins.copyartifact;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import hudson.Util;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.scm.SCM;
+import hudson.util.AtomicFileWriter;
+import jenkins.model.Jenkins;
+import jenkins.scm.RunWithSCM;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Index from SCM revisions to build numbers of each job.
+ *
+ * Only the revision each build is performed for is indexed
+ * (e.g. {@code GIT_COMMIT} contributed by the SCM, or the revision of a branch project),
+ * not commits in its changes.
+ *
+ * The index of a job is built when the job is looked up for the first time,
+ * by reading the revisions of all its builds once, and saved as {@value #FILE_NAME} in the directory of the job.
+ * After that, {@link ScmRevisionBuildSelector.RunListenerImpl} appends each completed build to the file,
+ * and prunes deleted builds from it.
+ * Jobs never looked up are not indexed, and their builds are left untouched.
+ * Entries can still be stale (e.g. for builds deleted while Jenkins was down),
+ * and should be verified with {@link #matches(Run, String)}.
+ */
+final class ScmRevisionIndex {
+    private static final Logger LOGGER = Logger.getLogger(ScmRevisionIndex.class.getName());
+
+    static final String FILE_NAME = "copyartifact-scm-revisions.txt";
+
+    /**
+     * Variables holding the revision a build is performed for, contributed by SCM plugins.
+     */
+    private static final String[] REVISION_VARIABLES = {"GIT_COMMIT", "SVN_REVISION", "MERCURIAL_REVISION"};
+
+    /**
+     * Minimum length to look up by a prefix, just like abbreviated commit IDs of Git.
+     */
+    private static final int MIN_PREFIX_LENGTH = 7;
+
+    /**
+     * Indexes of jobs. Guards only the map: each index guards its own contents and file.
+     */
+    private static final Map<Job<?,?>, ScmRevisionIndex> INDEXES = new WeakHashMap<>();
+
+    private final File file;
+
+    /**
+     * revision to build numbers.
+     */
+    private final NavigableMap<String, SortedSet<Integer>> revisions = new TreeMap<>();
+
+    /**
+     * build number to revisions, to rewrite the file.
+     */
+    private final NavigableMap<Integer, Set<String>> builds = new TreeMap<>();
+
+    private boolean loaded;
+
+    /**
+     * Lines in the file for builds no longer indexed.
+     */
+    private int staleLines;
+
+    private ScmRevisionIndex(@NonNull Job<?,?> job) {
+        this.file = new File(job.getRootDir(), FILE_NAME);
+    }
+
+    /**
+     * @return the index of the job, built or loaded if not yet.
+     */
+    @NonNull
+    private static ScmRevisionIndex of(@NonNull Job<?,?> job) {
+        ScmRevisionIndex index;
+        synchronized (INDEXES) {
+            index = INDEXES.computeIfAbsent(job, ScmRevisionIndex::new);
+        }
+        synchronized (index) {
+            if (!index.loaded) {
+                if (index.file.exists()) {
+                    index.load();
+                } else {
+                    index.build(job);
+                }
+                index.loaded = true;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return the index of the job if the job is indexed, without building it.
+     */
+    private static ScmRevisionIndex ifIndexed(@NonNull Job<?,?> job) {
+        boolean indexed;
+        synchronized (INDEXES) {
+            indexed = INDEXES.containsKey(job);
+        }
+        return (indexed || new File(job.getRootDir(), FILE_NAME).exists()) ? of(job) : null;
+    }
+
+    private void load() {
+        try {
+            // each line is a build number followed by its revisions.
+            for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                String[] fields = line.trim().split(" ");
+                if (fields.length < 2) {
+                    continue;
+                }
+                int number;
+                try {
+                    number = Integer.parseInt(fields[0]);
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                Set<String> r = new HashSet<>();
+                for (int i = 1; i < fields.length; i++) {
+                    r.add(fields[i]);
+                }
+                if (add(number, r)) {
+                    staleLines++;
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, String.format("Failed to load SCM revisions from %s", file), e);
+        }
+    }
+
+    private void build(@NonNull Job<?,?> job) {
+        LOGGER.log(Level.FINE, "Indexing SCM revisions of {0}", job.getFullName());
+        // includes running builds, which may complete before this index is published.
+        for (Run<?,?> run : job.getBuilds()) {
+            add(run.getNumber(), getRevisions(run));
+        }
+        save();
+    }
+
+    /**
+     * Rewrites the file with the current contents.
+     */
+    private void save() {
+        try {
+            AtomicFileWriter w = new AtomicFileWriter(file.toPath(), StandardCharsets.UTF_8);
+            try {
+                for (Map.Entry<Integer, Set<String>> e : builds.entrySet()) {
+                    w.write(toLine(e.getKey(), e.getValue()));
+                }
+                w.commit();
+            } finally {
+                w.abort();
+            }
+            staleLines = 0;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, String.format("Failed to save SCM revisions to %s", file), e);
+        }
+    }
+
+    private static String toLine(int number, Set<String> revisions) {
+        StringBuilder line = new StringBuilder().append(number);
+        for (String revision : revisions) {
+            line.append(' ').append(revision);
+        }
+        return line.append('\n').toString();
+    }
+
+    /**
+     * Look up builds for a revision.
+     * Builds the index of the job if not yet.
+     *
+     * @param job the job to look up.
+     * @param revision a revision. Git commit IDs can be abbreviated.
+     * @return build numbers, newest first.
+     */
+    @NonNull
+    static List<Integer> lookup(@NonNull Job<?,?> job, @NonNull String revision) {
+        ScmRevisionIndex index = of(job);
+        synchronized (index) {
+            SortedSet<Integer> numbers = index.revisions.get(revision);
+            if (numbers != null) {
+                return reverse(numbers);
+            }
+            if (revision.length() < MIN_PREFIX_LENGTH) {
+                return Collections.emptyList();
+            }
+            SortedSet<Integer> matched = new TreeSet<>();
+            for (SortedSet<Integer> n : index.revisions.subMap(revision, true, revision + Character.MAX_VALUE, false).values()) {
+                matched.addAll(n);
+            }
+            return reverse(matched);
+        }
+    }
+
+    private static List<Integer> reverse(SortedSet<Integer> numbers) {
+        List<Integer> result = new ArrayList<>(numbers);
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Test whether a build is performed for a revision, not to trust stale entries of the index.
+     *
+     * @param run a completed build.
+     * @param revision a revision. Git commit IDs can be abbreviated.
+     * @return whether the build is performed for the revision.
+     */
+    static boolean matches(@NonNull Run<?,?> run, @NonNull String revision) {
+        for (String r : getRevisions(run)) {
+            if (r.equals(revision) || (revision.length() >= MIN_PREFIX_LENGTH && r.startsWith(revision))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Records the revision of a completed build if the job is indexed.
+     *
+     * @param run the completed build.
+     */
+    static void onCompleted(@NonNull Run<?,?> run) {
+        ScmRevisionIndex index = ifIndexed(run.getParent());
+        if (index == null) {
+            return;
+        }
+        Set<String> revisions = getRevisions(run);
+        if (revisions.isEmpty()) {
+            return;
+        }
+        synchronized (index) {
+            if (index.add(run.getNumber(), revisions)) {
+                // rebuilt with the same number, e.g. restored from a backup.
+                index.staleLines++;
+            }
+            try {
+                Files.write(index.file.toPath(), toLine(run.getNumber(), revisions).getBytes(StandardCharsets.UTF_8),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, String.format("Failed to record SCM revisions of %s", run), e);
+            }
+        }
+    }
+
+    /**
+     * Forgets a deleted build if the job is indexed.
+     * The file is rewritten when it has more lines for deleted builds than for existing ones.
+     *
+     * @param run the deleted build.
+     */
+    static void onDeleted(@NonNull Run<?,?> run) {
+        ScmRevisionIndex index = ifIndexed(run.getParent());
+        if (index == null) {
+            return;
+        }
+        synchronized (index) {
+            if (index.remove(run.getNumber())) {
+                index.staleLines++;
+                if (index.staleLines > index.builds.size()) {
+                    index.save();
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets the loaded index of a job.
+     * Package scope for testing purpose.
+     */
+    static void unload(@NonNull Job<?,?> job) {
+        synchronized (INDEXES) {
+            INDEXES.remove(job);
+        }
+    }
+
+    /**
+     * @return whether the build was already indexed, and replaced.
+     */
+    private boolean add(int number, @NonNull Set<String> r) {
+        boolean replaced = remove(number);
+        if (!r.isEmpty()) {
+            builds.put(number, r);
+            for (String revision : r) {
+                revisions.computeIfAbsent(revision, k -> new TreeSet<>()).add(number);
+            }
+        }
+        return replaced;
+    }
+
+    private boolean remove(int number) {
+        Set<String> r = builds.remove(number);
+        if (r == null) {
+            return false;
+        }
+        for (String revision : r) {
+            SortedSet<Integer> numbers = revisions.get(revision);
+            if (numbers != null && numbers.remove(number) && numbers.isEmpty()) {
+                revisions.remove(revision);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads only actions of the build, not its changelog nor its full environment.
+     *
+     * @param run a completed build.
+     * @return revisions the build is performed for.
+     */
+    @NonNull
+    private static Set<String> getRevisions(@NonNull Run<?,?> run) {
+        Set<String> revisions = new HashSet<>();
+        if (run instanceof RunWithSCM) {
+            for (SCM scm : ((RunWithSCM<?,?>) run).getSCMs()) {
+                // e.g. GitSCM contributes GIT_COMMIT from BuildData of the build.
+                Map<String, String> env = new HashMap<>();
+                scm.buildEnvironment(run, env);
+                for (String name : REVISION_VARIABLES) {
+                    String revision = Util.fixEmptyAndTrim(env.get(name));
+                    if (revision != null) {
+                        revisions.add(revision);
+                    }
+                }
+            }
+        }
+        if (Jenkins.get().getPlugin("scm-api") != null) {
+            revisions.addAll(ScmRevisionActions.getRevisions(run));
+        }
+        // not to break the format of the file.
+        revisions.removeIf(StringUtils::containsWhitespace);
+        return revisions;
+    }
+}
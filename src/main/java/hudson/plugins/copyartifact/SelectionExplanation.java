@@ -0,0 +1,240 @@
+package hudson.plugins.copyartifact;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import hudson.EnvVars;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.RunMap;
+import hudson.model.TaskListener;
+import jenkins.model.lazy.LazyBuildMixIn;
+
+/**
+ * Records what happens while copying artifacts, for the "explain" option of {@link CopyArtifact}:
+ * builds inspected, loaded from the disk and rejected in the selection, and time spent in each phase.
+ *
+ * Recording of the selection is enabled with {@link #activate()}
+ * for the thread selecting the build. Methods are thread safe as
+ * builds may be tested concurrently.
+ */
+final class SelectionExplanation {
+    /**
+     * How many rejected builds to report at most.
+     */
+    private static final int MAX_REJECTIONS = 100;
+
+    private static final ThreadLocal<SelectionExplanation> CURRENT = new ThreadLocal<>();
+
+    private final Set<String> inspected = new HashSet<>();
+    private final List<String> rejections = new ArrayList<>();
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private int loaded = -1;
+    private String currentPhase;
+    private long phaseStartNanos;
+
+    /**
+     * @return the explanation recording the selection in this thread, if any.
+     */
+    @CheckForNull
+    static SelectionExplanation current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Scope of recording the selection.
+     */
+    interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Enables recording the selection in this thread.
+     *
+     * @return closes to disable recording.
+     */
+    @NonNull
+    Scope activate() {
+        SelectionExplanation old = CURRENT.get();
+        CURRENT.set(this);
+        return () -> CURRENT.set(old);
+    }
+
+    /**
+     * Ends the current phase, and starts a new one.
+     *
+     * @param phase the name of the phase.
+     */
+    synchronized void beginPhase(@NonNull String phase) {
+        endPhase();
+        currentPhase = phase;
+        phaseStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Ends the current phase, if any.
+     */
+    synchronized void endPhase() {
+        if (currentPhase != null) {
+            phases.merge(currentPhase, System.nanoTime() - phaseStartNanos, Long::sum);
+            currentPhase = null;
+        }
+    }
+
+    private synchronized void recordLoaded(int count) {
+        loaded = Math.max(loaded, 0) + count;
+    }
+
+    /**
+     * Counts builds loaded from the disk while iterating candidates of a job.
+     * Compares how many builds of the job are loaded before and after each step of the iteration,
+     * so builds loaded by others in the meantime may be counted too.
+     *
+     * @param job the job the candidates are from.
+     * @param candidates the candidates.
+     * @return the candidates counting loaded builds, or {@code candidates} if the job doesn't load builds lazily.
+     */
+    @NonNull
+    Iterator<Run<?,?>> countLoads(@NonNull Job<?,?> job, @NonNull Iterator<Run<?,?>> candidates) {
+        if (!(job instanceof LazyBuildMixIn.LazyLoadingJob)) {
+            return candidates;
+        }
+        RunMap<?> runs = ((LazyBuildMixIn.LazyLoadingJob<?,?>) job).getLazyBuildMixIn()._getRuns();
+        recordLoaded(0);
+        return new Iterator<Run<?,?>>() {
+            @Override
+            public boolean hasNext() {
+                // may load builds to look ahead.
+                int before = runs.getLoadedBuilds().size();
+                boolean result = candidates.hasNext();
+                recordLoaded(Math.max(runs.getLoadedBuilds().size() - before, 0));
+                return result;
+            }
+
+            @Override
+            public Run<?,?> next() {
+                int before = runs.getLoadedBuilds().size();
+                Run<?,?> result = candidates.next();
+                recordLoaded(Math.max(runs.getLoadedBuilds().size() - before, 0));
+                return result;
+            }
+        };
+    }
+
+    private synchronized void record(@NonNull Run<?,?> run, @CheckForNull String rejectedBy) {
+        inspected.add(run.getExternalizableId());
+        if (rejectedBy == null) {
+            return;
+        }
+        if (rejections.size() < MAX_REJECTIONS) {
+            rejections.add(Messages.CopyArtifact_Explain_Rejected(run.getFullDisplayName(), rejectedBy));
+        } else if (rejections.size() == MAX_REJECTIONS) {
+            rejections.add(Messages.CopyArtifact_Explain_MoreRejected());
+        }
+    }
+
+    private static String nameOf(@NonNull Object o) {
+        String name = o.getClass().getSimpleName();
+        // anonymous classes
+        return name.isEmpty() ? o.getClass().getName() : name;
+    }
+
+    /**
+     * Test a candidate with {@link BuildSelector#isCandidate(Run, EnvVars)} and record the result.
+     */
+    boolean testCandidate(@NonNull BuildSelector selector, @NonNull Run<?,?> run, @NonNull EnvVars env) {
+        boolean result = selector.isCandidate(run, env);
+        record(run, result ? null : nameOf(selector));
+        return result;
+    }
+
+    /**
+     * Test a candidate with {@link BuildSelector#isSelectable(Run, EnvVars)} and record the result.
+     */
+    boolean testSelectable(@NonNull BuildSelector selector, @NonNull Run<?,?> run, @NonNull EnvVars env) {
+        boolean result = selector.isSelectable(run, env);
+        record(run, result ? null : nameOf(selector));
+        return result;
+    }
+
+    /**
+     * @param filter the filter to record results of.
+     * @return a filter recording results of {@code filter}.
+     */
+    @NonNull
+    BuildFilter wrap(@NonNull BuildFilter filter) {
+        return new BuildFilter() {
+            @Override
+            public boolean isSelectable(Run<?,?> run, EnvVars env) {
+                boolean result = filter.isSelectable(run, env);
+                record(run, result ? null : nameOf(filter));
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Records a selection of builds.
+     *
+     * @param select performs the selection, applying the given decorator to the {@link BuildFilter}.
+     * @return the result of the selection.
+     */
+    <T> T select(@NonNull Function<UnaryOperator<BuildFilter>, T> select) {
+        beginPhase(Messages.CopyArtifact_Explain_SelectingBuild());
+        try (Scope scope = activate()) {
+            return select.apply(this::wrap);
+        }
+    }
+
+    /**
+     * Reports to the console and {@link CopyArtifactExplanationAction}.
+     *
+     * @param build the copier build.
+     * @param listener the listener of the copy.
+     * @param projectName the name of the source project as configured.
+     */
+    void report(@NonNull Run<?,?> build, @NonNull TaskListener listener, @NonNull String projectName) {
+        List<String> lines = toLines();
+        PrintStream console = listener.getLogger();
+        console.println(Messages.CopyArtifact_Explain_Header(projectName));
+        for (String line : lines) {
+            console.println("  " + line);
+        }
+        CopyArtifactExplanationAction action = build.getAction(CopyArtifactExplanationAction.class);
+        if (action == null) {
+            action = new CopyArtifactExplanationAction();
+            build.addAction(action);
+        }
+        action.add(projectName, lines);
+    }
+
+    /**
+     * @return the report.
+     */
+    @NonNull
+    synchronized List<String> toLines() {
+        endPhase();
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            lines.add(Messages.CopyArtifact_Explain_Phase(phase.getKey(), TimeUnit.NANOSECONDS.toMillis(phase.getValue())));
+        }
+        lines.add((loaded >= 0)
+                ? Messages.CopyArtifact_Explain_Inspected(inspected.size(), loaded)
+                : Messages.CopyArtifact_Explain_InspectedUnknownLoaded(inspected.size()));
+        lines.addAll(rejections);
+        return lines;
+    }
+}
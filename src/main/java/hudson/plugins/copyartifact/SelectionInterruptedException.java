@@ -0,0 +1,25 @@
+package hudson.plugins.copyartifact;
+
+/**
+ * Thrown from {@link BuildSelector#getBuild(hudson.model.Job, hudson.EnvVars, BuildFilter, hudson.model.Run)}
+ * when interrupted while testing builds concurrently,
+ * as it cannot throw {@link InterruptedException}.
+ *
+ * Distinguishes an aborted selection from no build found.
+ */
+public class SelectionInterruptedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public SelectionInterruptedException(InterruptedException cause) {
+        super(cause);
+    }
+
+    /**
+     * @return {@link InterruptedException} to rethrow in callers allowed to throw it.
+     */
+    public InterruptedException toInterruptedException() {
+        InterruptedException e = new InterruptedException(getMessage());
+        e.initCause(this);
+        return e;
+    }
+}
@@ -97,6 +97,11 @@ public class SpecificBuildSelector extends BuildSelector {
         return run;
     }
 
+    @Override
+    public boolean isSelectableAtQueueTime() {
+        return true;
+    }
+
     /**
      * @deprecated
      *      here for backward compatibility. Get it from {@link Jenkins#getDescriptor(Class)}
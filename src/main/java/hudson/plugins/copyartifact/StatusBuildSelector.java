@@ -71,6 +71,11 @@ public class StatusBuildSelector extends BuildSelector {
     @Deprecated
     public static /*almost final*/ Descriptor<BuildSelector> DESCRIPTOR;
 
+    @Override
+    public boolean isSelectableAtQueueTime() {
+        return true;
+    }
+
     @Extension(ordinal=100) @Symbol("lastSuccessful")
     public static final class DescriptorImpl extends SimpleBuildSelectorDescriptor {
         public DescriptorImpl() {
@@ -0,0 +1,237 @@
+package hudson.plugins.copyartifact;
+
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.Descriptor;
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.util.FormValidation;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+
+/**
+ * Copy artifacts from the latest successful or stable build completed as of the specified time.
+ *
+ * Builds are looked up with a binary search over build numbers,
+ * as start times of builds increase with build numbers.
+ * Only builds before the found point are loaded to test the build status.
+ */
+public class TimestampBuildSelector extends BuildSelector {
+    private static final Logger LOGGER = Logger.getLogger(TimestampBuildSelector.class.getName());
+    private static final Pattern RELATIVE_PATTERN = Pattern.compile("-?(\\d+)\\s*([smhdw])");
+
+    private final String time;
+    private boolean stable;
+
+    /**
+     * @param time the time to select the build as of. May include variable expressions.
+     *     See {@link #parseTime(String, long)} for the format.
+     */
+    @DataBoundConstructor
+    public TimestampBuildSelector(String time) {
+        this.time = Util.fixNull(time).trim();
+    }
+
+    /**
+     * @return the time to select the build as of. May include variable expressions.
+     */
+    public String getTime() {
+        return time;
+    }
+
+    /**
+     * @param stable {@code true} to select only stable builds.
+     */
+    @DataBoundSetter
+    public void setStable(boolean stable) {
+        this.stable = stable;
+    }
+
+    /**
+     * @return {@code true} to select only stable builds.
+     */
+    public boolean isStable() {
+        return stable;
+    }
+
+    @Override
+    protected Iterable<Run<?,?>> getCandidates(Job<?,?> job, EnvVars env, Run<?,?> parent) {
+        String expandedTime = env.expand(getTime());
+        Long asOf = parseTime(expandedTime, System.currentTimeMillis());
+        if (asOf == null) {
+            LOGGER.log(Level.WARNING, "Cannot parse the time: {0}", expandedTime);
+            return Collections.emptyList();
+        }
+        Run<?,?> start = findLastStartedBefore(job, asOf);
+        return () -> BuildCandidates.filter(
+                BuildCandidates.walk(start, run -> run.getPreviousBuild()).iterator(),
+                // not completed yet at that time.
+                run -> !run.isBuilding() && run.getStartTimeInMillis() + run.getDuration() <= asOf,
+                0
+        );
+    }
+
+    @Override
+    public boolean isSelectable(Run<?,?> run, EnvVars env) {
+        return isBuildResultBetterOrEqualTo(run, isStable() ? Result.SUCCESS : Result.UNSTABLE);
+    }
+
+    /**
+     * Binary search for the newest build started at or before the specified time.
+     *
+     * @param job the job to search.
+     * @param asOf the time in milliseconds.
+     * @return the newest build started at or before {@code asOf}, or {@code null} if no such build.
+     */
+    @CheckForNull
+    static Run<?,?> findLastStartedBefore(Job<?,?> job, long asOf) {
+        Run<?,?> first = job.getFirstBuild();
+        Run<?,?> last = job.getLastBuild();
+        if (first == null || last == null) {
+            return null;
+        }
+        Run<?,?> found = null;
+        int lo = first.getNumber();
+        int hi = last.getNumber();
+        while (lo <= hi) {
+            int mid = lo + (hi - lo) / 2;
+            Run<?,?> run = job.getNearestOldBuild(mid);
+            if (run == null || run.getNumber() < lo) {
+                // no builds in [lo, mid]
+                lo = mid + 1;
+            } else if (run.getStartTimeInMillis() <= asOf) {
+                found = run;
+                lo = mid + 1;
+            } else {
+                hi = run.getNumber() - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Parse the time to select builds as of. Accepts:
+     * <ul>
+     *   <li>milliseconds since the epoch: {@code 1792000000000}</li>
+     *   <li>date and time with an offset: {@code 2026-10-19T02:00:00+09:00}</li>
+     *   <li>date and time in the time zone of the controller: {@code 2026-10-19T02:00}</li>
+     *   <li>time of the day, the latest past one: {@code 02:00}</li>
+     *   <li>relative time in seconds, minutes, hours, days or weeks ago: {@code 12h}, {@code -30m}</li>
+     * </ul>
+     *
+     * @param value the value to parse.
+     * @param now the current time in milliseconds.
+     * @return the time in milliseconds, or {@code null} if the value cannot be parsed.
+     */
+    @CheckForNull
+    static Long parseTime(@CheckForNull String value, long now) {
+        value = Util.fixEmptyAndTrim(value);
+        if (value == null) {
+            return null;
+        }
+        if (value.matches("\\d+") && value.length() > 4) {
+            try {
+                return Long.valueOf(value);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        Matcher m = RELATIVE_PATTERN.matcher(value.toLowerCase(Locale.ENGLISH));
+        if (m.matches()) {
+            long amount = Long.parseLong(m.group(1));
+            Duration d;
+            switch (m.group(2)) {
+            case "s":
+                d = Duration.ofSeconds(amount);
+                break;
+            case "m":
+                d = Duration.ofMinutes(amount);
+                break;
+            case "h":
+                d = Duration.ofHours(amount);
+                break;
+            case "d":
+                d = Duration.ofDays(amount);
+                break;
+            default:
+                d = Duration.ofDays(amount * 7);
+                break;
+            }
+            return now - d.toMillis();
+        }
+        ZoneId zone = ZoneId.systemDefault();
+        try {
+            return OffsetDateTime.parse(value).toInstant().toEpochMilli();
+        } catch (DateTimeException e) {
+            // try another format
+        }
+        try {
+            return LocalDateTime.parse(value).atZone(zone).toInstant().toEpochMilli();
+        } catch (DateTimeException e) {
+            // try another format
+        }
+        try {
+            LocalTime t = LocalTime.parse(value);
+            ZonedDateTime today = ZonedDateTime.ofInstant(Instant.ofEpochMilli(now), zone).with(t);
+            long millis = today.toInstant().toEpochMilli();
+            return (millis <= now) ? millis : today.minusDays(1).toInstant().toEpochMilli();
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean isSelectableAtQueueTime() {
+        return true;
+    }
+
+    @Extension @Symbol("asOf")
+    public static class DescriptorImpl extends Descriptor<BuildSelector> {
+        @Override
+        public String getDisplayName() {
+            return Messages.TimestampBuildSelector_DisplayName();
+        }
+
+        /**
+         * Validates a form input to "Time"
+         *
+         * @param time the time to select the build as of.
+         * @return the form validation result.
+         */
+        public FormValidation doCheckTime(@QueryParameter String time) {
+            time = Util.fixEmptyAndTrim(time);
+            if (time == null) {
+                return FormValidation.error(Messages.TimestampBuildSelector_Time_Required());
+            }
+            if (time.indexOf('$') >= 0) {
+                // cannot validate variable expressions.
+                return FormValidation.ok();
+            }
+            if (parseTime(time, System.currentTimeMillis()) == null) {
+                return FormValidation.error(Messages.TimestampBuildSelector_Time_Invalid());
+            }
+            return FormValidation.ok();
+        }
+    }
+}
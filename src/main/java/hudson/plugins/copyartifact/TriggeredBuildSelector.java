@@ -23,10 +23,18 @@
  */
 package hudson.plugins.copyartifact;
 
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 import hudson.EnvVars;
 import hudson.Extension;
@@ -37,10 +45,14 @@ import hudson.model.Cause;
 import hudson.model.Cause.UpstreamCause;
 import hudson.model.Job;
 import hudson.model.Run;
+import hudson.tasks.Fingerprinter;
+import jenkins.util.SystemProperties;
 import net.sf.json.JSONObject;
 
 import org.jenkinsci.Symbol;
 import org.jvnet.localizer.Localizable;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.StaplerRequest2;
@@ -51,6 +63,15 @@ import org.kohsuke.stapler.StaplerRequest2;
  */
 public class TriggeredBuildSelector extends BuildSelector {
     private static final Logger LOGGER = Logger.getLogger(TriggeredBuildSelector.class.getName());
+
+    /**
+     * How many levels of upstream builds to follow when looking for a build of the source project.
+     * {@code 0} or less means no limit.
+     */
+    @Restricted(NoExternalUse.class)
+    @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "for script console")
+    public static int MAX_UPSTREAM_DEPTH = SystemProperties.getInteger(TriggeredBuildSelector.class.getName() + ".maxUpstreamDepth", 0);
+
     /**
      * Which build should be used if triggered by multiple upstream builds.
      * 
@@ -199,15 +220,106 @@ public class TriggeredBuildSelector extends BuildSelector {
 
     @Override
     public Run<?,?> getBuild(Job<?,?> job, EnvVars env, BuildFilter filter, Run<?,?> parent) {
-        Run<?,?> result = null;
+        return new UpstreamResolver(job, env, filter).resolve(parent, 0);
+    }
+
+    /**
+     * Walks the upstream causes of a build for a single selection.
+     *
+     * Each upstream build is resolved at most once, so diamond-shaped trigger graphs
+     * cost time linear in the number of distinct upstream builds.
+     * Builds already being resolved are skipped to break cycles,
+     * and the walk stops at {@link #MAX_UPSTREAM_DEPTH}.
+     * When the depth is limited, results are remembered for each depth,
+     * as a build reached with a shorter path can be walked further.
+     */
+    private class UpstreamResolver {
+        private final Job<?,?> job;
+        private final EnvVars env;
+        private final BuildFilter filter;
+        private final List<String> jobNames = new ArrayList<>();
+        private final boolean useNewest;
+        // resolved build for each visited upstream build (keyed by externalizable id and the depth if limited). may hold null.
+        private final Map<String, Run<?,?>> resolved = new HashMap<>();
+        private final Set<String> inProgress = new HashSet<>();
+        private boolean fallbackResolved;
+        private Run<?,?> fallback;
+
+        UpstreamResolver(Job<?,?> job, EnvVars env, BuildFilter filter) {
+            this.job = job;
+            this.env = env;
+            this.filter = filter;
+            this.useNewest = isUseNewest();
+
+            // Upstream job for matrix will be parent project, not only individual configuration:
+            jobNames.add(job.getFullName());
+            if ((job instanceof AbstractProject<?,?>) && ((AbstractProject<?,?>)job).getRootProject() != job) {
+                jobNames.add(((AbstractProject<?,?>)job).getRootProject().getFullName());
+            }
+        }
 
-        // Upstream job for matrix will be parent project, not only individual configuration:
-        List<String> jobNames = new ArrayList<>();
-        jobNames.add(job.getFullName());
-        if ((job instanceof AbstractProject<?,?>) && ((AbstractProject<?,?>)job).getRootProject() != job) {
-            jobNames.add(((AbstractProject<?,?>)job).getRootProject().getFullName());
+        Run<?,?> resolve(Run<?,?> parent, int depth) {
+            String id = parent.getExternalizableId();
+            String key = (MAX_UPSTREAM_DEPTH > 0) ? id + '#' + depth : id;
+            if (resolved.containsKey(key)) {
+                return resolved.get(key);
+            }
+            if (!inProgress.add(id)) {
+                LOGGER.log(Level.FINE, "Detected a cycle of upstream builds at {0}", parent.getFullDisplayName());
+                return null;
+            }
+            Run<?,?> result;
+            try {
+                result = doResolve(parent, depth);
+            } finally {
+                inProgress.remove(id);
+            }
+            resolved.put(key, result);
+            return result;
         }
 
+        private Run<?,?> doResolve(Run<?,?> parent, int depth) {
+            Run<?,?> result = null;
+
+            for (Run<?, ?> upstreamBuild : getUpstreamBuilds(parent)) {
+                Run<?,?> run;
+
+                if (jobNames.contains(upstreamBuild.getParent().getFullName())) {
+                    // Use the 'job' parameter instead of directly the 'upstreamBuild', because of Matrix jobs.
+                    run = job.getBuildByNumber(upstreamBuild.getNumber());
+                } else if (MAX_UPSTREAM_DEPTH > 0 && depth >= MAX_UPSTREAM_DEPTH) {
+                    LOGGER.log(Level.FINE, "Stopped scanning upstream builds of {0}: reached the maximum depth {1}",
+                            new Object[] {upstreamBuild.getFullDisplayName(), MAX_UPSTREAM_DEPTH});
+                    continue;
+                } else {
+                    // Figure out the parent job and resolve recursively
+                    run = resolve(upstreamBuild, depth + 1);
+                }
+
+                if (run != null && filter.isSelectable(run, env)){
+                    if (
+                            (result == null)
+                            || (useNewest && result.getNumber() < run.getNumber())
+                            || (!useNewest && result.getNumber() > run.getNumber())
+                    ) {
+                        result = run;
+                    }
+                }
+            }
+
+            if (result == null && isFallbackToLastSuccessful()) {
+                //TODO: Write to console, that fallback is used.
+                if (!fallbackResolved) {
+                    fallback = TriggeredBuildSelector.super.getBuild(job, env, filter, parent);
+                    fallbackResolved = true;
+                }
+                result = fallback;
+            }
+            return result;
+        }
+    }
+
+    private List<Run<?, ?>> getUpstreamBuilds(Run<?,?> parent) {
         List<Run<?, ?>> upstreamBuilds = new ArrayList<>();
 
         for (Cause cause: parent.getCauses()) {
@@ -223,42 +335,62 @@ public class TriggeredBuildSelector extends BuildSelector {
         if (isAllowUpstreamDependencies() && (parent instanceof AbstractBuild)) {
             AbstractBuild<?, ?> parentBuild = (AbstractBuild<?,?>)parent;
             
-            Map<AbstractProject, Integer> parentUpstreamBuilds = parentBuild.getUpstreamBuilds();
+            Map<AbstractProject, Integer> parentUpstreamBuilds = UpstreamBuildsCache.getUpstreamBuilds(parentBuild);
             for (Map.Entry<AbstractProject, Integer> buildEntry : parentUpstreamBuilds.entrySet()) {
-                upstreamBuilds.add(buildEntry.getKey().getBuildByNumber(buildEntry.getValue()));
+                Run<?, ?> upstreamRun = buildEntry.getKey().getBuildByNumber(buildEntry.getValue());
+                if (upstreamRun != null) {
+                    upstreamBuilds.add(upstreamRun);
+                }
             }
 
         }
+        return upstreamBuilds;
+    }
 
-        for (Run<?, ?> upstreamBuild : upstreamBuilds) {
-            Run<?,?> run;
+    /**
+     * Holds the result of {@link AbstractBuild#getUpstreamBuilds()} of a build,
+     * as it's calculated from fingerprints and is expensive to calculate for each copy.
+     *
+     * Kept aside the builds rather than in their actions not to save it in build.xml.
+     * The value is recalculated when fingerprints recorded to the build change
+     * (e.g. by a preceding copy with fingerprinting), including when a file is
+     * recorded again with another digest.
+     */
+    static final class UpstreamBuildsCache {
+        private static final Map<AbstractBuild<?, ?>, UpstreamBuildsCache> CACHE = new WeakHashMap<>();
 
-            if (jobNames.contains(upstreamBuild.getParent().getFullName())) {
-                // Use the 'job' parameter instead of directly the 'upstreamBuild', because of Matrix jobs.
-                run = job.getBuildByNumber(upstreamBuild.getNumber());
-            } else {
-                // Figure out the parent job and do a recursive call to getBuild
-                run = getBuild(job, env, filter, upstreamBuild);
-            }
+        private final Map<String, String> fingerprints;
+        private final Map<AbstractProject, Integer> upstreamBuilds;
 
-            if (run != null && filter.isSelectable(run, env)){
-                if (
-                        (result == null)
-                        || (isUseNewest() && result.getNumber() < run.getNumber())
-                        || (!isUseNewest() && result.getNumber() > run.getNumber())
-                ) {
-                    result = run;
+        private UpstreamBuildsCache(Map<String, String> fingerprints, Map<AbstractProject, Integer> upstreamBuilds) {
+            this.fingerprints = fingerprints;
+            this.upstreamBuilds = upstreamBuilds;
+        }
+
+        static Map<AbstractProject, Integer> getUpstreamBuilds(AbstractBuild<?, ?> build) {
+            Fingerprinter.FingerprintAction fa = build.getAction(Fingerprinter.FingerprintAction.class);
+            Map<String, String> fingerprints = (fa != null) ? new HashMap<>(fa.getRecords()) : Collections.emptyMap();
+            synchronized (CACHE) {
+                UpstreamBuildsCache cache = CACHE.get(build);
+                if (cache != null && cache.fingerprints.equals(fingerprints)) {
+                    return cache.upstreamBuilds;
                 }
             }
+            // calculated out of the lock as it loads fingerprints from disk.
+            Map<AbstractProject, Integer> upstreamBuilds = build.getUpstreamBuilds();
+            synchronized (CACHE) {
+                CACHE.put(build, new UpstreamBuildsCache(fingerprints, upstreamBuilds));
+            }
+            return upstreamBuilds;
         }
-        
-        if (result == null && isFallbackToLastSuccessful()) {
-            //TODO: Write to console, that fallback is used.
-            result = super.getBuild(job, env, filter, parent);
+
+        static boolean isCached(AbstractBuild<?, ?> build) {
+            synchronized (CACHE) {
+                return CACHE.containsKey(build);
+            }
         }
-        return result;
     }
-    
+
     @Override
     public boolean isSelectable(Run<?,?> run, EnvVars env) {
         return isFallbackToLastSuccessful() && isBuildResultBetterOrEqualTo(run, Result.SUCCESS);
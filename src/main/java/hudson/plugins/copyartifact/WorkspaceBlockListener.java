@@ -0,0 +1,57 @@
+package hudson.plugins.copyartifact;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hudson.Extension;
+import hudson.model.Queue;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import org.jenkinsci.plugins.workflow.actions.WorkspaceAction;
+import org.jenkinsci.plugins.workflow.flow.FlowExecutionOwner;
+import org.jenkinsci.plugins.workflow.flow.GraphListener;
+import org.jenkinsci.plugins.workflow.graph.BlockEndNode;
+import org.jenkinsci.plugins.workflow.graph.FlowNode;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Aborts copies started by {@link AsyncCopyArtifact} and not awaited
+ * when the {@code node} or {@code ws} block allocating their workspace ends,
+ * as the workspace is released for other builds.
+ * Separated from {@link AsyncCopyArtifact} as the workflow-api plugin might not be installed.
+ */
+@Restricted(NoExternalUse.class)
+@Extension(optional = true)
+public class WorkspaceBlockListener implements GraphListener.Synchronous {
+    private static final Logger LOGGER = Logger.getLogger(WorkspaceBlockListener.class.getName());
+
+    @Override
+    public void onNewHead(FlowNode node) {
+        if (!(node instanceof BlockEndNode)) {
+            return;
+        }
+        WorkspaceAction ws = ((BlockEndNode<?>) node).getStartNode().getPersistentAction(WorkspaceAction.class);
+        if (ws == null) {
+            return;
+        }
+        FlowExecutionOwner owner = node.getExecution().getOwner();
+        try {
+            Queue.Executable executable = owner.getExecutable();
+            if (!(executable instanceof Run)) {
+                return;
+            }
+            List<String> handles = AsyncCopyArtifact.cancel((Run<?, ?>) executable, ws.getNode(), ws.getPath());
+            if (!handles.isEmpty()) {
+                TaskListener listener = owner.getListener();
+                for (String handle : handles) {
+                    listener.getLogger().println(Messages.AsyncCopyArtifact_AbortedWithWorkspace(handle));
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to abort copies of artifacts in " + owner, e);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package hudson.plugins.copyartifact;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collections;
+
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Job;
+import hudson.model.Label;
+import hudson.model.Node;
+import hudson.plugins.copyartifact.testutils.FileWriteBuilder;
+import hudson.slaves.DumbSlave;
+import hudson.tasks.ArtifactArchiver;
+import hudson.tasks.Fingerprinter;
+import jenkins.model.Jenkins;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.MockAuthorizationStrategy;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class ArtifactDistributionConfigurationTest {
+
+    private JenkinsRule j;
+
+    @BeforeEach
+    void setUp(JenkinsRule rule) {
+        j = rule;
+    }
+
+    private FreeStyleProject createFingerprintedProject(String name) throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject(name);
+        p.getBuildersList().add(new FileWriteBuilder("artifact.txt", name));
+        ArtifactArchiver aa = new ArtifactArchiver("artifact.txt");
+        aa.setFingerprint(true);
+        p.getPublishersList().add(aa);
+        return p;
+    }
+
+    @Test
+    void testDistribute() throws Exception {
+        DumbSlave cache = j.createOnlineSlave(Label.get("cache"));
+        DumbSlave other = j.createOnlineSlave(Label.get("other"));
+        ArtifactDistributionConfiguration.get().setRules(Collections.singletonList(
+                new ArtifactDistributionConfiguration.Rule("upstream-*", "cache")
+        ));
+
+        FreeStyleProject upstream = createFingerprintedProject("upstream-a");
+        FreeStyleProject notDistributed = createFingerprintedProject("another");
+        FreeStyleBuild b1 = j.buildAndAssertSuccess(upstream);
+        FreeStyleBuild b2 = j.buildAndAssertSuccess(notDistributed);
+        assertNotNull(b1.getAction(Fingerprinter.FingerprintAction.class).getRecords().get("artifact.txt"));
+        assertNotNull(b2.getAction(Fingerprinter.FingerprintAction.class).getRecords().get("artifact.txt"));
+
+        FilePath staged = staged(cache, upstream, "upstream-a");
+        for (int i = 0; !staged.exists(); i++) {
+            assertTrue(i < 100, "artifacts should be distributed");
+            Thread.sleep(100);
+        }
+        assertEquals("upstream-a", staged.readToString());
+        assertFalse(staged(cache, notDistributed, "another").exists());
+        assertFalse(staged(other, upstream, "upstream-a").exists());
+
+        // copied within the node
+        FreeStyleProject downstream = j.createFreeStyleProject();
+        downstream.setAssignedNode(cache);
+        CopyArtifact copier = new CopyArtifact(upstream.getFullName());
+        copier.setPrefetch(true);
+        downstream.getBuildersList().add(copier);
+        FreeStyleBuild b = j.buildAndAssertSuccess(downstream);
+        assertEquals("upstream-a", b.getWorkspace().child("artifact.txt").readToString());
+    }
+
+    @Test
+    void testNotDistributedWithoutPermission() throws Exception {
+        j.jenkins.setSecurityRealm(j.createDummySecurityRealm());
+        j.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy()
+                .grant(Jenkins.READ).everywhere().toAuthenticated());
+        DumbSlave cache = j.createOnlineSlave(Label.get("cache"));
+        ArtifactDistributionConfiguration.get().setRules(Collections.singletonList(
+                new ArtifactDistributionConfiguration.Rule("upstream-*", "cache")
+        ));
+
+        FreeStyleProject secret = createFingerprintedProject("upstream-secret");
+        FreeStyleProject allowed = createFingerprintedProject("upstream-allowed");
+        allowed.addProperty(new CopyArtifactPermissionProperty("*"));
+        FreeStyleProject restricted = createFingerprintedProject("upstream-restricted");
+        restricted.addProperty(new CopyArtifactPermissionProperty("downstream"));
+
+        assertFalse(ArtifactDistributionConfiguration.isDistributable(j.buildAndAssertSuccess(secret)));
+        assertTrue(ArtifactDistributionConfiguration.isDistributable(j.buildAndAssertSuccess(allowed)));
+        assertFalse(ArtifactDistributionConfiguration.isDistributable(j.buildAndAssertSuccess(restricted)));
+
+        FilePath staged = staged(cache, allowed, "upstream-allowed");
+        for (int i = 0; !staged.exists(); i++) {
+            assertTrue(i < 100, "artifacts should be distributed");
+            Thread.sleep(100);
+        }
+        assertFalse(staged(cache, secret, "upstream-secret").exists());
+        assertFalse(staged(cache, restricted, "upstream-restricted").exists());
+    }
+
+    private static FilePath staged(Node node, Job<?, ?> job, String content) throws Exception {
+        String sha256 = Util.toHexString(MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8)));
+        return node.getRootPath().child("copyartifact-cache").child(Util.getDigestOf(job.getFullName())).child(sha256);
+    }
+
+    @Test
+    void testConfigRoundtrip() throws Exception {
+        ArtifactDistributionConfiguration.get().setRules(Collections.singletonList(
+                new ArtifactDistributionConfiguration.Rule("folder/upstream-*", "linux && large")
+        ));
+        j.configRoundtrip();
+        assertEquals(1, ArtifactDistributionConfiguration.get().getRules().size());
+        j.assertEqualDataBoundBeans(
+                new ArtifactDistributionConfiguration.Rule("folder/upstream-*", "linux && large"),
+                ArtifactDistributionConfiguration.get().getRules().get(0)
+        );
+    }
+}
@@ -0,0 +1,163 @@
+package hudson.plugins.copyartifact;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import hudson.EnvVars;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.plugins.copyartifact.testutils.FileWriteBuilder;
+import hudson.tasks.ArtifactArchiver;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestExtension;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+@WithJenkins
+class AsyncCopyArtifactTest {
+
+    private JenkinsRule j;
+
+    @BeforeEach
+    void setUp(JenkinsRule rule) {
+        j = rule;
+    }
+
+    private FreeStyleProject createArtifactProject(String name) throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject(name);
+        p.getBuildersList().add(new FileWriteBuilder("artifact.txt", "foobar"));
+        p.getPublishersList().add(new ArtifactArchiver("artifact.txt"));
+        j.buildAndAssertSuccess(p);
+        return p;
+    }
+
+    @Test
+    void testStartAndAwait() throws Exception {
+        createArtifactProject("src");
+
+        CopyArtifact copier = new CopyArtifact("src");
+        copier.setTarget("deps");
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.getBuildersList().add(new AsyncCopyArtifact("deps", copier));
+        p.getBuildersList().add(new FileWriteBuilder("other.txt", "other"));
+        p.getBuildersList().add(new AwaitCopyArtifact("deps"));
+        FreeStyleBuild b = j.buildAndAssertSuccess(p);
+
+        assertEquals("foobar", b.getWorkspace().child("deps/artifact.txt").readToString());
+        j.assertLogContains(Messages.AsyncCopyArtifact_Started("src", "deps"), b);
+        // the log of the copy is reported when awaited.
+        j.assertLogContains("Copied 1 artifact", b);
+        assertNull(AsyncCopyArtifact.remove(b, "deps"));
+    }
+
+    @Test
+    void testFailedCopyReportedWhenAwaited() throws Exception {
+        createArtifactProject("src");
+
+        CopyArtifact copier = new CopyArtifact("src");
+        copier.setFilter("nosuchfile.txt");
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.getBuildersList().add(new AsyncCopyArtifact("deps", copier));
+        p.getBuildersList().add(new AwaitCopyArtifact("deps"));
+        FreeStyleBuild b = j.buildAndAssertStatus(Result.FAILURE, p);
+        j.assertLogContains(Messages.CopyArtifact_FailedToCopy("src", "nosuchfile.txt"), b);
+    }
+
+    @Test
+    void testAbortedWhenNodeBlockEnds() throws Exception {
+        createArtifactProject("src");
+
+        WorkflowJob p = j.createProject(WorkflowJob.class);
+        p.setDefinition(new CpsFlowDefinition(
+                "def deps\n"
+                + "node {\n"
+                + "  deps = copyArtifactsAsync(handle: 'deps', copier: [projectName: 'src', selector: [$class: 'BlockingBuildSelector']])\n"
+                + "}\n"
+                + "awaitCopyArtifacts(deps)\n",
+                true));
+        try {
+            WorkflowRun b = j.buildAndAssertStatus(Result.FAILURE, p);
+            j.assertLogContains(Messages.AsyncCopyArtifact_AbortedWithWorkspace("deps"), b);
+            j.assertLogContains(Messages.AwaitCopyArtifact_Aborted("deps"), b);
+        } finally {
+            BlockingBuildSelector.RELEASE.countDown();
+        }
+    }
+
+    @Test
+    void testPipelineSteps() throws Exception {
+        createArtifactProject("src");
+
+        WorkflowJob p = j.createProject(WorkflowJob.class);
+        p.setDefinition(new CpsFlowDefinition(
+                "node {\n"
+                + "  def deps = copyArtifactsAsync(copier: [projectName: 'src', target: 'deps'])\n"
+                + "  writeFile(file: 'other.txt', text: 'other')\n"
+                + "  awaitCopyArtifacts(deps)\n"
+                + "  echo \"copied: ${readFile('deps/artifact.txt')}\"\n"
+                + "}\n",
+                true));
+        WorkflowRun b = j.buildAndAssertSuccess(p);
+        j.assertLogContains("copied: foobar", b);
+        j.assertLogContains("Copied 1 artifact", b);
+    }
+
+    @Test
+    void testLogTruncated() throws Exception {
+        AsyncCopyArtifact.LogBuffer log = new AsyncCopyArtifact.LogBuffer(10);
+        log.write("line1\nline2\nline3\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals(Messages.AsyncCopyArtifact_LogTruncated(12) + "\nline3\n",
+                new String(log.toByteArray(), StandardCharsets.UTF_8));
+
+        log = new AsyncCopyArtifact.LogBuffer(10);
+        log.write("line1\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals("line1\n", new String(log.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Blocks selecting builds until released, to keep copies in progress.
+     */
+    public static class BlockingBuildSelector extends BuildSelector {
+        static final CountDownLatch RELEASE = new CountDownLatch(1);
+
+        @DataBoundConstructor
+        public BlockingBuildSelector() {
+        }
+
+        @Override
+        public boolean isSelectable(Run<?, ?> run, EnvVars env) {
+            try {
+                return RELEASE.await(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        @TestExtension("testAbortedWhenNodeBlockEnds")
+        public static class DescriptorImpl extends SimpleBuildSelectorDescriptor {
+            public DescriptorImpl() {
+                super(BlockingBuildSelector.class, Messages._LastCompletedBuildSelector_DisplayName());
+            }
+        }
+    }
+
+    @Test
+    void testUnknownHandle() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.getBuildersList().add(new AwaitCopyArtifact("deps"));
+        FreeStyleBuild b = j.buildAndAssertStatus(Result.FAILURE, p);
+        j.assertLogContains(Messages.AwaitCopyArtifact_UnknownHandle("deps"), b);
+    }
+}
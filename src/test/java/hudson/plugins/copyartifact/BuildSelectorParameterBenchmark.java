@@ -0,0 +1,52 @@
+package hudson.plugins.copyartifact;
+
+import jenkins.benchmark.jmh.JmhBenchmark;
+import jenkins.benchmark.jmh.JmhBenchmarkState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares parsing the value of {@link BuildSelectorParameter} each time
+ * with reusing selectors already parsed,
+ * and parsing the legacy XML format with parsing the compact format.
+ * See the allocation rate ({@code gc.alloc.rate.norm}) in the results.
+ * The sizes of values in both formats are printed when the benchmark starts.
+ * Runs with a Jenkins instance as the compact format is resolved with symbols of extensions.
+ *
+ * Run with {@code mvn test -Dbenchmark}.
+ */
+@JmhBenchmark
+public class BuildSelectorParameterBenchmark {
+    @State(Scope.Benchmark)
+    public static class SelectorState extends JmhBenchmarkState {
+        // Same as the value of a parameter passed to each configuration of a matrix build.
+        final String xml = "<hudson.plugins.copyartifact.TriggeredBuildSelector>"
+                + "<fallbackToLastSuccessful>true</fallbackToLastSuccessful>"
+                + "<upstreamFilterStrategy>UseNewest</upstreamFilterStrategy>"
+                + "<allowUpstreamDependencies>false</allowUpstreamDependencies>"
+                + "</hudson.plugins.copyartifact.TriggeredBuildSelector>";
+        // Same selector in the compact format
+        final String compact = "upstream(fallbackToLastSuccessful:true,upstreamFilterStrategy:'UseNewest')";
+
+        @Override
+        public void setup() {
+            System.out.printf("stored size: xml=%d chars, compact=%d chars%n", xml.length(), compact.length());
+        }
+    }
+
+    @Benchmark
+    public BuildSelector parse(SelectorState state) {
+        return BuildSelectorParameter.getSelectorFromXml(state.xml);
+    }
+
+    @Benchmark
+    public BuildSelector parseCompact(SelectorState state) {
+        return BuildSelectorParameter.getSelectorFromXml(state.compact);
+    }
+
+    @Benchmark
+    public BuildSelector parseCached(SelectorState state) {
+        return BuildSelectorParameter.getCachedSelectorFromXml(state.xml);
+    }
+}
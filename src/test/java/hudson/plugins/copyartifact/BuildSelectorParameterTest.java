@@ -31,6 +31,7 @@ import org.htmlunit.util.NameValuePair;
 import hudson.cli.CLICommandInvoker;
 import hudson.model.FreeStyleProject;
 import hudson.model.ParametersDefinitionProperty;
+import hudson.model.StringParameterValue;
 
 import java.net.URL;
 import java.util.Arrays;
@@ -44,6 +45,10 @@ import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Test interaction of BuildSelectorParameter with Jenkins core.
@@ -105,6 +110,76 @@ class BuildSelectorParameterTest {
         assertEquals("<SavedBuildSelector/>", ceb.getEnvVars().get("SELECTOR"));
     }
 
+    @Test
+    void testCompactFormat() throws Exception {
+        for (BuildSelector selector : Arrays.asList(
+                new StatusBuildSelector(true),
+                new LastCompletedBuildSelector(),
+                new SpecificBuildSelector("it's ${NUM}"),
+                new PermalinkBuildSelector("lastStableBuild"),
+                new TriggeredBuildSelector(true, TriggeredBuildSelector.UpstreamFilterStrategy.UseNewest, true)
+        )) {
+            String compact = CompactBuildSelectorFormat.toCompact(selector);
+            assertNotNull(compact);
+            rule.assertEqualDataBoundBeans(selector, BuildSelectorParameter.getSelectorFromXml(compact));
+        }
+        assertEquals("lastSuccessful(stable:true)", CompactBuildSelectorFormat.toCompact(new StatusBuildSelector(true)));
+        rule.assertEqualDataBoundBeans(
+                new SpecificBuildSelector("1"),
+                BuildSelectorParameter.getSelectorFromXml(" specific ( buildNumber : '1' ) ")
+        );
+
+        // legacy format
+        rule.assertEqualDataBoundBeans(
+                new StatusBuildSelector(true),
+                BuildSelectorParameter.getSelectorFromXml("<StatusBuildSelector><stable>true</stable></StatusBuildSelector>")
+        );
+
+        assertThrows(IllegalArgumentException.class, () -> BuildSelectorParameter.getSelectorFromXml("noSuchSelector()"));
+        assertThrows(IllegalArgumentException.class, () -> BuildSelectorParameter.getSelectorFromXml("specific(buildNumber:'1'"));
+    }
+
+    @Test
+    void testCompactValueOptIn() throws Exception {
+        BuildSelectorParameter param = new BuildSelectorParameter("SELECTOR", new StatusBuildSelector(true), "foo");
+        assertEquals(
+                "<StatusBuildSelector><stable>true</stable></StatusBuildSelector>",
+                ((StringParameterValue)param.getDefaultParameterValue()).getValue().replaceAll("\\s+", "")
+        );
+        boolean oldUseCompactValue = BuildSelectorParameter.USE_COMPACT_VALUE;
+        try {
+            BuildSelectorParameter.USE_COMPACT_VALUE = true;
+            assertEquals("lastSuccessful(stable:true)", ((StringParameterValue)param.getDefaultParameterValue()).getValue());
+        } finally {
+            BuildSelectorParameter.USE_COMPACT_VALUE = oldUseCompactValue;
+        }
+    }
+
+    @Test
+    void testSelectorCache() throws Exception {
+        String xml = "<TriggeredBuildSelector><fallbackToLastSuccessful>true</fallbackToLastSuccessful></TriggeredBuildSelector>";
+        int size = BuildSelectorParameter.getSelectorCacheSize();
+
+        TriggeredBuildSelector first = (TriggeredBuildSelector)BuildSelectorParameter.getCachedSelectorFromXml(xml);
+        assertEquals(size + 1, BuildSelectorParameter.getSelectorCacheSize());
+        assertTrue(first.isFallbackToLastSuccessful());
+
+        // modifying a returned selector must not affect later ones.
+        first.setFallbackToLastSuccessful(false);
+        TriggeredBuildSelector second = (TriggeredBuildSelector)BuildSelectorParameter.getCachedSelectorFromXml(xml);
+        assertEquals(size + 1, BuildSelectorParameter.getSelectorCacheSize());
+        assertNotSame(first, second);
+        assertTrue(second.isFallbackToLastSuccessful());
+
+        // compact format is not cached.
+        BuildSelector compact = BuildSelectorParameter.getCachedSelectorFromXml("lastSuccessful(stable:true)");
+        rule.assertEqualDataBoundBeans(new StatusBuildSelector(true), compact);
+        assertNotSame(compact, BuildSelectorParameter.getCachedSelectorFromXml("lastSuccessful(stable:true)"));
+        assertEquals(size + 1, BuildSelectorParameter.getSelectorCacheSize());
+
+        assertThrows(ClassCastException.class, () -> BuildSelectorParameter.getCachedSelectorFromXml("<string>foo</string>"));
+    }
+
     @Test
     void testConfiguration() throws Exception {
         BuildSelectorParameter expected = new BuildSelectorParameter("SELECTOR", new StatusBuildSelector(true), "foo");
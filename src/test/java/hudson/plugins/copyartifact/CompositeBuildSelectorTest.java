@@ -0,0 +1,146 @@
+package hudson.plugins.copyartifact;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import hudson.EnvVars;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import hudson.model.Run;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.FailureBuilder;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.UnstableBuilder;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class CompositeBuildSelectorTest {
+
+    private JenkinsRule j;
+
+    private FreeStyleProject p;
+    private FreeStyleBuild b1;
+    private FreeStyleBuild b2;
+    private FreeStyleBuild b3;
+
+    @BeforeEach
+    void setUp(JenkinsRule rule) throws Exception {
+        j = rule;
+        p = j.createFreeStyleProject();
+        b1 = j.buildAndAssertSuccess(p);
+        b1.keepLog(true);
+        p.getBuildersList().add(new UnstableBuilder());
+        b2 = j.buildAndAssertStatus(Result.UNSTABLE, p);
+        p.getBuildersList().clear();
+        p.getBuildersList().add(new FailureBuilder());
+        b3 = j.buildAndAssertStatus(Result.FAILURE, p);
+    }
+
+    private Run<?,?> select(BuildSelector selector) {
+        return selector.getBuild(p, new EnvVars(), new BuildFilter(), null);
+    }
+
+    @Test
+    void testAllOf() throws Exception {
+        assertEquals(b1, select(new AllOfBuildSelector(Arrays.asList(
+                new StatusBuildSelector(false),
+                new SavedBuildSelector()
+        ))));
+        assertEquals(b2, select(new AllOfBuildSelector(Arrays.asList(
+                new StatusBuildSelector(false),
+                new SpecificBuildSelector("2")
+        ))));
+        assertNull(select(new AllOfBuildSelector(Arrays.asList(
+                new StatusBuildSelector(true),
+                new SpecificBuildSelector("2")
+        ))));
+        assertNull(select(new AllOfBuildSelector(Arrays.asList(
+                new SpecificBuildSelector("1"),
+                new SpecificBuildSelector("2")
+        ))));
+    }
+
+    @Test
+    void testAnyOf() throws Exception {
+        assertEquals(b3, select(new AnyOfBuildSelector(Arrays.asList(
+                new SavedBuildSelector(),
+                new LastCompletedBuildSelector()
+        ))));
+        assertEquals(b2, select(new AnyOfBuildSelector(Arrays.asList(
+                new StatusBuildSelector(true),
+                new SpecificBuildSelector("2")
+        ))));
+        assertEquals(b1, select(new AnyOfBuildSelector(Arrays.asList(
+                new StatusBuildSelector(true),
+                new SpecificBuildSelector("5")
+        ))));
+    }
+
+    @Test
+    void testFirstOf() throws Exception {
+        assertEquals(b1, select(new FirstOfBuildSelector(Arrays.asList(
+                new SpecificBuildSelector("5"),
+                new StatusBuildSelector(true),
+                new LastCompletedBuildSelector()
+        ))));
+        assertEquals(b2, select(new FirstOfBuildSelector(Arrays.asList(
+                new SpecificBuildSelector("2"),
+                new LastCompletedBuildSelector()
+        ))));
+        assertEquals(b3, select(new FirstOfBuildSelector(Arrays.asList(
+                new SpecificBuildSelector("5"),
+                new AllOfBuildSelector(Arrays.asList(
+                        new SavedBuildSelector(),
+                        new StatusBuildSelector(true),
+                        new SpecificBuildSelector("2")
+                )),
+                new LastCompletedBuildSelector()
+        ))));
+        assertNull(select(new FirstOfBuildSelector(Arrays.asList(
+                new SpecificBuildSelector("5"),
+                new SpecificBuildSelector("6")
+        ))));
+    }
+
+    @Test
+    void testFirstOfSinglePass() throws Exception {
+        AtomicInteger filterCalls = new AtomicInteger();
+        BuildFilter filter = new BuildFilter() {
+            @Override
+            public boolean isSelectable(Run<?, ?> run, EnvVars env) {
+                filterCalls.incrementAndGet();
+                return true;
+            }
+        };
+        // b3 by lastCompleted, and b1 by lastSuccessful
+        assertEquals(b1, new FirstOfBuildSelector(Arrays.asList(
+                new StatusBuildSelector(true),
+                new LastCompletedBuildSelector()
+        )).getBuild(p, new EnvVars(), filter, null));
+        assertEquals(2, filterCalls.get());
+    }
+
+    @Test
+    void testIsPredicate() throws Exception {
+        assertTrue(CompositeBuildSelector.isPredicate(new StatusBuildSelector()));
+        assertFalse(CompositeBuildSelector.isPredicate(new SpecificBuildSelector("1")));
+        assertTrue(CompositeBuildSelector.isPredicate(new AnyOfBuildSelector(Arrays.asList(
+                new StatusBuildSelector(),
+                new SavedBuildSelector()
+        ))));
+        assertFalse(CompositeBuildSelector.isPredicate(new AnyOfBuildSelector(Arrays.asList(
+                new StatusBuildSelector(),
+                new SpecificBuildSelector("1")
+        ))));
+        assertFalse(CompositeBuildSelector.isPredicate(new FirstOfBuildSelector(Arrays.asList(
+                new StatusBuildSelector()
+        ))));
+    }
+}
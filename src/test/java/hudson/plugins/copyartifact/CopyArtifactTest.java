@@ -26,6 +26,7 @@ package hudson.plugins.copyartifact;
 import hudson.FilePath;
 import hudson.Functions;
 import hudson.Launcher;
+import hudson.Util;
 import hudson.cli.CLICommandInvoker;
 import hudson.matrix.Axis;
 import hudson.matrix.AxisList;
@@ -49,6 +50,7 @@ import hudson.model.Fingerprint;
 import hudson.model.FreeStyleBuild;
 import hudson.model.FreeStyleProject;
 import hudson.model.Item;
+import hudson.model.Node;
 import hudson.model.ParameterDefinition;
 import hudson.model.ParametersAction;
 import hudson.model.ParametersDefinitionProperty;
@@ -78,9 +80,13 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import jenkins.model.ArtifactManagerConfiguration;
@@ -119,6 +125,7 @@ import org.htmlunit.WebRequest;
 import static org.junit.jupiter.api.Assumptions.assumeFalse;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -487,6 +494,58 @@ class CopyArtifactTest {
         assertFile(true, "ARCH=x86/target/x86.out", b);
     }
 
+    @Test
+    void testMatrixAllConcurrently() throws Exception {
+        MatrixProject mp = createMatrixProject();
+        mp.setAxes(new AxisList(new Axis("ARCH", "sparc", "x86", "arm", "ppc", "s390", "mips")));
+        mp.getBuildersList().add(new ArchMatrixBuilder());
+        mp.getPublishersList().add(new ArtifactArchiver("target/*", "", false, false));
+        rule.buildAndAssertSuccess(mp);
+        FreeStyleProject p = createProject(mp.getName(), null, "", "", true, false, false, true);
+        int concurrency = CopyArtifact.CHILD_COPY_CONCURRENCY;
+        try {
+            CopyArtifact.CHILD_COPY_CONCURRENCY = 2;
+            FreeStyleBuild b = rule.buildAndAssertSuccess(p);
+            for (String arch : new String[] {"sparc", "x86", "arm", "ppc", "s390", "mips"}) {
+                assertFile(true, "ARCH=" + arch + "/target/readme.txt", b);
+                assertFile(true, "ARCH=" + arch + "/target/" + arch + ".out", b);
+            }
+        } finally {
+            CopyArtifact.CHILD_COPY_CONCURRENCY = concurrency;
+        }
+    }
+
+    @Test
+    void testMatrixCombinationFilter() throws Exception {
+        MatrixProject mp = createMatrixProject();
+        mp.setAxes(new AxisList(new Axis("ARCH", "sparc", "x86", "arm"), new Axis("OS", "linux", "windows")));
+        mp.getBuildersList().add(new ArchMatrixBuilder());
+        mp.getPublishersList().add(new ArtifactArchiver("target/*", "", false, false));
+        rule.buildAndAssertSuccess(mp);
+        FreeStyleProject p = rule.createFreeStyleProject();
+        p.addProperty(new ParametersDefinitionProperty(new StringParameterDefinition("OS", "linux")));
+        CopyArtifact copier = new CopyArtifact(mp.getFullName());
+        copier.setCombinationFilter("ARCH=x86, ARCH=a*, OS=$OS");
+        p.getBuildersList().add(copier);
+        FreeStyleBuild b = rule.buildAndAssertSuccess(p);
+        assertFile(true, "ARCH=x86,OS=linux/target/x86.out", b);
+        assertFile(true, "ARCH=arm,OS=linux/target/arm.out", b);
+        assertFile(false, "ARCH=sparc,OS=linux", b);
+        assertFile(false, "ARCH=x86,OS=windows", b);
+        assertFile(false, "ARCH=arm,OS=windows", b);
+
+        // configurations no longer active are still copied from builds performed with them.
+        mp.setAxes(new AxisList(new Axis("ARCH", "sparc", "x86"), new Axis("OS", "linux", "windows")));
+        copier.setCombinationFilter("ARCH=arm, OS=linux");
+        b = rule.buildAndAssertSuccess(p);
+        assertFile(true, "ARCH=arm,OS=linux/target/arm.out", b);
+
+        copier.setCombinationFilter("NOAXIS=x86");
+        rule.buildAndAssertStatus(Result.FAILURE, p);
+        copier.setCombinationFilter("x86");
+        rule.buildAndAssertStatus(Result.FAILURE, p);
+    }
+
     private MavenModuleSet setupMavenJob() throws Exception {
         ToolInstallations.configureMaven3();
         MavenModuleSet mp = createMavenProject();
@@ -541,6 +600,33 @@ class CopyArtifactTest {
         assertFile(false, dir + pomName("moduleC", "1.0-SNAPSHOT"), b);
     }
 
+    @Test
+    void testMavenModuleFilter() throws Exception {
+        MavenModuleSet mp = setupMavenJob();
+        rule.buildAndAssertSuccess(mp);
+        FreeStyleProject p = rule.createFreeStyleProject();
+        CopyArtifact copier = new CopyArtifact(mp.getFullName());
+        copier.setModuleFilter("moduleA, org.jvnet.hudson.main.test.multimod:moduleC");
+        p.getBuildersList().add(copier);
+        FreeStyleBuild b = rule.buildAndAssertSuccess(p);
+        String dir = "org.jvnet.hudson.main.test.multimod/";
+        assertFile(true, dir + "moduleA/1.0-SNAPSHOT/moduleA-1.0-SNAPSHOT.jar", b);
+        assertFile(false, dir + "moduleB", b);
+        assertFile(true, dir + "moduleC/1.0-SNAPSHOT/moduleC-1.0-SNAPSHOT.jar", b);
+
+        FreeStyleProject p2 = rule.createFreeStyleProject();
+        CopyArtifact copier2 = new CopyArtifact(mp.getFullName());
+        copier2.setModuleFilter("*:moduleB");
+        p2.getBuildersList().add(copier2);
+        b = rule.buildAndAssertSuccess(p2);
+        assertFile(false, dir + "moduleA", b);
+        assertFile(true, dir + "moduleB/1.0-SNAPSHOT/moduleB-1.0-SNAPSHOT.jar", b);
+        assertFile(false, dir + "moduleC", b);
+
+        copier.setModuleFilter("nosuchmodule");
+        rule.buildAndAssertStatus(Result.FAILURE, p);
+    }
+
     /** Test copying from maven job where artifacts manually archived instead of automatic */
     @Test
     void testMavenJobWithArchivePostBuildStep() throws Exception {
@@ -938,6 +1024,388 @@ class CopyArtifactTest {
         rule.buildAndAssertSuccess(p);
     }
 
+    @Test
+    void testOptional_MissingBuildRemembered() throws Exception {
+        FreeStyleProject other = createArtifactProject();
+        other.getBuildersList().add(new FailureBuilder());
+        rule.buildAndAssertStatus(Result.FAILURE, other);
+        FreeStyleProject p = createProject(other.getName(), null, "", "", false, false, true, true);
+        rule.buildAndAssertSuccess(p);
+        String key = NegativeSelectionCache.getKey(new StatusBuildSelector(false), null);
+        assertTrue(NegativeSelectionCache.isMissing(other, key));
+        rule.buildAndAssertSuccess(p);
+
+        // forgotten when a build completes
+        other.getBuildersList().remove(FailureBuilder.class);
+        rule.buildAndAssertSuccess(other);
+        assertFalse(NegativeSelectionCache.isMissing(other, key));
+        FreeStyleBuild b = rule.buildAndAssertSuccess(p);
+        assertFile(true, "foo.txt", b);
+    }
+
+    @Test
+    void testExplain() throws Exception {
+        FreeStyleProject other = createArtifactProject();
+        rule.buildAndAssertSuccess(other);
+        other.getBuildersList().add(new FailureBuilder());
+        rule.buildAndAssertStatus(Result.FAILURE, other);
+        rule.buildAndAssertStatus(Result.FAILURE, other);
+        FreeStyleProject p = createProject(other.getName(), null, "", "", false, false, false, true);
+        p.getBuildersList().get(CopyArtifact.class).setExplain(true);
+        FreeStyleBuild b = rule.buildAndAssertSuccess(p);
+        assertFile(true, "foo.txt", b);
+        rule.assertLogContains(Messages.CopyArtifact_Explain_Header(other.getName()), b);
+        rule.assertLogContains(Messages.CopyArtifact_Explain_SelectingBuild(), b);
+        rule.assertLogContains(Messages.CopyArtifact_Explain_Rejected(other.getBuildByNumber(3).getFullDisplayName(), "StatusBuildSelector"), b);
+        rule.assertLogContains(Messages.CopyArtifact_Explain_Rejected(other.getBuildByNumber(2).getFullDisplayName(), "StatusBuildSelector"), b);
+        // builds just completed are still in memory.
+        rule.assertLogContains(Messages.CopyArtifact_Explain_Inspected(3, 0), b);
+        CopyArtifactExplanationAction action = b.getAction(CopyArtifactExplanationAction.class);
+        assertNotNull(action);
+        assertEquals(1, action.getExplanations().size());
+        assertEquals(other.getName(), action.getExplanations().get(0).getProjectName());
+
+        // builds loaded from the disk are counted
+        rule.jenkins.reload();
+        p = rule.jenkins.getItemByFullName(p.getFullName(), FreeStyleProject.class);
+        b = rule.buildAndAssertSuccess(p);
+        rule.assertLogNotContains(Messages.CopyArtifact_Explain_Inspected(3, 0), b);
+
+        // explained also when failed
+        p.getBuildersList().get(CopyArtifact.class).setSelector(new SpecificBuildSelector("5"));
+        b = rule.buildAndAssertStatus(Result.FAILURE, p);
+        rule.assertLogContains(Messages.CopyArtifact_Explain_Header(other.getName()), b);
+        rule.assertLogContains(Messages.CopyArtifact_Explain_SelectingBuild(), b);
+    }
+
+    @Test
+    void testResolvedProjectInvalidated() throws Exception {
+        FreeStyleProject other = createArtifactProject("other");
+        rule.buildAndAssertSuccess(other);
+        FreeStyleProject p = createProject("$SRC", null, "", "", false, false, false, true);
+        p.addProperty(new ParametersDefinitionProperty(new StringParameterDefinition("SRC", "other")));
+        FreeStyleBuild b = rule.buildAndAssertSuccess(p);
+        assertFile(true, "foo.txt", b);
+
+        other.renameTo("renamed");
+        rule.buildAndAssertStatus(Result.FAILURE, p);
+        b = rule.assertBuildStatusSuccess(p.scheduleBuild2(0, new ParametersAction(new StringParameterValue("SRC", "renamed"))));
+        assertFile(true, "foo.txt", b);
+
+        // a different job with the same name
+        other.delete();
+        rule.createFreeStyleProject("renamed");
+        rule.assertBuildStatus(Result.FAILURE, p.scheduleBuild2(0, new ParametersAction(new StringParameterValue("SRC", "renamed"))));
+    }
+
+    @Test
+    void testEnvironmentSharedAcrossSteps() throws Exception {
+        FreeStyleProject other = createArtifactProject("other");
+        rule.buildAndAssertSuccess(other);
+        FreeStyleProject p = createProject("other", null, "", "$DIR", false, false, false, true);
+        p.addProperty(new ParametersDefinitionProperty(new StringParameterDefinition("DIR", "first")));
+        // the result of the preceding copy is reflected
+        p.getBuildersList().add(CopyArtifactUtil.createCopyArtifact("other", null, new StatusBuildSelector(false), "", "second$COPYARTIFACT_BUILD_NUMBER_OTHER", false, false, true));
+        p.getBuildersList().add(CopyArtifactUtil.createCopyArtifact("other", null, new StatusBuildSelector(false), "", "$DIR-third", false, false, true));
+        FreeStyleBuild b = rule.buildAndAssertSuccess(p);
+        assertFile(true, "first/foo.txt", b);
+        assertFile(true, "second1/foo.txt", b);
+        assertFile(true, "first-third/foo.txt", b);
+    }
+
+    @Test
+    void testSelectAtQueueTime() throws Exception {
+        FreeStyleProject other = createArtifactProject("other");
+        rule.buildAndAssertSuccess(other);
+        FreeStyleProject p = rule.createFreeStyleProject();
+        CopyArtifact copier = CopyArtifactUtil.createCopyArtifact(
+                "other",
+                null,       // parameters
+                new StatusBuildSelector(false),
+                "",         // filter
+                "",         // excludes
+                "",         // target
+                false,      // flatten
+                false,      // optional
+                true,       // fingerprintArtifacts
+                "",         // resultVariableSuffix
+                true        // includeBuildNumberInTargetPath
+        );
+        copier.setSelectAtQueueTime(true);
+        p.getBuildersList().add(copier);
+
+        Future<FreeStyleBuild> f = p.scheduleBuild2(600);
+        waitForSelectedAtQueueTime(p);
+        // completed after queued
+        rule.buildAndAssertSuccess(other);
+        // start now
+        p.scheduleBuild2(0);
+        rule.assertBuildStatusSuccess(f);
+
+        assertTrue(new FilePath(p.getWorkspace(), "1").exists());
+        assertFalse(new FilePath(p.getWorkspace(), "2").exists());
+
+        // held in the queue until selected, even without the quiet period
+        FreeStyleBuild b = rule.buildAndAssertSuccess(p);
+        assertNotNull(b.getAction(PinnedBuildsAction.class));
+        assertTrue(new FilePath(p.getWorkspace(), "2").exists());
+    }
+
+    @Test
+    void testSelectableAtQueueTime() {
+        assertTrue(new StatusBuildSelector(true).isSelectableAtQueueTime());
+        assertFalse(new TriggeredBuildSelector().isSelectableAtQueueTime());
+        assertFalse(new WorkspaceSelector().isSelectableAtQueueTime());
+        assertTrue(new AllOfBuildSelector(Arrays.asList(new StatusBuildSelector(true), new SpecificBuildSelector("1"))).isSelectableAtQueueTime());
+        assertFalse(new AnyOfBuildSelector(Arrays.asList(new StatusBuildSelector(true), new TriggeredBuildSelector())).isSelectableAtQueueTime());
+    }
+
+    private void waitForSelectedAtQueueTime(FreeStyleProject p) throws Exception {
+        Queue.Item item = rule.jenkins.getQueue().getItem(p);
+        assertNotNull(item);
+        for (int i = 0; item.getAction(PinnedBuildsAction.class) == null; i++) {
+            assertTrue(i < 100, "the build to copy from should be selected");
+            Thread.sleep(100);
+        }
+    }
+
+    @Test
+    void testPrefetch() throws Exception {
+        FreeStyleProject src = rule.createFreeStyleProject();
+        src.getBuildersList().add(new FileWriteBuilder("artifact.txt", "foobar"));
+        ArtifactArchiver aa = new ArtifactArchiver("artifact.txt");
+        aa.setFingerprint(true);
+        src.getPublishersList().add(aa);
+        FreeStyleBuild s = rule.buildAndAssertSuccess(src);
+        String digest = s.getAction(Fingerprinter.FingerprintAction.class).getRecords().get("artifact.txt");
+        assertNotNull(digest);
+
+        DumbSlave node = rule.createOnlineSlave();
+        FreeStyleProject p = rule.createFreeStyleProject();
+        p.setAssignedNode(node);
+        CopyArtifact copier = new CopyArtifact(src.getFullName());
+        copier.setPrefetch(true);
+        p.getBuildersList().add(copier);
+
+        Future<FreeStyleBuild> f = p.scheduleBuild2(600);
+        waitForSelectedAtQueueTime(p);
+        p.scheduleBuild2(0);
+        FreeStyleBuild b = rule.assertBuildStatusSuccess(f);
+
+        assertEquals("foobar", b.getWorkspace().child("artifact.txt").readToString());
+        // staged in background, stored separately for the source job.
+        waitForStaged(node, s);
+        FilePath staged = node.getRootPath().child("copyartifact-cache").child(Util.getDigestOf(src.getFullName())).child(Util.toHexString(MessageDigest.getInstance("SHA-256").digest("foobar".getBytes(StandardCharsets.UTF_8))));
+        assertTrue(staged.exists());
+    }
+
+    private static void waitForStaged(Node node, Run<?, ?> src) throws Exception {
+        for (int i = 0; AgentArtifactCache.countStored(node, AgentArtifactCache.getKeys(src)) == 0; i++) {
+            assertTrue(i < 100, "artifacts should be staged");
+            Thread.sleep(100);
+        }
+    }
+
+    @Test
+    void testPrefetchVerifiesStagedFiles() throws Exception {
+        FreeStyleProject src = rule.createFreeStyleProject();
+        src.getBuildersList().add(new FileWriteBuilder("artifact.txt", "foobar"));
+        ArtifactArchiver aa = new ArtifactArchiver("artifact.txt");
+        aa.setFingerprint(true);
+        src.getPublishersList().add(aa);
+        FreeStyleBuild s = rule.buildAndAssertSuccess(src);
+        String digest = s.getAction(Fingerprinter.FingerprintAction.class).getRecords().get("artifact.txt");
+
+        DumbSlave node = rule.createOnlineSlave();
+        FreeStyleProject p = rule.createFreeStyleProject();
+        p.setAssignedNode(node);
+        CopyArtifact copier = new CopyArtifact(src.getFullName());
+        copier.setPrefetch(true);
+        copier.setFingerprintArtifacts(true);
+        p.getBuildersList().add(copier);
+        rule.buildAndAssertSuccess(p);
+        waitForStaged(node, s);
+
+        FilePath cache = node.getRootPath().child("copyartifact-cache").child(Util.getDigestOf(src.getFullName()));
+        assertEquals(1, cache.list().size());
+        FilePath staged = cache.list().get(0);
+        staged.write("tampered", "UTF-8");
+
+        FreeStyleBuild b = rule.buildAndAssertSuccess(p);
+        // transferred again instead of the modified file.
+        assertEquals("foobar", b.getWorkspace().child("artifact.txt").readToString());
+        // deleted, or staged again in background.
+        assertTrue(!staged.exists() || staged.readToString().equals("foobar"));
+        assertEquals(digest, b.getAction(Fingerprinter.FingerprintAction.class).getRecords().get("artifact.txt"));
+    }
+
+    @Test
+    void testStagedFilesScopedBySourceJob() throws Exception {
+        FreeStyleProject src = rule.createFreeStyleProject();
+        src.getBuildersList().add(new FileWriteBuilder("artifact.txt", "foobar"));
+        ArtifactArchiver aa = new ArtifactArchiver("artifact.txt");
+        aa.setFingerprint(true);
+        src.getPublishersList().add(aa);
+        FreeStyleBuild s = rule.buildAndAssertSuccess(src);
+        FreeStyleProject another = rule.createFreeStyleProject();
+        another.getBuildersList().add(new FileWriteBuilder("artifact.txt", "foobar"));
+        ArtifactArchiver anotherAa = new ArtifactArchiver("artifact.txt");
+        anotherAa.setFingerprint(true);
+        another.getPublishersList().add(anotherAa);
+        FreeStyleBuild a = rule.buildAndAssertSuccess(another);
+        assertEquals(
+                s.getAction(Fingerprinter.FingerprintAction.class).getRecords().get("artifact.txt"),
+                a.getAction(Fingerprinter.FingerprintAction.class).getRecords().get("artifact.txt")
+        );
+
+        DumbSlave node = rule.createOnlineSlave();
+        FreeStyleProject p = rule.createFreeStyleProject();
+        p.setAssignedNode(node);
+        CopyArtifact copier = new CopyArtifact(src.getFullName());
+        copier.setPrefetch(true);
+        p.getBuildersList().add(copier);
+        rule.buildAndAssertSuccess(p);
+        waitForStaged(node, s);
+
+        // the same contents staged for src are not used for copies from another job.
+        assertEquals(0, AgentArtifactCache.countStored(node, AgentArtifactCache.getKeys(a)));
+    }
+
+    @Test
+    void testPreferCopiedBuild() throws Exception {
+        FreeStyleProject src = rule.createFreeStyleProject("upstream");
+        src.getBuildersList().add(new FileWriteBuilder("artifact.txt", "foobar"));
+        ArtifactArchiver aa = new ArtifactArchiver("artifact.txt");
+        aa.setFingerprint(true);
+        src.getPublishersList().add(aa);
+        FreeStyleBuild s1 = rule.buildAndAssertSuccess(src);
+
+        DumbSlave node = rule.createOnlineSlave();
+        FreeStyleProject p = rule.createFreeStyleProject();
+        p.setAssignedNode(node);
+        CopyArtifact copier = new CopyArtifact(src.getFullName());
+        copier.setPreferCopiedBuild(true);
+        p.getBuildersList().add(copier);
+        CaptureEnvironmentBuilder envStep = new CaptureEnvironmentBuilder();
+        p.getBuildersList().add(envStep);
+        rule.buildAndAssertSuccess(p);
+        assertEquals("1", envStep.getEnvVars().get("COPYARTIFACT_BUILD_NUMBER_UPSTREAM"));
+
+        // a rebuild with identical artifacts
+        FreeStyleBuild s2 = rule.buildAndAssertSuccess(src);
+        FreeStyleBuild b = rule.buildAndAssertSuccess(p);
+        assertEquals("1", envStep.getEnvVars().get("COPYARTIFACT_BUILD_NUMBER_UPSTREAM"));
+        rule.assertLogContains(Messages.CopyArtifact_PreferCopiedBuild(s1.getFullDisplayName(), s2.getFullDisplayName()), b);
+
+        // a build with different artifacts
+        src.getBuildersList().replace(new FileWriteBuilder("artifact.txt", "barfoo"));
+        rule.buildAndAssertSuccess(src);
+        b = rule.buildAndAssertSuccess(p);
+        assertEquals("3", envStep.getEnvVars().get("COPYARTIFACT_BUILD_NUMBER_UPSTREAM"));
+        assertEquals("barfoo", b.getWorkspace().child("artifact.txt").readToString());
+
+        // the selected build is used without the option
+        rule.buildAndAssertSuccess(src);
+        copier.setPreferCopiedBuild(false);
+        rule.buildAndAssertSuccess(p);
+        assertEquals("4", envStep.getEnvVars().get("COPYARTIFACT_BUILD_NUMBER_UPSTREAM"));
+    }
+
+    @Test
+    void testSkipIdenticalFiles() throws Exception {
+        FreeStyleProject src = rule.createFreeStyleProject();
+        src.getBuildersList().add(new FileWriteBuilder("artifact.txt", "foobar"));
+        ArtifactArchiver aa = new ArtifactArchiver("artifact.txt");
+        aa.setFingerprint(true);
+        src.getPublishersList().add(aa);
+        rule.buildAndAssertSuccess(src);
+
+        FreeStyleProject p = rule.createFreeStyleProject();
+        CopyArtifact copier = new CopyArtifact(src.getFullName());
+        copier.setSkipIdenticalFiles(true);
+        p.getBuildersList().add(copier);
+        FreeStyleBuild b1 = rule.buildAndAssertSuccess(p);
+        assertEquals("foobar", b1.getWorkspace().child("artifact.txt").readToString());
+
+        // a rebuild with identical artifacts
+        rule.buildAndAssertSuccess(src);
+        FreeStyleBuild b2 = rule.buildAndAssertSuccess(p);
+        assertEquals("foobar", b2.getWorkspace().child("artifact.txt").readToString());
+
+        // files with the same size but different contents are overwritten
+        b2.getWorkspace().child("artifact.txt").write("barfoo", "UTF-8");
+        FreeStyleBuild b3 = rule.buildAndAssertSuccess(p);
+        assertEquals("foobar", b3.getWorkspace().child("artifact.txt").readToString());
+    }
+
+    private static final String FOOBAR_SHA256 = "c3ab8ff13720e8ad9047dd39466b3c8974e592c2fa383d4a3960714caef0c4f2";
+
+    @Test
+    void testCopiedArtifactsAction() throws Exception {
+        FreeStyleProject src = rule.createFreeStyleProject();
+        src.getBuildersList().add(new FileWriteBuilder("artifact.txt", "foobar"));
+        ArtifactArchiver aa = new ArtifactArchiver("artifact.txt");
+        aa.setFingerprint(true);
+        src.getPublishersList().add(aa);
+        FreeStyleBuild s = rule.buildAndAssertSuccess(src);
+
+        FreeStyleProject p = rule.createFreeStyleProject();
+        CopyArtifact copier = new CopyArtifact(src.getFullName());
+        copier.setSkipIdenticalFiles(true);
+        copier.setTarget("target");
+        p.getBuildersList().add(copier);
+        FreeStyleBuild b1 = rule.buildAndAssertSuccess(p);
+        CopiedArtifactsAction.CopyResult result = b1.getAction(CopiedArtifactsAction.class).getResults().get(0);
+        assertEquals(src.getFullName(), result.getProjectName());
+        assertEquals(s.getNumber(), result.getBuildNumber());
+        assertEquals(b1.getWorkspace().child("target").getRemote(), result.getTarget());
+        assertEquals(1, result.getEntries().size());
+        assertEquals("artifact.txt", result.getEntries().get(0).getPath());
+        assertEquals(6, result.getEntries().get(0).getSize());
+        assertEquals(Util.getDigestOf("foobar"), result.getEntries().get(0).getDigest());
+        assertEquals(FOOBAR_SHA256, result.getEntries().get(0).getSha256());
+        assertEquals(6, result.getBytesTransferred());
+
+        // identical files are not transferred
+        FreeStyleBuild b2 = rule.buildAndAssertSuccess(p);
+        result = b2.getAction(CopiedArtifactsAction.class).getResults().get(0);
+        assertEquals(1, result.getEntries().size());
+        assertEquals(6, result.getEntries().get(0).getSize());
+        assertEquals(Util.getDigestOf("foobar"), result.getEntries().get(0).getDigest());
+        assertEquals(FOOBAR_SHA256, result.getEntries().get(0).getSha256());
+        assertEquals(0, result.getBytesTransferred());
+    }
+
+    @Test
+    void testCopiedArtifactsActionLimitsEntries() throws Exception {
+        FreeStyleProject src = rule.createFreeStyleProject();
+        for (int i = 0; i < 5; i++) {
+            src.getBuildersList().add(new FileWriteBuilder("artifact" + i + ".txt", "foobar"));
+        }
+        src.getPublishersList().add(new ArtifactArchiver("*.txt"));
+        rule.buildAndAssertSuccess(src);
+
+        FreeStyleProject p = rule.createFreeStyleProject();
+        CopyArtifact copier = new CopyArtifact(src.getFullName());
+        copier.setFingerprintArtifacts(false);
+        p.getBuildersList().add(copier);
+        int maxEntries = CopiedArtifactsAction.MAX_ENTRIES;
+        try {
+            CopiedArtifactsAction.MAX_ENTRIES = 2;
+            FreeStyleBuild b = rule.buildAndAssertSuccess(p);
+            CopiedArtifactsAction.CopyResult result = b.getAction(CopiedArtifactsAction.class).getResults().get(0);
+            assertEquals(2, result.getEntries().size());
+            assertEquals(5, result.getEntryCount());
+            assertEquals(30, result.getTotalSize());
+            assertEquals(30, result.getBytesTransferred());
+            // digests are computed from the copied bytes even when not fingerprinting.
+            assertEquals(Util.getDigestOf("foobar"), result.getEntries().get(0).getDigest());
+            assertEquals(FOOBAR_SHA256, result.getEntries().get(0).getSha256());
+        } finally {
+            CopiedArtifactsAction.MAX_ENTRIES = maxEntries;
+        }
+    }
+
     @Test
     void testOptional_MissingArtifact() throws Exception {
         FreeStyleProject other = rule.createFreeStyleProject(),
@@ -1284,7 +1752,7 @@ class CopyArtifactTest {
         // Test coverage for EnvAction
         boolean ok = false;
         for (Action a : b.getActions()) {
-            if ("hudson.plugins.copyartifact.CopyArtifact$EnvAction".equals(a.getClass().getName())) {
+            if (a instanceof EnvAction) {
                 assertNull(a.getIconFileName());
                 assertNull(a.getDisplayName());
                 assertNull(a.getUrlName());
@@ -1294,6 +1762,13 @@ class CopyArtifactTest {
         assertTrue(ok);
     }
 
+    @Test
+    void testEnvActionRecordedWithOldName() throws Exception {
+        // recorded in builds when it was nested in CopyArtifact.
+        Object a = Run.XSTREAM2.fromXML("<hudson.plugins.copyartifact.CopyArtifact_-EnvAction/>");
+        assertInstanceOf(EnvAction.class, a);
+    }
+
     @Test
     void testFilterByMetaParameters() throws Exception {
         FreeStyleProject other = createArtifactProject("Foo job");
@@ -2265,6 +2740,63 @@ class CopyArtifactTest {
         }
     }
 
+    @Test
+    void testBuildCount() throws Exception {
+        final Builder failureBuilder = new FailureBuilder();
+        final FreeStyleProject srcProject = createArtifactProject("SRC-PROJECT");
+        for (int i = 1; i <= 5; i++) {
+            if (i == 3) {
+                srcProject.getBuildersList().add(failureBuilder);
+                rule.buildAndAssertStatus(Result.FAILURE, srcProject);
+                srcProject.getBuildersList().remove(failureBuilder);
+            } else {
+                rule.buildAndAssertSuccess(srcProject);
+            }
+        }
+
+        FreeStyleProject p = rule.createFreeStyleProject();
+        CopyArtifact copier = new CopyArtifact(srcProject.getFullName());
+        copier.setSelector(new StatusBuildSelector(false));
+        copier.setTarget("history");
+        copier.setBuildCount(3);
+        p.getBuildersList().add(copier);
+        CaptureEnvironmentBuilder ceb = new CaptureEnvironmentBuilder();
+        p.getBuildersList().add(ceb);
+        FreeStyleBuild b = rule.buildAndAssertSuccess(p);
+
+        FilePath history = b.getWorkspace().child("history");
+        assertTrue(history.child("5/foo.txt").exists());
+        assertTrue(history.child("4/foo.txt").exists());
+        assertFalse(history.child("3").exists());
+        assertTrue(history.child("2/foo.txt").exists());
+        assertFalse(history.child("1").exists());
+        // the most recent build is recorded.
+        assertEquals("5", ceb.getEnvVars().get("COPYARTIFACT_BUILD_NUMBER_SRC_PROJECT"));
+    }
+
+    @Test
+    void testBuildCountWithSingleBuildSelector() throws Exception {
+        FreeStyleProject srcProject = createArtifactProject("SRC-PROJECT");
+        rule.buildAndAssertSuccess(srcProject);
+        rule.buildAndAssertSuccess(srcProject);
+        assertTrue(new StatusBuildSelector(false).isMultipleBuildsSelectable());
+        SpecificBuildSelector selector = new SpecificBuildSelector("1");
+        assertFalse(selector.isMultipleBuildsSelectable());
+
+        FreeStyleProject p = rule.createFreeStyleProject();
+        CopyArtifact copier = new CopyArtifact(srcProject.getFullName());
+        copier.setSelector(selector);
+        copier.setTarget("history");
+        copier.setBuildCount(3);
+        p.getBuildersList().add(copier);
+        FreeStyleBuild b = rule.buildAndAssertSuccess(p);
+
+        // only the build returned by the selector is copied.
+        assertTrue(b.getWorkspace().child("history/1/foo.txt").exists());
+        assertFalse(b.getWorkspace().child("history/2").exists());
+        rule.assertLogContains(Messages.CopyArtifact_SingleBuildSelector(selector.getDescriptor().getDisplayName(), 3), b);
+    }
+
     @Test
     void testResultVariableSuffix() throws Exception {
         FreeStyleProject srcProject = createArtifactProject("SRC-PROJECT1");
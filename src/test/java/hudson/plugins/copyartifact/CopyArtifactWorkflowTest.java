@@ -400,4 +400,26 @@ class CopyArtifactWorkflowTest {
         ));
         jenkinsRule.assertBuildStatusSuccess(dest.scheduleBuild2(0));
     }
+
+    @Test
+    void testCopyArtifactsWithResults() throws Exception {
+        WorkflowJob src = JenkinsRuleUtil.createWorkflow(
+                jenkinsRule,
+                "src",
+                "writeFile text: 'foobar', file: 'artifact.txt';"
+                + "archiveArtifacts 'artifact.txt';"
+        );
+        WorkflowRun s = jenkinsRule.assertBuildStatusSuccess(src.scheduleBuild2(0));
+
+        WorkflowJob dest = JenkinsRuleUtil.createWorkflow(
+                jenkinsRule,
+                "dest",
+                "def results = copyArtifactsWithResults(copier: [projectName: 'src', fingerprintArtifacts: false]);"
+                + "echo \"copied ${results[0].entryCount} from ${results[0].projectName} #${results[0].buildNumber}\";"
+                + "echo \"sha256 ${results[0].entries[0].sha256}\";"
+        );
+        WorkflowRun b = jenkinsRule.assertBuildStatusSuccess(dest.scheduleBuild2(0));
+        jenkinsRule.assertLogContains("copied 1 from src #" + s.getNumber(), b);
+        jenkinsRule.assertLogContains("sha256 c3ab8ff13720e8ad9047dd39466b3c8974e592c2fa383d4a3960714caef0c4f2", b);
+    }
 }
@@ -0,0 +1,85 @@
+package hudson.plugins.copyartifact;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import hudson.EnvVars;
+import hudson.Util;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Run;
+import hudson.plugins.copyartifact.testutils.CopyArtifactUtil;
+import hudson.plugins.copyartifact.testutils.FileWriteBuilder;
+import hudson.tasks.ArtifactArchiver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class FingerprintBuildSelectorTest {
+
+    private JenkinsRule j;
+
+    @BeforeEach
+    void setUp(JenkinsRule rule) {
+        j = rule;
+    }
+
+    private FreeStyleBuild buildWithArtifact(FreeStyleProject p, String content) throws Exception {
+        p.getBuildersList().clear();
+        p.getBuildersList().add(new FileWriteBuilder("artifact.txt", content));
+        return j.buildAndAssertSuccess(p);
+    }
+
+    @Test
+    void testSelectProducer() throws Exception {
+        FreeStyleProject upstream = j.createFreeStyleProject();
+        ArtifactArchiver archiver = new ArtifactArchiver("artifact.txt");
+        archiver.setFingerprint(true);
+        upstream.getPublishersList().add(archiver);
+        FreeStyleBuild foo = buildWithArtifact(upstream, "foo");
+        FreeStyleBuild bar = buildWithArtifact(upstream, "bar");
+
+        BuildFilter filter = new BuildFilter();
+        assertEquals(foo, new FingerprintBuildSelector(Util.getDigestOf("foo")).getBuild(upstream, new EnvVars(), filter, null));
+        assertEquals(bar, new FingerprintBuildSelector(Util.getDigestOf("bar")).getBuild(upstream, new EnvVars(), filter, null));
+        assertEquals(bar, new FingerprintBuildSelector("$MD5").getBuild(upstream, new EnvVars("MD5", Util.getDigestOf("bar").toUpperCase()), filter, null));
+        assertNull(new FingerprintBuildSelector(Util.getDigestOf("baz")).getBuild(upstream, new EnvVars(), filter, null));
+        assertNull(new FingerprintBuildSelector("not-a-md5").getBuild(upstream, new EnvVars(), filter, null));
+        assertNull(new FingerprintBuildSelector(Util.getDigestOf("foo")).getBuild(upstream, new EnvVars(), new BuildFilter() {
+            @Override
+            public boolean isSelectable(Run<?, ?> run, EnvVars env) {
+                return false;
+            }
+        }, null));
+    }
+
+    @Test
+    void testSelectUser() throws Exception {
+        FreeStyleProject upstream = j.createFreeStyleProject();
+        ArtifactArchiver archiver = new ArtifactArchiver("artifact.txt");
+        archiver.setFingerprint(true);
+        upstream.getPublishersList().add(archiver);
+        buildWithArtifact(upstream, "foo");
+
+        FreeStyleProject downstream = j.createFreeStyleProject();
+        downstream.getBuildersList().add(CopyArtifactUtil.createCopyArtifact(
+                upstream.getFullName(),
+                null,
+                new LastCompletedBuildSelector(),
+                "artifact.txt",
+                "",
+                false,
+                false,
+                true
+        ));
+        FreeStyleBuild copier1 = j.buildAndAssertSuccess(downstream);
+        FreeStyleBuild copier2 = j.buildAndAssertSuccess(downstream);
+
+        // selects the newest build recorded to use the artifact.
+        assertEquals(copier2, new FingerprintBuildSelector(Util.getDigestOf("foo")).getBuild(downstream, new EnvVars(), new BuildFilter(), null));
+        copier2.delete();
+        assertEquals(copier1, new FingerprintBuildSelector(Util.getDigestOf("foo")).getBuild(downstream, new EnvVars(), new BuildFilter(), null));
+    }
+}
@@ -23,13 +23,21 @@
  */
 package hudson.plugins.copyartifact;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import hudson.EnvVars;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.UnstableBuilder;
 import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
 
 @WithJenkins
@@ -51,4 +59,60 @@ class LastStableBuildSelectorTest {
         assertInstanceOf(StatusBuildSelector.class, s);
         assertTrue(((StatusBuildSelector)s).isStable());
     }
+
+    @Test
+    void testParallelEvaluation() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        j.buildAndAssertSuccess(p);
+        FreeStyleBuild stable = j.buildAndAssertSuccess(p);
+        p.getBuildersList().add(new UnstableBuilder());
+        for (int i = 0; i < 5; i++) {
+            j.assertBuildStatus(Result.UNSTABLE, p.scheduleBuild2(0));
+        }
+
+        int oldWindow = BuildSelector.PARALLEL_EVALUATION_WINDOW;
+        try {
+            for (int window : new int[] {2, 3, 10}) {
+                BuildSelector.PARALLEL_EVALUATION_WINDOW = window;
+                assertEquals(stable, new StatusBuildSelector(true).getBuild(p, new EnvVars(), new BuildFilter(), null));
+                assertEquals(p.getLastBuild(), new StatusBuildSelector(false).getBuild(p, new EnvVars(), new BuildFilter(), null));
+                assertNull(new SavedBuildSelector().getBuild(p, new EnvVars(), new BuildFilter(), null));
+            }
+
+            // an aborted selection is not reported as no build found.
+            Thread.currentThread().interrupt();
+            try {
+                assertThrows(SelectionInterruptedException.class, () -> new SavedBuildSelector().getBuild(p, new EnvVars(), new BuildFilter(), null));
+            } finally {
+                Thread.interrupted();
+            }
+        } finally {
+            BuildSelector.PARALLEL_EVALUATION_WINDOW = oldWindow;
+        }
+    }
+
+    @Test
+    void testMaxCandidates() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        FreeStyleBuild stable = j.buildAndAssertSuccess(p);
+        p.getBuildersList().add(new UnstableBuilder());
+        for (int i = 0; i < 3; i++) {
+            j.assertBuildStatus(Result.UNSTABLE, p.scheduleBuild2(0));
+        }
+
+        int oldMaxCandidates = BuildSelector.MAX_CANDIDATES;
+        int oldWindow = BuildSelector.PARALLEL_EVALUATION_WINDOW;
+        try {
+            for (int window : new int[] {1, 2}) {
+                BuildSelector.PARALLEL_EVALUATION_WINDOW = window;
+                BuildSelector.MAX_CANDIDATES = 3;
+                assertNull(new StatusBuildSelector(true).getBuild(p, new EnvVars(), new BuildFilter(), null));
+                BuildSelector.MAX_CANDIDATES = 4;
+                assertEquals(stable, new StatusBuildSelector(true).getBuild(p, new EnvVars(), new BuildFilter(), null));
+            }
+        } finally {
+            BuildSelector.MAX_CANDIDATES = oldMaxCandidates;
+            BuildSelector.PARALLEL_EVALUATION_WINDOW = oldWindow;
+        }
+    }
 }
@@ -0,0 +1,99 @@
+package hudson.plugins.copyartifact;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.concurrent.Future;
+
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Label;
+import hudson.model.LoadBalancer;
+import hudson.model.Queue;
+import hudson.plugins.copyartifact.testutils.FileWriteBuilder;
+import hudson.slaves.DumbSlave;
+import hudson.tasks.ArtifactArchiver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class LocalityLoadBalancerTest {
+
+    private JenkinsRule j;
+
+    @BeforeEach
+    void setUp(JenkinsRule rule) {
+        j = rule;
+    }
+
+    @Test
+    void testPreferNodeWithStagedArtifacts() throws Exception {
+        j.createOnlineSlave(Label.get("builder"));
+        DumbSlave cache = j.createOnlineSlave(Label.get("builder cache"));
+        j.createOnlineSlave(Label.get("builder"));
+        ArtifactDistributionConfiguration.get().setRules(Collections.singletonList(
+                new ArtifactDistributionConfiguration.Rule("upstream", "cache")
+        ));
+        ArtifactDistributionConfiguration.get().setPreferStagedNodes(true);
+
+        FreeStyleProject upstream = j.createFreeStyleProject("upstream");
+        upstream.getBuildersList().add(new FileWriteBuilder("artifact.txt", "foobar"));
+        ArtifactArchiver aa = new ArtifactArchiver("artifact.txt");
+        aa.setFingerprint(true);
+        upstream.getPublishersList().add(aa);
+        j.buildAndAssertSuccess(upstream);
+        String sha256 = Util.toHexString(MessageDigest.getInstance("SHA-256").digest("foobar".getBytes(StandardCharsets.UTF_8)));
+        FilePath staged = cache.getRootPath().child("copyartifact-cache").child(Util.getDigestOf(upstream.getFullName())).child(sha256);
+        for (int i = 0; !staged.exists(); i++) {
+            assertTrue(i < 100, "artifacts should be distributed");
+            Thread.sleep(100);
+        }
+
+        FreeStyleProject downstream = j.createFreeStyleProject();
+        downstream.setAssignedLabel(Label.get("builder"));
+        CopyArtifact copier = new CopyArtifact(upstream.getFullName());
+        copier.setSelectAtQueueTime(true);
+        downstream.getBuildersList().add(copier);
+
+        for (int n = 0; n < 3; n++) {
+            Future<FreeStyleBuild> f = downstream.scheduleBuild2(600);
+            Queue.Item item = j.jenkins.getQueue().getItem(downstream);
+            assertNotNull(item);
+            for (int i = 0; item.getAction(PinnedBuildsAction.class) == null; i++) {
+                assertTrue(i < 100, "the build to copy from should be selected");
+                Thread.sleep(100);
+            }
+            downstream.scheduleBuild2(0);
+            FreeStyleBuild b = j.assertBuildStatusSuccess(f);
+            assertEquals(cache, b.getBuiltOn());
+        }
+    }
+
+    @Test
+    void testInstallOnlyWhenEnabled() throws Exception {
+        LoadBalancer original = j.jenkins.getQueue().getLoadBalancer();
+        assertFalse(original instanceof LocalityLoadBalancer);
+
+        ArtifactDistributionConfiguration.get().setPreferStagedNodes(true);
+        LoadBalancer installed = j.jenkins.getQueue().getLoadBalancer();
+        assertTrue(installed instanceof LocalityLoadBalancer);
+        assertSame(original, ((LocalityLoadBalancer) installed).getBase());
+
+        j.configRoundtrip();
+        assertTrue(ArtifactDistributionConfiguration.get().isPreferStagedNodes());
+        assertSame(installed, j.jenkins.getQueue().getLoadBalancer());
+
+        ArtifactDistributionConfiguration.get().setPreferStagedNodes(false);
+        assertSame(original, j.jenkins.getQueue().getLoadBalancer());
+    }
+}
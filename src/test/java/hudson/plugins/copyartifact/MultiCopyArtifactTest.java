@@ -0,0 +1,127 @@
+package hudson.plugins.copyartifact;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Item;
+import hudson.model.Result;
+import hudson.plugins.copyartifact.testutils.FileWriteBuilder;
+import hudson.tasks.ArtifactArchiver;
+import jenkins.model.Jenkins;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.MockAuthorizationStrategy;
+import org.jvnet.hudson.test.MockFolder;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class MultiCopyArtifactTest {
+
+    private JenkinsRule j;
+
+    @BeforeEach
+    void setUp(JenkinsRule rule) {
+        j = rule;
+    }
+
+    private FreeStyleProject createArtifactProject(MockFolder folder, String name, String content) throws Exception {
+        FreeStyleProject p = (folder != null) ? folder.createProject(FreeStyleProject.class, name) : j.createFreeStyleProject(name);
+        p.getBuildersList().add(new FileWriteBuilder("artifact.txt", content));
+        p.getPublishersList().add(new ArtifactArchiver("artifact.txt"));
+        j.buildAndAssertSuccess(p);
+        return p;
+    }
+
+    @Test
+    void testCopyFromMultipleProjects() throws Exception {
+        MockFolder folder = j.jenkins.createProject(MockFolder.class, "folder");
+        createArtifactProject(folder, "a", "a");
+        createArtifactProject(folder, "b", "b");
+        createArtifactProject(null, "other", "other");
+
+        CopyArtifact globCopier = new CopyArtifact("folder/*");
+        globCopier.setTarget("libs");
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.getBuildersList().add(new MultiCopyArtifact(Arrays.asList(new CopyArtifact("other"), globCopier)));
+        FreeStyleBuild b = j.buildAndAssertSuccess(p);
+
+        assertEquals("other", b.getWorkspace().child("artifact.txt").readToString());
+        assertEquals("a", b.getWorkspace().child("libs/folder/a/artifact.txt").readToString());
+        assertEquals("b", b.getWorkspace().child("libs/folder/b/artifact.txt").readToString());
+        j.assertLogContains(Messages.MultiCopyArtifact_Result("folder/a", Messages.MultiCopyArtifact_Succeeded()), b);
+    }
+
+    @Test
+    void testCopyFromMatchedProjectsIntoFolder() throws Exception {
+        MockFolder folder = j.jenkins.createProject(MockFolder.class, "folder");
+        createArtifactProject(folder, "a", "a");
+        MockFolder copierFolder = j.jenkins.createProject(MockFolder.class, "copiers");
+        // not to resolve matched jobs relative to the folder of the copier.
+        createArtifactProject(copierFolder, "folder", "not copied");
+
+        FreeStyleProject p = copierFolder.createProject(FreeStyleProject.class, "copier");
+        p.getBuildersList().add(new MultiCopyArtifact(Collections.singletonList(new CopyArtifact("folder/*"))));
+        FreeStyleBuild b = j.buildAndAssertSuccess(p);
+
+        assertEquals("a", b.getWorkspace().child("folder/a/artifact.txt").readToString());
+        CopiedArtifactsAction action = b.getAction(CopiedArtifactsAction.class);
+        assertEquals(1, action.getSources().size());
+        CopiedArtifactsAction.SourceResult source = action.getSources().get(0);
+        assertEquals("folder/a", source.getProjectName());
+        assertTrue(source.isSucceeded());
+        assertEquals(1, source.getResults().size());
+        assertEquals("folder/a", source.getResults().get(0).getProjectName());
+    }
+
+    @Test
+    void testSkipJobsNotAllowedToCopyFrom() throws Exception {
+        MockFolder folder = j.jenkins.createProject(MockFolder.class, "folder");
+        FreeStyleProject readable = createArtifactProject(folder, "a", "a");
+        createArtifactProject(folder, "b", "b");
+        FreeStyleProject permitted = createArtifactProject(folder, "c", "c");
+        permitted.addProperty(new CopyArtifactPermissionProperty("/copier"));
+        j.jenkins.setSecurityRealm(j.createDummySecurityRealm());
+        j.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy()
+                .grant(Jenkins.READ).everywhere().toAuthenticated()
+                .grant(Item.READ).onItems(readable).toAuthenticated());
+
+        FreeStyleProject p = j.createFreeStyleProject("copier");
+        p.getBuildersList().add(new MultiCopyArtifact(Collections.singletonList(new CopyArtifact("folder/*"))));
+        FreeStyleBuild b = j.buildAndAssertSuccess(p);
+
+        assertEquals("a", b.getWorkspace().child("folder/a/artifact.txt").readToString());
+        assertFalse(b.getWorkspace().child("folder/b").exists());
+        assertEquals("c", b.getWorkspace().child("folder/c/artifact.txt").readToString());
+        j.assertLogNotContains("folder/b", b);
+    }
+
+    @Test
+    void testFailedSource() throws Exception {
+        createArtifactProject(null, "src", "src");
+
+        CopyArtifact failing = new CopyArtifact("src");
+        failing.setFilter("nosuchfile.txt");
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.getBuildersList().add(new MultiCopyArtifact(Arrays.asList(new CopyArtifact("src"), failing)));
+        FreeStyleBuild b = j.buildAndAssertStatus(Result.FAILURE, p);
+
+        // other sources are copied even if one fails.
+        assertTrue(b.getWorkspace().child("artifact.txt").exists());
+        j.assertLogContains(Messages.MultiCopyArtifact_Failed(1, 2), b);
+        List<CopiedArtifactsAction.SourceResult> sources = b.getAction(CopiedArtifactsAction.class).getSources();
+        assertEquals(2, sources.size());
+        assertTrue(sources.get(0).isSucceeded());
+        assertEquals(1, sources.get(0).getResults().size());
+        assertFalse(sources.get(1).isSucceeded());
+        assertNotNull(sources.get(1).getFailure());
+    }
+}
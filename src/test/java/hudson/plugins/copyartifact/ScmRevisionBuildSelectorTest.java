@@ -0,0 +1,128 @@
+package hudson.plugins.copyartifact;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+
+import hudson.EnvVars;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Run;
+import hudson.plugins.git.GitSCM;
+import jenkins.plugins.git.GitSampleRepoRule;
+import jenkins.plugins.git.junit.jupiter.WithGitSampleRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+@WithGitSampleRepo
+class ScmRevisionBuildSelectorTest {
+
+    private JenkinsRule j;
+
+    private GitSampleRepoRule sampleRepo;
+
+    @BeforeEach
+    void setUp(JenkinsRule rule, GitSampleRepoRule repo) {
+        j = rule;
+        sampleRepo = repo;
+    }
+
+    private String commit(String content) throws Exception {
+        sampleRepo.write("file.txt", content);
+        sampleRepo.git("add", "file.txt");
+        sampleRepo.git("commit", "--message=" + content);
+        return sampleRepo.head();
+    }
+
+    private Run<?,?> select(FreeStyleProject p, String revision) {
+        return new ScmRevisionBuildSelector(revision).getBuild(p, new EnvVars(), new BuildFilter(), null);
+    }
+
+    @Test
+    void testGetBuild() throws Exception {
+        sampleRepo.init();
+        String c1 = commit("c1");
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.setScm(new GitSCM(sampleRepo.toString()));
+        FreeStyleBuild b1 = j.buildAndAssertSuccess(p);
+        String c2 = commit("c2");
+        String c3 = commit("c3");
+        FreeStyleBuild b2 = j.buildAndAssertSuccess(p);
+        // not indexed until looked up
+        assertFalse(new File(p.getRootDir(), ScmRevisionIndex.FILE_NAME).exists());
+
+        // indexed when looked up for the first time
+        assertEquals(b1, select(p, c1));
+        // only in the changes of b2
+        assertNull(select(p, c2));
+        assertEquals(b2, select(p, c3));
+        assertEquals(b2, select(p, c3.substring(0, 7)));
+        assertNull(select(p, c3.substring(0, 6)));
+        assertNull(select(p, "0000000000000000000000000000000000000000"));
+        assertEquals(b1, new ScmRevisionBuildSelector("$COMMIT").getBuild(p, new EnvVars("COMMIT", c1), new BuildFilter(), null));
+
+        // indexed when completed
+        FreeStyleBuild b3 = j.buildAndAssertSuccess(p);
+        assertEquals(b3, select(p, c3));
+
+        // forgotten when deleted
+        b3.delete();
+        assertEquals(b2, select(p, c3));
+    }
+
+    @Test
+    void testLoadIndex() throws Exception {
+        sampleRepo.init();
+        String c1 = commit("c1");
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.setScm(new GitSCM(sampleRepo.toString()));
+        FreeStyleBuild b1 = j.buildAndAssertSuccess(p);
+        String c2 = commit("c2");
+        FreeStyleBuild b2 = j.buildAndAssertSuccess(p);
+
+        assertEquals(b2, select(p, c2));
+
+        // a stale entry recording c1 for a missing build, and one recording c1 for b2
+        Files.write(new File(p.getRootDir(), ScmRevisionIndex.FILE_NAME).toPath(),
+                ("99 " + c1 + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        ScmRevisionIndex.unload(p);
+
+        // loaded from the file, and verified with builds
+        assertEquals(b1, select(p, c1));
+        assertEquals(b2, select(p, c2));
+    }
+
+    @Test
+    void testPruneDeletedBuilds() throws Exception {
+        sampleRepo.init();
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.setScm(new GitSCM(sampleRepo.toString()));
+        String c1 = commit("c1");
+        j.buildAndAssertSuccess(p);
+        String c2 = commit("c2");
+        FreeStyleBuild b2 = j.buildAndAssertSuccess(p);
+        String c3 = commit("c3");
+        FreeStyleBuild b3 = j.buildAndAssertSuccess(p);
+        assertEquals(b3, select(p, c3));
+        File file = new File(p.getRootDir(), ScmRevisionIndex.FILE_NAME);
+
+        // kept in the file while most of lines are for existing builds
+        b3.delete();
+        assertNull(select(p, c3));
+        assertEquals(3, Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).size());
+
+        // rewritten when not
+        b2.delete();
+        assertNull(select(p, c2));
+        assertEquals(Collections.singletonList("1 " + c1), Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+    }
+}
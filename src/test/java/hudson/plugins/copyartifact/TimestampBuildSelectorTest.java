@@ -0,0 +1,108 @@
+package hudson.plugins.copyartifact;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import hudson.EnvVars;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.UnstableBuilder;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class TimestampBuildSelectorTest {
+
+    private JenkinsRule j;
+
+    @BeforeEach
+    void setUp(JenkinsRule rule) {
+        j = rule;
+    }
+
+    private static long tick() throws InterruptedException {
+        Thread.sleep(10);
+        long now = System.currentTimeMillis();
+        Thread.sleep(10);
+        return now;
+    }
+
+    @Test
+    void testGetBuild() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        long beforeAll = tick();
+        FreeStyleBuild b1 = j.buildAndAssertSuccess(p);
+        long afterB1 = tick();
+        p.getBuildersList().add(new UnstableBuilder());
+        FreeStyleBuild b2 = j.buildAndAssertStatus(Result.UNSTABLE, p);
+        long afterB2 = tick();
+        p.getBuildersList().clear();
+        FreeStyleBuild b3 = j.buildAndAssertSuccess(p);
+        long afterB3 = tick();
+        b2.delete();
+        FreeStyleBuild b4 = j.buildAndAssertSuccess(p);
+
+        BuildFilter filter = new BuildFilter();
+        EnvVars env = new EnvVars();
+        assertNull(new TimestampBuildSelector(Long.toString(beforeAll)).getBuild(p, env, filter, null));
+        assertEquals(b1, new TimestampBuildSelector(Long.toString(afterB1)).getBuild(p, env, filter, null));
+        // b2 is deleted
+        assertEquals(b1, new TimestampBuildSelector(Long.toString(afterB2)).getBuild(p, env, filter, null));
+        assertEquals(b3, new TimestampBuildSelector(Long.toString(afterB3)).getBuild(p, env, filter, null));
+        assertEquals(b4, new TimestampBuildSelector("$AS_OF").getBuild(p, new EnvVars("AS_OF", Long.toString(System.currentTimeMillis())), filter, null));
+        assertNull(new TimestampBuildSelector("not-a-time").getBuild(p, env, filter, null));
+    }
+
+    @Test
+    void testStable() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        FreeStyleBuild b1 = j.buildAndAssertSuccess(p);
+        p.getBuildersList().add(new UnstableBuilder());
+        FreeStyleBuild b2 = j.buildAndAssertStatus(Result.UNSTABLE, p);
+        long afterB2 = tick();
+        p.getBuildersList().clear();
+        j.buildAndAssertSuccess(p);
+
+        TimestampBuildSelector selector = new TimestampBuildSelector(Long.toString(afterB2));
+        assertEquals(b2, selector.getBuild(p, new EnvVars(), new BuildFilter(), null));
+        selector.setStable(true);
+        assertEquals(b1, selector.getBuild(p, new EnvVars(), new BuildFilter(), null));
+    }
+
+    @Test
+    void testParseTime() {
+        ZoneId zone = ZoneId.systemDefault();
+        long now = LocalDateTime.of(2026, 10, 19, 12, 0).atZone(zone).toInstant().toEpochMilli();
+        assertEquals(1792000000000L, TimestampBuildSelector.parseTime("1792000000000", now));
+        assertEquals(now - 12 * 3600 * 1000L, TimestampBuildSelector.parseTime("12h", now));
+        assertEquals(now - 30 * 60 * 1000L, TimestampBuildSelector.parseTime("-30m", now));
+        assertEquals(now - 7 * 24 * 3600 * 1000L, TimestampBuildSelector.parseTime("1w", now));
+        assertEquals(
+                OffsetDateTime.of(2026, 10, 19, 2, 0, 0, 0, ZoneOffset.ofHours(9)).toInstant().toEpochMilli(),
+                TimestampBuildSelector.parseTime("2026-10-19T02:00:00+09:00", now)
+        );
+        assertEquals(
+                LocalDateTime.of(2026, 10, 19, 2, 0).atZone(zone).toInstant().toEpochMilli(),
+                TimestampBuildSelector.parseTime("2026-10-19T02:00", now)
+        );
+        // the latest past time of the day
+        assertEquals(
+                LocalDateTime.of(2026, 10, 19, 2, 0).atZone(zone).toInstant().toEpochMilli(),
+                TimestampBuildSelector.parseTime("02:00", now)
+        );
+        assertEquals(
+                LocalDateTime.of(2026, 10, 18, 13, 0).atZone(zone).toInstant().toEpochMilli(),
+                TimestampBuildSelector.parseTime("13:00", now)
+        );
+        assertNull(TimestampBuildSelector.parseTime("", now));
+        assertNull(TimestampBuildSelector.parseTime("yesterday", now));
+    }
+}
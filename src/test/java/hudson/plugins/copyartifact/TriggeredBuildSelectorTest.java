@@ -37,10 +37,12 @@ import java.io.File;
 import hudson.plugins.copyartifact.testutils.JenkinsRuleUtil;
 import org.apache.commons.io.FileUtils;
 
+import hudson.EnvVars;
 import hudson.Functions;
 import hudson.Util;
 import hudson.maven.MavenModuleSet;
 import hudson.model.Cause;
+import hudson.model.CauseAction;
 import hudson.model.FreeStyleProject;
 import hudson.model.ParameterDefinition;
 import hudson.model.ParametersAction;
@@ -54,6 +56,7 @@ import hudson.plugins.copyartifact.testutils.FileWriteBuilder;
 import hudson.plugins.copyartifact.testutils.RemoveUpstreamBuilder;
 import hudson.tasks.ArtifactArchiver;
 import hudson.tasks.BuildTrigger;
+import hudson.tasks.Fingerprinter;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -974,6 +977,160 @@ class TriggeredBuildSelectorTest {
         );
     }
 
+    @Test
+    void testMaxUpstreamDepth() throws Exception {
+        // upstream -> intermediate1 -> intermediate2 -> downstream
+        FreeStyleProject upstream = j.createFreeStyleProject();
+        FreeStyleProject intermediate1 = j.createFreeStyleProject();
+        FreeStyleProject intermediate2 = j.createFreeStyleProject();
+        FreeStyleProject downstream = j.createFreeStyleProject();
+
+        FreeStyleBuild upstreamBuild = j.buildAndAssertSuccess(upstream);
+        FreeStyleBuild intermediate1Build = j.assertBuildStatusSuccess(intermediate1.scheduleBuild2(0, new Cause.UpstreamCause(upstreamBuild)));
+        FreeStyleBuild intermediate2Build = j.assertBuildStatusSuccess(intermediate2.scheduleBuild2(0, new Cause.UpstreamCause(intermediate1Build)));
+        FreeStyleBuild downstreamBuild = j.assertBuildStatusSuccess(downstream.scheduleBuild2(0, new Cause.UpstreamCause(intermediate2Build)));
+
+        TriggeredBuildSelector selector = new TriggeredBuildSelector();
+        int oldMaxUpstreamDepth = TriggeredBuildSelector.MAX_UPSTREAM_DEPTH;
+        try {
+            TriggeredBuildSelector.MAX_UPSTREAM_DEPTH = 0;
+            assertEquals(upstreamBuild, selector.getBuild(upstream, new EnvVars(), new BuildFilter(), downstreamBuild));
+
+            TriggeredBuildSelector.MAX_UPSTREAM_DEPTH = 2;
+            assertEquals(upstreamBuild, selector.getBuild(upstream, new EnvVars(), new BuildFilter(), downstreamBuild));
+
+            TriggeredBuildSelector.MAX_UPSTREAM_DEPTH = 1;
+            assertNull(selector.getBuild(upstream, new EnvVars(), new BuildFilter(), downstreamBuild));
+        } finally {
+            TriggeredBuildSelector.MAX_UPSTREAM_DEPTH = oldMaxUpstreamDepth;
+        }
+    }
+
+    @Test
+    void testDiamondWithMaxUpstreamDepth() throws Exception {
+        // upstream -> intermediate1 -> intermediate2 -> side -> downstream
+        //                              intermediate2 --------> downstream
+        FreeStyleProject upstream = j.createFreeStyleProject();
+        FreeStyleProject intermediate1 = j.createFreeStyleProject();
+        FreeStyleProject intermediate2 = j.createFreeStyleProject();
+        FreeStyleProject side = j.createFreeStyleProject();
+        FreeStyleProject downstream = j.createFreeStyleProject();
+
+        FreeStyleBuild upstreamBuild = j.buildAndAssertSuccess(upstream);
+        FreeStyleBuild intermediate1Build = j.assertBuildStatusSuccess(intermediate1.scheduleBuild2(0, new Cause.UpstreamCause(upstreamBuild)));
+        FreeStyleBuild intermediate2Build = j.assertBuildStatusSuccess(intermediate2.scheduleBuild2(0, new Cause.UpstreamCause(intermediate1Build)));
+        FreeStyleBuild sideBuild = j.assertBuildStatusSuccess(side.scheduleBuild2(0, new Cause.UpstreamCause(intermediate2Build)));
+
+        TriggeredBuildSelector selector = new TriggeredBuildSelector();
+        int oldMaxUpstreamDepth = TriggeredBuildSelector.MAX_UPSTREAM_DEPTH;
+        try {
+            TriggeredBuildSelector.MAX_UPSTREAM_DEPTH = 2;
+            // intermediate2 is too deep via side, but not directly.
+            // the result must not depend on which is visited first.
+            for (Cause.UpstreamCause[] causes : new Cause.UpstreamCause[][] {
+                    {new Cause.UpstreamCause(sideBuild), new Cause.UpstreamCause(intermediate2Build)},
+                    {new Cause.UpstreamCause(intermediate2Build), new Cause.UpstreamCause(sideBuild)},
+            }) {
+                FreeStyleBuild downstreamBuild = j.assertBuildStatusSuccess(downstream.scheduleBuild2(0, null, new CauseAction(causes)));
+                assertEquals(upstreamBuild, selector.getBuild(upstream, new EnvVars(), new BuildFilter(), downstreamBuild));
+            }
+        } finally {
+            TriggeredBuildSelector.MAX_UPSTREAM_DEPTH = oldMaxUpstreamDepth;
+        }
+    }
+
+    @Test
+    void testUpstreamCycle() throws Exception {
+        // upstream -> intermediate1 <-> intermediate2 -> downstream
+        FreeStyleProject upstream = j.createFreeStyleProject();
+        FreeStyleProject intermediate1 = j.createFreeStyleProject();
+        FreeStyleProject intermediate2 = j.createFreeStyleProject();
+        FreeStyleProject downstream = j.createFreeStyleProject();
+
+        FreeStyleBuild upstreamBuild = j.buildAndAssertSuccess(upstream);
+        FreeStyleBuild intermediate1Build = j.assertBuildStatusSuccess(intermediate1.scheduleBuild2(0, new Cause.UpstreamCause(upstreamBuild)));
+        FreeStyleBuild intermediate2Build = j.assertBuildStatusSuccess(intermediate2.scheduleBuild2(0, new Cause.UpstreamCause(intermediate1Build)));
+        intermediate1Build.replaceAction(new CauseAction(new Cause.UpstreamCause(upstreamBuild), new Cause.UpstreamCause(intermediate2Build)));
+        FreeStyleBuild downstreamBuild = j.assertBuildStatusSuccess(downstream.scheduleBuild2(0, new Cause.UpstreamCause(intermediate2Build)));
+
+        TriggeredBuildSelector selector = new TriggeredBuildSelector();
+        assertEquals(upstreamBuild, selector.getBuild(upstream, new EnvVars(), new BuildFilter(), downstreamBuild));
+        assertNull(selector.getBuild(j.createFreeStyleProject(), new EnvVars(), new BuildFilter(), downstreamBuild));
+    }
+
+    @Test
+    void testUpstreamBuildsCacheIsNotPersisted() throws Exception {
+        // upstream -> intermediate (fingerprinted) -> downstream
+        FreeStyleProject upstream = j.createFreeStyleProject();
+        FreeStyleProject intermediate = j.createFreeStyleProject();
+        FreeStyleProject downstream = j.createFreeStyleProject();
+        upstream.getBuildersList().add(new FileWriteBuilder("artifact.txt", "${BUILD_NUMBER}"));
+        ArtifactArchiver archiver = new ArtifactArchiver("artifact.txt");
+        archiver.setFingerprint(true);
+        upstream.getPublishersList().add(archiver);
+        upstream.getPublishersList().add(new BuildTrigger(intermediate.getName(), Result.SUCCESS));
+        intermediate.setQuietPeriod(0);
+        j.jenkins.rebuildDependencyGraph();
+
+        FreeStyleBuild upstreamBuild = j.buildAndAssertSuccess(upstream);
+        j.waitUntilNoActivity();
+        FreeStyleBuild intermediateBuild = intermediate.getLastBuild();
+        assertNotNull(intermediateBuild);
+        intermediateBuild.replaceAction(new Fingerprinter.FingerprintAction(
+                intermediateBuild,
+                upstreamBuild.getAction(Fingerprinter.FingerprintAction.class).getRecords()
+        ));
+        FreeStyleBuild downstreamBuild = j.assertBuildStatusSuccess(downstream.scheduleBuild2(0, new Cause.UpstreamCause(intermediateBuild)));
+
+        TriggeredBuildSelector selector = new TriggeredBuildSelector(false, TriggeredBuildSelector.UpstreamFilterStrategy.UseGlobalSetting, true);
+        assertEquals(upstreamBuild, selector.getBuild(upstream, new EnvVars(), new BuildFilter(), downstreamBuild));
+        assertTrue(TriggeredBuildSelector.UpstreamBuildsCache.isCached(intermediateBuild));
+
+        intermediateBuild.save();
+        String buildXml = FileUtils.readFileToString(new File(intermediateBuild.getRootDir(), "build.xml"), "UTF-8");
+        assertFalse(buildXml.contains(TriggeredBuildSelector.class.getName()), buildXml);
+    }
+
+    @Test
+    void testUpstreamBuildsCacheInvalidatedByNewDigest() throws Exception {
+        // upstream -> intermediate (fingerprinted)
+        FreeStyleProject upstream = j.createFreeStyleProject();
+        FreeStyleProject intermediate = j.createFreeStyleProject();
+        upstream.getBuildersList().add(new FileWriteBuilder("artifact.txt", "${BUILD_NUMBER}"));
+        ArtifactArchiver archiver = new ArtifactArchiver("artifact.txt");
+        archiver.setFingerprint(true);
+        upstream.getPublishersList().add(archiver);
+        upstream.getPublishersList().add(new BuildTrigger(intermediate.getName(), Result.SUCCESS));
+        intermediate.setQuietPeriod(0);
+        j.jenkins.rebuildDependencyGraph();
+
+        FreeStyleBuild upstreamBuild1 = j.buildAndAssertSuccess(upstream);
+        j.waitUntilNoActivity();
+        FreeStyleBuild upstreamBuild2 = j.buildAndAssertSuccess(upstream);
+        j.waitUntilNoActivity();
+        FreeStyleBuild intermediateBuild = intermediate.getBuildByNumber(1);
+        assertNotNull(intermediateBuild);
+
+        Fingerprinter.FingerprintAction fa = new Fingerprinter.FingerprintAction(
+                intermediateBuild,
+                upstreamBuild1.getAction(Fingerprinter.FingerprintAction.class).getRecords()
+        );
+        intermediateBuild.replaceAction(fa);
+        assertEquals(
+                Integer.valueOf(1),
+                TriggeredBuildSelector.UpstreamBuildsCache.getUpstreamBuilds(intermediateBuild).get(upstream)
+        );
+
+        // The same file is recorded again with another digest:
+        // the number of records doesn't change.
+        fa.add(upstreamBuild2.getAction(Fingerprinter.FingerprintAction.class).getRecords());
+        assertEquals(1, fa.getRecords().size());
+        assertEquals(
+                Integer.valueOf(2),
+                TriggeredBuildSelector.UpstreamBuildsCache.getUpstreamBuilds(intermediateBuild).get(upstream)
+        );
+    }
+
     /**
      * Creates an empty Maven project with an unique name.
      *
@@ -0,0 +1,42 @@
+package jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import jenkins.benchmark.jmh.BenchmarkFinder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs benchmarks annotated with {@link jenkins.benchmark.jmh.JmhBenchmark}.
+ *
+ * Not run by default. Run with {@code mvn test -Dbenchmark}.
+ * The results (including allocation rates) are written to {@code jmh-report.json}.
+ */
+class BenchmarkRunner {
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = ".*")
+    void runJmhBenchmarks() throws Exception {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .mode(Mode.AverageTime)
+                .warmupIterations(2)
+                .timeUnit(TimeUnit.MICROSECONDS)
+                .threads(2)
+                .forks(2)
+                .measurementIterations(15)
+                .shouldFailOnError(true)
+                .shouldDoGC(true)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("jmh-report.json");
+
+        BenchmarkFinder bf = new BenchmarkFinder(getClass());
+        bf.findBenchmarks(options);
+        new Runner(options.build()).run();
+    }
+}